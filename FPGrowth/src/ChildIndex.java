@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+/**
+ * Class for the index of children in FP-tree.
+ * An open-addressing hash table with linear probing,
+ * whose key is (parent node, item) and whose value is the child node.
+ * Only nodes with many children are put into the index,
+ * so that finding a child takes constant time no matter how large the fan-out is.
+ */
+public class ChildIndex {
+	/**
+	 * key of an empty slot
+	 */
+	private static final long EMPTY = -1L;
+	
+	/**
+	 * keys of slots: parent in high 32 bits, item in low 32 bits
+	 */
+	private long[] keys;
+	
+	/**
+	 * child node of each slot
+	 */
+	private int[] values;
+	
+	/**
+	 * number of children in the index
+	 */
+	private int size;
+	
+	/**
+	 * capacity - 1, capacity is a power of 2
+	 */
+	private int mask;
+	
+	/**
+	 * Constructor.
+	 */
+	public ChildIndex() {
+		keys = new long[64];
+		values = new int[64];
+		Arrays.fill(keys, EMPTY);
+		mask = keys.length - 1;
+		size = 0;
+	}
+	
+	/**
+	 * Get number of children in the index.
+	 * @return number of children
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Get key of the given parent and item.
+	 * @param parent
+	 * @param item
+	 * @return key
+	 */
+	private static long key(int parent, int item) {
+		return ((long) parent << 32) | (item & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Get first slot of the given key.
+	 * @param key
+	 * @return slot
+	 */
+	private int slot(long key) {
+		//mix bits of the key
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key & mask;
+	}
+	
+	/**
+	 * Get the child node by given a parent and a item.
+	 * @param parent  the parent node
+	 * @param item  the given item
+	 * @return child node with that item, or FPTree.NULL if no such node exists
+	 */
+	public int get(int parent, int item) {
+		long key = key(parent, item);
+		for(int i = slot(key); ; i = (i + 1) & mask) {
+			if(keys[i] == key) {
+				return values[i];
+			}
+			if(keys[i] == EMPTY) {
+				return FPTree.NULL;
+			}
+		}
+	}
+	
+	/**
+	 * Put a child node into the index.
+	 * @param parent  the parent node
+	 * @param item  item of the child
+	 * @param child  the child node
+	 */
+	public void put(int parent, int item, int child) {
+		if((size + 1) * 2 > keys.length) {
+			//keep load factor no more than 0.5
+			resize(keys.length * 2);
+		}
+		long key = key(parent, item);
+		int i = slot(key);
+		while(keys[i] != EMPTY && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		if(keys[i] == EMPTY) {
+			size++;
+		}
+		keys[i] = key;
+		values[i] = child;
+	}
+	
+	/**
+	 * Remove a child node from the index, if it is in the index.
+	 * The following slots of the probe sequence are shifted back into the freed slot,
+	 * so no tombstone is left and lookups still stop at the first empty slot.
+	 * @param parent  the parent node
+	 * @param item  item of the child
+	 */
+	public void remove(int parent, int item) {
+		long key = key(parent, item);
+		int i = slot(key);
+		while(keys[i] != key) {
+			if(keys[i] == EMPTY) {
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		size--;
+		int hole = i;
+		for(int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+			//a key can move back to the hole if its first slot is not between the hole and its slot
+			int first = slot(keys[j]);
+			if(((j - first) & mask) >= ((j - hole) & mask)) {
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				hole = j;
+			}
+		}
+		keys[hole] = EMPTY;
+	}
+	
+	/**
+	 * Resize the hash table.
+	 * @param capacity  new capacity, a power of 2
+	 */
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		mask = capacity - 1;
+		for(int j = 0; j < oldKeys.length; j++) {
+			if(oldKeys[j] != EMPTY) {
+				int i = slot(oldKeys[j]);
+				while(keys[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+}
@@ -0,0 +1,135 @@
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Class for a growable array of int stored in chunks.
+ * The first chunk grows by doubling until it reaches the chunk size,
+ * after that a new chunk is added each time, so existing values are never copied
+ * and small arrays (e.g. of a small conditional FP-tree) stay small.
+ */
+public class ChunkedIntArray {
+	/**
+	 * number of bits of index inside a chunk
+	 */
+	private static final int CHUNK_BITS = 14;
+	
+	/**
+	 * number of values in a full chunk
+	 */
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	
+	/**
+	 * mask of index inside a chunk
+	 */
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	
+	/**
+	 * chunks of values
+	 */
+	private int[][] chunks;
+	
+	/**
+	 * number of values which can be stored without growing
+	 */
+	private int capacity;
+	
+	/**
+	 * Constructor.
+	 * @param initialCapacity  initial number of values
+	 */
+	public ChunkedIntArray(int initialCapacity) {
+		chunks = new int[1][];
+		capacity = Math.max(1, Math.min(initialCapacity, CHUNK_SIZE));
+		chunks[0] = new int[capacity];
+	}
+	
+	/**
+	 * Get value at the given index.
+	 * @param i  index
+	 * @return value at index i
+	 */
+	public int get(int i) {
+		return chunks[i >>> CHUNK_BITS][i & CHUNK_MASK];
+	}
+	
+	/**
+	 * Set value at the given index.
+	 * @param i  index
+	 * @param value
+	 */
+	public void set(int i, int value) {
+		chunks[i >>> CHUNK_BITS][i & CHUNK_MASK] = value;
+	}
+	
+	/**
+	 * Add delta to value at the given index.
+	 * @param i  index
+	 * @param delta
+	 */
+	public void add(int i, int delta) {
+		chunks[i >>> CHUNK_BITS][i & CHUNK_MASK] += delta;
+	}
+	
+	/**
+	 * Get number of values which can be stored without growing.
+	 * @return capacity
+	 */
+	public int capacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Make sure that values with index less than n can be stored.
+	 * @param n  number of values
+	 */
+	public void ensureCapacity(int n) {
+		while(capacity < n) {
+			if(capacity < CHUNK_SIZE) {
+				//grow the first chunk
+				capacity = Math.min(capacity * 2, CHUNK_SIZE);
+				chunks[0] = Arrays.copyOf(chunks[0], capacity);
+			} else {
+				//add a new chunk
+				int chunk = capacity >>> CHUNK_BITS;
+				if(chunk == chunks.length) {
+					chunks = Arrays.copyOf(chunks, chunk * 2);
+				}
+				chunks[chunk] = new int[CHUNK_SIZE];
+				capacity += CHUNK_SIZE;
+			}
+		}
+	}
+	
+	/**
+	 * Copy values to a buffer, a chunk at a time.
+	 * @param from  index of first value
+	 * @param buffer  buffer with at least n ints remaining
+	 * @param n  number of values
+	 */
+	public void get(int from, IntBuffer buffer, int n) {
+		while(n > 0) {
+			int offset = from & CHUNK_MASK;
+			int length = Math.min(n, CHUNK_SIZE - offset);
+			buffer.put(chunks[from >>> CHUNK_BITS], offset, length);
+			from += length;
+			n -= length;
+		}
+	}
+	
+	/**
+	 * Copy values from a buffer, a chunk at a time, growing the array if needed.
+	 * @param from  index of first value
+	 * @param buffer  buffer with at least n ints remaining
+	 * @param n  number of values
+	 */
+	public void set(int from, IntBuffer buffer, int n) {
+		ensureCapacity(from + n);
+		while(n > 0) {
+			int offset = from & CHUNK_MASK;
+			int length = Math.min(n, CHUNK_SIZE - offset);
+			buffer.get(chunks[from >>> CHUNK_BITS], offset, length);
+			from += length;
+			n -= length;
+		}
+	}
+}
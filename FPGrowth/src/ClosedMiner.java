@@ -0,0 +1,214 @@
+import java.util.Arrays;
+
+/**
+ * Class for mining closed frequent patterns on FP-trees, in the way of CLOSET+.
+ * A pattern is closed if no super-pattern has the same support.
+ * The conditional FP-trees are mined recursively as in FP-growth, with two kinds of pruning:
+ * item merging, an item occurring in every prefix path of the item in header list
+ * is added to the pattern instead of the conditional FP-tree;
+ * and sub-itemset pruning, a pattern contained in a closed pattern found before with the same support
+ * is not closed, and neither are the patterns of its conditional FP-tree, so the branch is skipped.
+ * Items in header list are mined from the least frequent one,
+ * so the closed super-patterns of a pattern are always found before it.
+ * For this order the miner runs in one thread.
+ */
+public class ClosedMiner {
+	/**
+	 * receive closed patterns
+	 */
+	private final PatternSink sink;
+	
+	/**
+	 * absolute minimum support
+	 */
+	private final int minSupport;
+	
+	/**
+	 * closed patterns found so far
+	 */
+	private final ClosedPatternIndex index;
+	
+	/**
+	 * buffers for creating conditional FP-trees
+	 */
+	private final MiningBuffer buffer;
+	
+	/**
+	 * item ids of the pattern being mined, in the order they were added
+	 */
+	private int[] pattern;
+	
+	/**
+	 * item ids of a pattern to be checked, sorted in ascending order
+	 */
+	private int[] sorted;
+	
+	/**
+	 * item ids of a pattern to be passed to sink, in descending order
+	 */
+	private int[] reversed;
+	
+	/**
+	 * number of branches skipped by sub-itemset pruning
+	 */
+	private long prunedCount;
+	
+	/**
+	 * number of items merged into patterns
+	 */
+	private long mergedCount;
+	
+	/**
+	 * Constructor.
+	 * @param sink  receive closed patterns
+	 * @param minSupport  absolute minimum support
+	 */
+	public ClosedMiner(PatternSink sink, int minSupport) {
+		this.sink = sink;
+		this.minSupport = minSupport;
+		index = new ClosedPatternIndex();
+		buffer = new MiningBuffer();
+		pattern = new int[16];
+		sorted = new int[16];
+		reversed = new int[16];
+		prunedCount = 0;
+		mergedCount = 0;
+	}
+	
+	/**
+	 * Mine closed patterns of the base FP-tree.
+	 * @param tree  base FP-tree
+	 */
+	public void mine(FPTree tree) {
+		mine(tree, 0);
+	}
+	
+	/**
+	 * Make sure pattern buffers can hold the given number of items.
+	 * @param length
+	 */
+	private void ensureCapacity(int length) {
+		if(pattern.length < length) {
+			int capacity = Math.max(length, pattern.length * 2);
+			pattern = Arrays.copyOf(pattern, capacity);
+			sorted = new int[capacity];
+			reversed = new int[capacity];
+		}
+	}
+	
+	/**
+	 * Mine an FP-tree recursively.
+	 * @param tree  FP-tree
+	 * @param length  number of items in pattern, the suffix of the patterns of this tree
+	 */
+	private void mine(FPTree tree, int length) {
+		if(tree.isEmpty()) {
+			return;
+		}
+		if(tree.hasSinglePath() == true) {
+			mineSinglePath(tree, length);
+			return;
+		}
+		for(int i = tree.getHeaderListLength()-1; i >= 0; i--) {
+			//process each item in header list in reverse order
+			int item = tree.getItemFromHeaderList(i);
+			int itemSupport = tree.getSupportByItem(item);
+			ensureCapacity(length + 1);
+			pattern[length] = tree.getItemId(item);
+			if(isSubsumed(length + 1, itemSupport) == true) {
+				//a closed super-pattern with the same support is found before,
+				//skip the branch before creating the conditional FP-tree
+				prunedCount++;
+				continue;
+			}
+			FPTree newTree = tree.createConditionalTree(item, minSupport, true, buffer);
+			//add merged items to pattern
+			int newLength = length + 1 + buffer.mergedCount;
+			ensureCapacity(newLength);
+			System.arraycopy(buffer.mergedItems, 0, pattern, length + 1, buffer.mergedCount);
+			mergedCount += buffer.mergedCount;
+			if(buffer.mergedCount > 0 && isSubsumed(newLength, itemSupport) == true) {
+				prunedCount++;
+				continue;
+			}
+			//items in conditional FP-tree have lower support than the pattern,
+			//so the pattern is closed
+			generate(newLength, itemSupport);
+			mine(newTree, newLength);
+		}
+	}
+	
+	/**
+	 * Mine an FP-tree which contains a single path.
+	 * Counts of nodes never increase from top to bottom of the path,
+	 * so pattern concatenated with nodes from node k to the top is closed
+	 * if node k is at the bottom or its count is greater than the count of the node below it,
+	 * and no closed pattern found before contains it with the same support.
+	 * @param tree  FP-tree which contains a single path
+	 * @param length  number of items in pattern, the suffix of the patterns of this tree
+	 */
+	private void mineSinglePath(FPTree tree, int length) {
+		int pathLength = 0;
+		for(int node = tree.getLastHeaderNode(); node != FPTree.ROOT; node = tree.getParent(node)) {
+			pathLength++;
+		}
+		buffer.ensureSinglePathCapacity(pathLength, 0);
+		int[] pathItems = buffer.pathItems;
+		int[] pathCounts = buffer.pathCounts;
+		int k = 0;
+		for(int node = tree.getLastHeaderNode(); node != FPTree.ROOT; node = tree.getParent(node)) {
+			pathItems[k] = tree.getItemId(tree.getItem(node));
+			pathCounts[k] = tree.getCount(node);
+			k++;
+		}
+		ensureCapacity(length + pathLength);
+		for(k = 0; k < pathLength; k++) {
+			if(k == 0 || pathCounts[k-1] < pathCounts[k]) {
+				//pattern concatenated with nodes from node k to the top
+				int newLength = length;
+				for(int j = k; j < pathLength; j++) {
+					pattern[newLength++] = pathItems[j];
+				}
+				if(isSubsumed(newLength, pathCounts[k]) == true) {
+					prunedCount++;
+				} else {
+					generate(newLength, pathCounts[k]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Check if a closed pattern found before contains the first items of pattern with the same support.
+	 * The sorted items are left in buffer sorted.
+	 * @param length  number of items
+	 * @param support  support of the items
+	 * @return true if the items are contained in a closed pattern with the same support
+	 */
+	private boolean isSubsumed(int length, int support) {
+		System.arraycopy(pattern, 0, sorted, 0, length);
+		Arrays.sort(sorted, 0, length);
+		return index.hasSuperset(sorted, length, support);
+	}
+	
+	/**
+	 * Generate a closed pattern checked by isSubsumed().
+	 * @param length  number of items
+	 * @param support
+	 */
+	private void generate(int length, int support) {
+		index.add(sorted, length, support);
+		for(int i = 0; i < length; i++) {
+			reversed[i] = sorted[length - 1 - i];
+		}
+		sink.accept(reversed, length, support);
+	}
+	
+	/**
+	 * Print statistics of pruning.
+	 */
+	public void printStatistics() {
+		System.out.println("Closed patterns: " + index.size()
+				+ " (branches pruned: " + prunedCount + ", items merged: " + mergedCount + ")");
+	}
+}
@@ -0,0 +1,172 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class for the index of closed patterns found so far, used for sub-itemset pruning.
+ * A pattern is put into a bucket keyed by (support, item) for each of its items,
+ * so the patterns which may contain a given pattern with the same support
+ * are all in the bucket of its least frequent item.
+ * Each pattern also has a 64-bit signature of its items to reject most candidates without a subset test.
+ */
+public class ClosedPatternIndex {
+	/**
+	 * items of all patterns, each pattern sorted in ascending order
+	 */
+	private final ChunkedIntArray items;
+	
+	/**
+	 * start of each pattern in items
+	 */
+	private int[] starts;
+	
+	/**
+	 * number of items of each pattern
+	 */
+	private int[] lengths;
+	
+	/**
+	 * signature of each pattern
+	 */
+	private long[] signatures;
+	
+	/**
+	 * number of patterns
+	 */
+	private int size;
+	
+	/**
+	 * number of items of all patterns
+	 */
+	private int itemCount;
+	
+	/**
+	 * patterns in each bucket, the first element is the number of patterns
+	 */
+	private final Map<Long, int[]> buckets;
+	
+	/**
+	 * Constructor.
+	 */
+	public ClosedPatternIndex() {
+		items = new ChunkedIntArray(1 << 10);
+		starts = new int[16];
+		lengths = new int[16];
+		signatures = new long[16];
+		size = 0;
+		itemCount = 0;
+		buckets = new HashMap<Long, int[]>();
+	}
+	
+	/**
+	 * Get number of patterns.
+	 * @return number of patterns
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Get key of a bucket.
+	 * @param support
+	 * @param item
+	 * @return key
+	 */
+	private static long key(int support, int item) {
+		return ((long) support << 32) | (item & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * Get signature of a pattern.
+	 * @param pattern  item ids
+	 * @param length  number of items
+	 * @return signature
+	 */
+	private static long signature(int[] pattern, int length) {
+		long signature = 0;
+		for(int i = 0; i < length; i++) {
+			signature |= 1L << (pattern[i] & 63);
+		}
+		return signature;
+	}
+	
+	/**
+	 * Check if a closed pattern found so far contains the given pattern and has the same support.
+	 * @param pattern  item ids sorted in ascending order
+	 * @param length  number of items
+	 * @param support  support of the pattern
+	 * @return true if such a closed pattern exists
+	 */
+	public boolean hasSuperset(int[] pattern, int length, int support) {
+		int[] bucket = buckets.get(key(support, pattern[length-1]));
+		if(bucket == null) {
+			return false;
+		}
+		long signature = signature(pattern, length);
+		for(int j = 1; j <= bucket[0]; j++) {
+			int p = bucket[j];
+			if(lengths[p] >= length && (signature & ~signatures[p]) == 0 && contains(p, pattern, length) == true) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Check if a pattern in the index contains the given pattern.
+	 * Both are sorted in ascending order, so they are merged.
+	 * @param p  pattern in the index
+	 * @param pattern  item ids sorted in ascending order
+	 * @param length  number of items
+	 * @return true if pattern p contains the given pattern
+	 */
+	private boolean contains(int p, int[] pattern, int length) {
+		int i = starts[p];
+		int end = starts[p] + lengths[p];
+		for(int j = 0; j < length; j++) {
+			while(i < end && items.get(i) < pattern[j]) {
+				i++;
+			}
+			if(i == end || items.get(i) != pattern[j]) {
+				return false;
+			}
+			i++;
+		}
+		return true;
+	}
+	
+	/**
+	 * Add a closed pattern.
+	 * @param pattern  item ids sorted in ascending order
+	 * @param length  number of items
+	 * @param support  support of the pattern
+	 */
+	public void add(int[] pattern, int length, int support) {
+		if(size == starts.length) {
+			starts = Arrays.copyOf(starts, size * 2);
+			lengths = Arrays.copyOf(lengths, size * 2);
+			signatures = Arrays.copyOf(signatures, size * 2);
+		}
+		items.ensureCapacity(itemCount + length);
+		for(int i = 0; i < length; i++) {
+			items.set(itemCount + i, pattern[i]);
+		}
+		starts[size] = itemCount;
+		lengths[size] = length;
+		signatures[size] = signature(pattern, length);
+		itemCount += length;
+		for(int i = 0; i < length; i++) {
+			long key = key(support, pattern[i]);
+			int[] bucket = buckets.get(key);
+			if(bucket == null) {
+				bucket = new int[4];
+				buckets.put(key, bucket);
+			} else if(bucket[0] + 1 == bucket.length) {
+				bucket = Arrays.copyOf(bucket, bucket.length * 2);
+				buckets.put(key, bucket);
+			}
+			bucket[++bucket[0]] = size;
+		}
+		size++;
+	}
+}
@@ -0,0 +1,57 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class for a pattern sink which keeps all patterns in memory.
+ */
+public class CollectingSink implements PatternSink {
+	/**
+	 * item ids of each pattern
+	 */
+	private final List<int[]> patterns = new ArrayList<int[]>();
+	
+	/**
+	 * support of each pattern
+	 */
+	private int[] supports = new int[16];
+	
+	@Override
+	public synchronized void accept(int[] items, int length, int support) {
+		if(patterns.size() == supports.length) {
+			supports = Arrays.copyOf(supports, supports.length * 2);
+		}
+		supports[patterns.size()] = support;
+		patterns.add(Arrays.copyOf(items, length));
+	}
+	
+	/**
+	 * Get number of patterns received.
+	 * @return number of patterns
+	 */
+	public synchronized int size() {
+		return patterns.size();
+	}
+	
+	/**
+	 * Get item ids of the i-th pattern, in descending order of item id.
+	 * @param i  index of the pattern
+	 * @return item ids
+	 */
+	public synchronized int[] getItems(int i) {
+		return patterns.get(i);
+	}
+	
+	/**
+	 * Get support of the i-th pattern.
+	 * @param i  index of the pattern
+	 * @return support
+	 */
+	public synchronized int getSupport(int i) {
+		return supports[i];
+	}
+	
+	@Override
+	public void close() {
+	}
+}
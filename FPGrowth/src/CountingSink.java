@@ -0,0 +1,28 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class for a pattern sink which only counts the patterns.
+ */
+public class CountingSink implements PatternSink {
+	/**
+	 * number of patterns
+	 */
+	private final LongAdder count = new LongAdder();
+	
+	@Override
+	public void accept(int[] items, int length, int support) {
+		count.increment();
+	}
+	
+	/**
+	 * Get number of patterns received.
+	 * @return number of patterns
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+	
+	@Override
+	public void close() {
+	}
+}
@@ -1,10 +1,5 @@
 import java.io.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 
 public class DataIO {
@@ -39,9 +34,59 @@ public class DataIO {
 	private String delimiter;
 	
 	/**
-	 * count of each item
+	 * item dictionary with count of each item
 	 */
-	private final Map<String, Integer> mapSingleItem;
+	private ItemDictionary dictionary;
+	
+	/**
+	 * encoded transactions of database, null until input file is read
+	 */
+	private TransactionStore store;
+	
+	/**
+	 * maximum bytes of transaction store in memory
+	 */
+	private long storeMemory;
+	
+	/**
+	 * directory of spilled transaction store, null for the default temp directory
+	 */
+	private File spillDirectory;
+	
+	/**
+	 * number of threads reading input file
+	 */
+	private int readThreads;
+	
+	/**
+	 * true if items are ranked in canonical order and transactions appended to input file are read
+	 */
+	private boolean incremental;
+	
+	/**
+	 * position in input file after the last transaction read
+	 */
+	private long fileEnd;
+	
+	/**
+	 * size of transaction store when the base FP-tree was last updated
+	 */
+	private long treeStoreSize;
+	
+	/**
+	 * number of transactions in the base FP-tree
+	 */
+	private int treeTransactionCount;
+	
+	/**
+	 * true if the dictionary comes from an FP-tree snapshot, and input file is never read
+	 */
+	private boolean snapshot;
+	
+	/**
+	 * constraints on patterns, whose excluded items are not inserted into the base FP-tree
+	 */
+	private PatternConstraints constraints;
 	
 	/**
 	 * Constructor.
@@ -53,7 +98,60 @@ public class DataIO {
 		this.inputFile = inputFile;
 		this.outputFile = outputFile;
 		this.minSupRatio = minSupRatio;
-		mapSingleItem = new HashMap<String, Integer>();
+		dictionary = new ItemDictionary();
+		storeMemory = Long.MAX_VALUE;
+		spillDirectory = null;
+		readThreads = 1;
+		incremental = false;
+		fileEnd = 0;
+		treeStoreSize = 0;
+		treeTransactionCount = 0;
+		snapshot = false;
+		constraints = PatternConstraints.NONE;
+	}
+	
+	/**
+	 * Set incremental mode, before input file is read.
+	 * Items are ranked in canonical order instead of descending order of support,
+	 * and later calls of readFile() read the transactions appended to input file.
+	 * @param incremental
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+	
+	/**
+	 * Set number of threads reading input file, before input file is read.
+	 * @param readThreads  number of threads
+	 */
+	public void setReadThreads(int readThreads) {
+		this.readThreads = readThreads;
+	}
+	
+	/**
+	 * Set memory limit of the transaction store, before input file is read.
+	 * @param storeMemory  maximum bytes of transaction store in memory
+	 * @param spillDirectory  directory of spilled transaction store, null for the default temp directory
+	 */
+	public void setStoreMemory(long storeMemory, File spillDirectory) {
+		this.storeMemory = storeMemory;
+		this.spillDirectory = spillDirectory;
+	}
+	
+	/**
+	 * Set constraints on patterns, before the base FP-tree is built.
+	 * @param constraints  constraints whose excluded items are not inserted
+	 */
+	public void setConstraints(PatternConstraints constraints) {
+		this.constraints = constraints;
+	}
+	
+	/**
+	 * Set output file name, before output file is opened.
+	 * @param outputFile  output file name
+	 */
+	public void setOutputFile(String outputFile) {
+		this.outputFile = outputFile;
 	}
 	
 	/**
@@ -64,6 +162,15 @@ public class DataIO {
 		this.minSupRatio = minSupRatio;
 	}
 	
+	/**
+	 * Set absolute minimum support, after input file is read.
+	 * Used in top-K mode, where minimum support is not given by user.
+	 * @param minSupport  absolute minimum support
+	 */
+	public void setMinSupport(int minSupport) {
+		this.minSupport = minSupport;
+	}
+	
 	/**
 	 * Get absolute minimum support.
 	 * @return minSupport
@@ -72,6 +179,15 @@ public class DataIO {
 		return minSupport;
 	}
 	
+	/**
+	 * Get absolute minimum support of a relative minimum support, after input file is read.
+	 * @param minSupRatio  minimum support threshold (%)
+	 * @return minSupRatio * transactionCount / 100, rounded up
+	 */
+	public int getMinSupport(float minSupRatio) {
+		return (int) Math.ceil(minSupRatio * transactionCount / 100);
+	}
+	
 	/**
 	 * Get number of all transactions.
 	 * @return transactionCount
@@ -80,6 +196,14 @@ public class DataIO {
 		return transactionCount;
 	}
 	
+	/**
+	 * Get position in input file after the last transaction read.
+	 * @return fileEnd
+	 */
+	public long getFileEnd() {
+		return fileEnd;
+	}
+	
 	/**
 	 * Get input file name.
 	 * @return input file name
@@ -88,6 +212,14 @@ public class DataIO {
 		return inputFile;
 	}
 	
+	/**
+	 * Get output file name.
+	 * @return output file name, null if no output file
+	 */
+	public String getOutputFile() {
+		return outputFile;
+	}
+	
 	/**
 	 * Get delimiter.
 	 * @return delimiter
@@ -97,78 +229,78 @@ public class DataIO {
 	}
 	
 	/**
-	 * Get a map of count of each single item in database.
-	 * @return mapSingleItem
+	 * Get the item dictionary with count of each single item in database.
+	 * @return dictionary
 	 */
-	public Map<String, Integer> getMapSingleItem() {
-		return mapSingleItem;
+	public ItemDictionary getDictionary() {
+		return dictionary;
 	}
 	
 	/**
-	 * Print count of each single item in database.
+	 * Get number of frequent items in database.
+	 * Frequent items have item ids 0, 1, ..., getFrequentItemCount()-1.
+	 * @return number of frequent items
 	 */
-	public void printSingleItemSet() {
-		for(Map.Entry<String, Integer> entry : mapSingleItem.entrySet()) {
-			System.out.println(entry.getKey() + ": " + entry.getValue());
-		}
+	public int getFrequentItemCount() {
+		return dictionary.getFrequentItemCount(minSupport);
 	}
 	
 	/**
-	 * find the delimiter in input file
-	 * @param line  one transaction
-	 * @return  delimiter
+	 * Print count of each single item in database.
 	 */
-	private String findDelimiter(String line) {
-		String d = null;
-		if(line.indexOf(",") > 0) {
-			d = ",";
-		} else if(line.indexOf(";") > 0) {
-			d = ";";
-		} else if(line.indexOf(" ") > 0) {
-			d = " ";
+	public void printSingleItemSet() {
+		for(int item = 0; item < dictionary.size(); item++) {
+			System.out.println(dictionary.getName(item) + ": " + dictionary.getSupport(item));
 		}
-		return d;
 	}
 	
 	/**
 	 * Read input file.
 	 * Scan database once,
 	 * get number of all transactions, 
-	 * get count of each single item.
+	 * get count of each single item,
+	 * rank items by support in the item dictionary,
+	 * and keep the encoded transactions in the transaction store.
+	 * If the file has been read, or an FP-tree snapshot is used, only the minimum support is set again,
+	 * and in incremental mode, the transactions appended to the file are read.
 	 */
 	public void readFile() {
+		if(snapshot == true) {
+			System.out.println("Read data >>>\tSnapshot!");
+			minSupport = getMinSupport(minSupRatio);
+			return;
+		}
+		if(store != null && (incremental == false || new File(inputFile).length() <= fileEnd)) {
+			System.out.println("Read data >>>\tCached!");
+			minSupport = getMinSupport(minSupRatio);
+			return;
+		}
+		if(store != null) {
+			readAppendedTransactions();
+			return;
+		}
 		try {
 			File file = new File(inputFile);
-			BufferedReader reader = new BufferedReader(new FileReader(file));
 			System.out.print("Read data >>>\t");
-			String line;
-			while((line = reader.readLine()) != null) {
-				if(line.isEmpty() == true) {
-					//if the line is empty
-					continue;
-				}
-				if(transactionCount == 0) {
-					//find delimiter when reading first transaction
-					delimiter = findDelimiter(line);
-				}
-				
-				String[] transactionString = line.split(delimiter);
-				for(String item : transactionString) {
-					if(mapSingleItem.get(item) == null) {
-						//no such item, add one
-						mapSingleItem.put(item, 1);
-					}
-					else {
-						//has item, increase its count by 1
-						mapSingleItem.put(item, mapSingleItem.get(item)+1);
-					}
-				}				
-				transactionCount++;
-			}			
-			reader.close();
+			store = new TransactionStore(storeMemory, spillDirectory);
+			//count items and encode transactions, chunks of file in parallel
+			TransactionTokenizer tokenizer = new TransactionTokenizer(file, readThreads, storeMemory, spillDirectory);
+			transactionCount = tokenizer.read(dictionary, store);
+			delimiter = tokenizer.getDelimiter();
+			fileEnd = tokenizer.getEnd();
+			if(incremental == true) {
+				//encode items into ids which never change
+				dictionary.rankByCode();
+			} else {
+				//encode items into ids in descending order of support
+				dictionary.rankBySupport();
+			}
 			System.out.println("Complete!");
+			if(store.getSpilledPages() > 0) {
+				System.out.println("Transaction store: " + store.getSpilledPages() + " pages spilled to disk");
+			}
 			//set minimum support
-			minSupport = (int) Math.ceil(minSupRatio * transactionCount / 100);	
+			minSupport = getMinSupport(minSupRatio);	
 		} catch(FileNotFoundException e) {
 			System.out.println("No such file!");
 			e.printStackTrace();
@@ -177,6 +309,57 @@ public class DataIO {
 		}		
 	}
 	
+	/**
+	 * Read the transactions appended to input file since it was last read,
+	 * add them to the transaction store and count their items.
+	 * Called by method readFile() in incremental mode.
+	 */
+	private void readAppendedTransactions() {
+		try {
+			System.out.print("Read data >>>\t");
+			TransactionTokenizer tokenizer = new TransactionTokenizer(new File(inputFile), readThreads, storeMemory, spillDirectory);
+			int appendedCount = tokenizer.read(dictionary, store, fileEnd);
+			delimiter = tokenizer.getDelimiter();
+			fileEnd = tokenizer.getEnd();
+			transactionCount += appendedCount;
+			dictionary.rankByCode();
+			System.out.println("Appended " + appendedCount + " transactions!");
+			minSupport = getMinSupport(minSupRatio);
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Use the item dictionary and number of transactions of an FP-tree snapshot, 
+	 * instead of reading input file.
+	 * Only the items of the tree are in the dictionary, so the tree cannot be built again.
+	 * A snapshot in canonical order has all items and covers input file up to its end position,
+	 * so in incremental mode only the transactions appended after it are read.
+	 * @param treeSnapshot  the snapshot loaded
+	 */
+	public void useSnapshot(TreeSnapshot treeSnapshot) {
+		dictionary = treeSnapshot.getDictionary();
+		transactionCount = treeSnapshot.getTransactionCount();
+		if(incremental == true && treeSnapshot.isCanonical() == true) {
+			//the store holds only the transactions not yet in the tree
+			fileEnd = treeSnapshot.getFileEnd();
+			store = new TransactionStore(storeMemory, spillDirectory);
+			treeStoreSize = 0;
+			treeTransactionCount = 0;
+		} else {
+			snapshot = true;
+		}
+	}
+	
+	/**
+	 * Check if the dictionary comes from an FP-tree snapshot.
+	 * @return true if input file is never read
+	 */
+	public boolean isSnapshot() {
+		return snapshot;
+	}
+	
 	/**
 	 * Print absolute minimum support.
 	 */
@@ -185,72 +368,230 @@ public class DataIO {
 	}
 	
 	/**
-	 * create the base FP-tree by scanning transactions in database
+	 * Encode a transaction of transaction store into the item ids of its frequent items, 
+	 * without the items excluded by constraints.
+	 * Item ids are ranked by support, 
+	 * so sorting ids is sorting items by descending order of support.
+	 * @param codes  codes of the items of the transaction
+	 * @param count  number of codes
+	 * @param transaction  buffer of at least count items, receiving the sorted item ids
+	 * @return number of items in transaction
+	 */
+	private int encodeTransaction(int[] codes, int count, int[] transaction) {
+		int length = 0;
+		for(int i = 0; i < count; i++) {
+			int itemId = dictionary.getItem(codes[i]);
+			if(dictionary.getSupport(itemId) >= minSupport && constraints.isExcluded(itemId) == false) {
+				//if item is frequent and not excluded, add it to transaction
+				//otherwise, prune
+				transaction[length++] = itemId;
+			}
+		}
+		Arrays.sort(transaction, 0, length);
+		return length;
+	}
+	
+	/**
+	 * create the base FP-tree by scanning transactions in transaction store
 	 * @param fpTree the created FP-tree
 	 */
 	public void createTreeFromData(FPTree fpTree) {		
-		try {
-			File file = new File(inputFile);
-			BufferedReader reader = new BufferedReader(new FileReader(file));
-			System.out.print("Create FP-tree >>>\t");
-			String line;
-			while((line = reader.readLine()) != null) {
-				if(line.isEmpty() == true) {
-					//if the line is empty
-					continue;
-				}
-				String[] transactionString = line.split(delimiter);
-				List<String> transaction = new ArrayList<String>();
-				for(String item : transactionString) {
-					if(mapSingleItem.get(item) >= minSupport) {
-						//if item is frequent, add it to transaction
-						//otherwise, prune
-						transaction.add(item);
-					}
-				}
-				//sort items by descending order of support
-				Collections.sort(transaction, new Comparator<String>() {
-					@Override
-					public int compare(String item1, String item2) { 
-						int compare = mapSingleItem.get(item2) - mapSingleItem.get(item1);
-						// if same support, sort in lexicographical order
-						if(compare == 0){ 
-							return item1.compareTo(item2);
-						}
-						return compare;
-					}
-				});
-//				System.out.println(transaction);
-				//add the sorted transaction to the FP-tree
-				fpTree.addTransaction(transaction);
+		System.out.print("Create FP-tree >>>\t");
+		TransactionStore.Reader reader = store.openReader();
+		int[] transaction = new int[16];
+		while(reader.next() == true) {
+			int[] codes = reader.getCodes();
+			int count = reader.getLength();
+			if(count > transaction.length) {
+				transaction = new int[count];
 			}
-			reader.close();
-			System.out.println("Complete!");
-			System.out.print("\n");				
-		} catch(FileNotFoundException e) {
-			System.out.println("No such file!");
-			e.printStackTrace();
-		} catch(IOException e) {
-			e.printStackTrace();
-		}		
+			int length = encodeTransaction(codes, count, transaction);
+			//add the sorted transaction to the FP-tree
+			fpTree.addTransaction(transaction, length);
+		}
+		System.out.println("Complete!");
+		System.out.print("\n");				
 	}
 	
 	/**
-	 * Write frequent patterns into output file.
+	 * Build an FP-tree from a sample of transactions in transaction store,
+	 * taken at a fixed stride over the whole database, to estimate how well the base FP-tree compresses.
+	 * @param fpTree  FP-tree of the frequent items
+	 * @param sampleSize  maximum number of transactions sampled
+	 * @return number of transactions sampled
 	 */
-	public void writeFile(List<String> result) {
-		try {
-			File file = new File(outputFile);
-			BufferedWriter writer = new BufferedWriter(new FileWriter(file));
-			for(String each : result) {
-				writer.write(each + "\n");
+	public int createTreeFromSample(FPTree fpTree, int sampleSize) {
+		int stride = Math.max(1, (transactionCount + sampleSize - 1) / sampleSize);
+		TransactionStore.Reader reader = store.openReader();
+		int[] transaction = new int[16];
+		int tid = 0;
+		int sampleCount = 0;
+		while(reader.next() == true) {
+			if(tid++ % stride != 0) {
+				continue;
+			}
+			int[] codes = reader.getCodes();
+			int count = reader.getLength();
+			if(count > transaction.length) {
+				transaction = new int[count];
+			}
+			int length = encodeTransaction(codes, count, transaction);
+			fpTree.addTransaction(transaction, length);
+			sampleCount++;
+		}
+		return sampleCount;
+	}
+	
+	/**
+	 * Write the projected databases of frequent items, in out-of-core mode.
+	 * Each transaction, with its frequent items only, goes to the partition of its least frequent item.
+	 * @param partitions  store of a partition for each frequent item
+	 */
+	public void createPartitions(PartitionStore partitions) {
+		System.out.print("Create partitions >>>\t");
+		TransactionStore.Reader reader = store.openReader();
+		int[] transaction = new int[16];
+		while(reader.next() == true) {
+			int[] codes = reader.getCodes();
+			int count = reader.getLength();
+			if(count > transaction.length) {
+				transaction = new int[count];
+			}
+			int length = encodeTransaction(codes, count, transaction);
+			if(length > 0) {
+				//the least frequent item has the largest id
+				partitions.add(transaction[length-1], transaction, 0, length);
+			}
+		}
+		System.out.println("Complete!");
+		if(partitions.getSpilledBytes() > 0) {
+			System.out.println("Partitions: " + partitions.getSpilledBytes() / (1024 * 1024) + "MB spilled to disk");
+		}
+		System.out.print("\n");
+	}
+	
+	/**
+	 * Create the vertical database: the tidset of each frequent item.
+	 * @param miner  Eclat miner receiving each transaction with its frequent items
+	 */
+	public void createVerticalDatabase(EclatMiner miner) {
+		System.out.print("Create tidsets >>>\t");
+		TransactionStore.Reader reader = store.openReader();
+		int[] transaction = new int[16];
+		int tid = 0;
+		while(reader.next() == true) {
+			int[] codes = reader.getCodes();
+			int count = reader.getLength();
+			if(count > transaction.length) {
+				transaction = new int[count];
+			}
+			int length = encodeTransaction(codes, count, transaction);
+			miner.addTransaction(tid++, transaction, length);
+		}
+		System.out.println("Complete!");
+		System.out.print("\n");
+	}
+	
+	/**
+	 * Create the database of LCM: each transaction with its frequent items sorted by support.
+	 * @param miner  LCM miner receiving each transaction, which merges identical ones
+	 */
+	public void createArrayDatabase(LcmMiner miner) {
+		System.out.print("Create transaction arrays >>>\t");
+		TransactionStore.Reader reader = store.openReader();
+		int[] transaction = new int[16];
+		while(reader.next() == true) {
+			int[] codes = reader.getCodes();
+			int count = reader.getLength();
+			if(count > transaction.length) {
+				transaction = new int[count];
+			}
+			int length = encodeTransaction(codes, count, transaction);
+			miner.addTransaction(transaction, length);
+		}
+		System.out.println("Complete!");
+		System.out.print("\n");
+	}
+	
+	/**
+	 * Write the group-dependent shards of a PFP job.
+	 * Each transaction, with its frequent items only sorted by support, is added to the job,
+	 * which writes its prefixes to the shards of the groups of its items.
+	 * @param job  PFP job
+	 */
+	public void createShards(PFPJob job) {
+		System.out.print("Create shards >>>\t");
+		TransactionStore.Reader reader = store.openReader();
+		int[] transaction = new int[16];
+		while(reader.next() == true) {
+			int[] codes = reader.getCodes();
+			int count = reader.getLength();
+			if(count > transaction.length) {
+				transaction = new int[count];
+			}
+			int length = encodeTransaction(codes, count, transaction);
+			if(length > 0) {
+				job.addTransaction(transaction, length);
+			}
+		}
+		System.out.println("Complete!");
+		System.out.print("\n");
+	}
+	
+	/**
+	 * Insert the transactions not yet in the base FP-tree, in incremental mode.
+	 * All items are inserted in canonical order, no matter whether they are frequent,
+	 * so the tree never needs to be rebuilt when supports change.
+	 * @param fpTree  the base FP-tree, with an item for each item in dictionary
+	 * @return number of transactions inserted
+	 */
+	public int updateTree(FPTree fpTree) {
+		System.out.print("Update FP-tree >>>\t");
+		TransactionStore.Reader reader = store.openReader(treeStoreSize, treeTransactionCount);
+		int[] transaction = new int[16];
+		int insertedCount = 0;
+		while(reader.next() == true) {
+			int[] codes = reader.getCodes();
+			int length = reader.getLength();
+			if(length > transaction.length) {
+				transaction = new int[length];
 			}
-			writer.flush();
-			writer.close();
+			for(int i = 0; i < length; i++) {
+				transaction[i] = dictionary.getItem(codes[i]);
+			}
+			Arrays.sort(transaction, 0, length);
+			fpTree.addTransaction(transaction, length);
+			insertedCount++;
+		}
+		treeStoreSize = store.getSize();
+		treeTransactionCount = store.getTransactionCount();
+		System.out.println(insertedCount + " transactions inserted!");
+		System.out.print("\n");
+		return insertedCount;
+	}
+	
+	/**
+	 * Open output file to write frequent patterns while mining.
+	 * @return a sink writing patterns into output file, or null if the file cannot be opened
+	 */
+	public TextSink openOutputFile() {
+		try {
+			return new TextSink(outputFile, dictionary);
 		} catch(IOException e) {
+			System.out.println("Cannot open output file!");
 			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Release the transaction store.
+	 */
+	public void close() {
+		if(store != null) {
+			store.close();
+			store = null;
 		}
-		
 	}
 
 }
@@ -0,0 +1,357 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class for mining frequent patterns on the vertical database, in the way of Eclat and dEclat.
+ * Each frequent item has the set of transactions containing it, its tidset,
+ * as a bitset holding only the words from its first to its last transaction,
+ * so sparse items take little memory and set operations skip the words of no transaction.
+ * Patterns are mined depth first by equivalence classes: the members of a class share a prefix,
+ * and the class of member PX holds PXY for each member PY after PX, whose tidset is t(PX) & t(PY).
+ * When the members of a class cover more than half of the transactions of its prefix on average,
+ * the class switches to diffsets, as dEclat: d(PXY) = t(PX) - t(PY), sup(PXY) = sup(PX) - |d(PXY)|,
+ * and deeper classes go on with d(PXY) = d(PY) - d(PX), which are smaller than tidsets on dense data.
+ * Members are ordered from the least frequent item, so a pattern is built in descending order of item id,
+ * the same as FPGrowth, and the same pattern sink receives it.
+ * In parallel mode, the classes of the items are mined by fork-join tasks.
+ */
+public class EclatMiner {
+	/**
+	 * a class switches to diffsets when its members cover more than this ratio of the transactions of its prefix
+	 */
+	private static final double DIFFSET_DENSITY = 0.5;
+	
+	/**
+	 * receive frequent patterns
+	 */
+	private final PatternSink sink;
+	
+	/**
+	 * absolute minimum support
+	 */
+	private final int minSupport;
+	
+	/**
+	 * number of frequent items in database
+	 */
+	private final int itemCount;
+	
+	/**
+	 * words of the tidset of each item being built, from its first word
+	 */
+	private final long[][] itemWords;
+	
+	/**
+	 * index of the first word of the tidset of each item being built
+	 */
+	private final int[] itemFirstWords;
+	
+	/**
+	 * number of words of the tidset of each item being built
+	 */
+	private final int[] itemWordCounts;
+	
+	/**
+	 * number of tidsets and diffsets computed
+	 */
+	private final AtomicLong setCount = new AtomicLong();
+	
+	/**
+	 * number of classes switched to diffsets
+	 */
+	private final AtomicLong diffsetClassCount = new AtomicLong();
+	
+	/**
+	 * number of words of the tidsets of all items
+	 */
+	private long itemWordTotal;
+	
+	/**
+	 * Constructor.
+	 * @param sink  receive frequent patterns
+	 * @param minSupport  absolute minimum support
+	 * @param itemCount  number of frequent items in database
+	 */
+	public EclatMiner(PatternSink sink, int minSupport, int itemCount) {
+		this.sink = sink;
+		this.minSupport = minSupport;
+		this.itemCount = itemCount;
+		itemWords = new long[itemCount][];
+		itemFirstWords = new int[itemCount];
+		itemWordCounts = new int[itemCount];
+		itemWordTotal = 0;
+	}
+	
+	/**
+	 * Add a transaction to the tidsets of its items.
+	 * Transactions must be added in ascending order of tid.
+	 * @param tid  index of the transaction in database
+	 * @param items  frequent items of the transaction
+	 * @param length  number of items
+	 */
+	public void addTransaction(int tid, int[] items, int length) {
+		int word = tid >>> 6;
+		for(int i = 0; i < length; i++) {
+			int item = items[i];
+			long[] words = itemWords[item];
+			if(words == null) {
+				words = new long[4];
+				itemWords[item] = words;
+				itemFirstWords[item] = word;
+			}
+			int index = word - itemFirstWords[item];
+			if(index >= words.length) {
+				words = Arrays.copyOf(words, Math.max(words.length * 2, index + 1));
+				itemWords[item] = words;
+			}
+			words[index] |= 1L << tid;
+			itemWordCounts[item] = index + 1;
+		}
+	}
+	
+	/**
+	 * Mine all frequent patterns.
+	 * @param pool  fork-join pool in parallel mode, null to mine in this thread
+	 */
+	public void mine(ForkJoinPool pool) {
+		//members of the first class, from the least frequent item
+		List<Member> members = new ArrayList<Member>();
+		for(int item = itemCount-1; item >= 0; item--) {
+			if(itemWords[item] == null) {
+				continue;
+			}
+			long[] words = Arrays.copyOf(itemWords[item], itemWordCounts[item]);
+			itemWordTotal += words.length;
+			Member member = new Member(item, new Bitset(words, itemFirstWords[item]));
+			member.support = member.set.cardinality();
+			if(member.support > 0 && member.support >= minSupport) {
+				members.add(member);
+			}
+			itemWords[item] = null;
+		}
+		Member[] first = members.toArray(new Member[members.size()]);
+		if(pool == null) {
+			int[] pattern = new int[itemCount];
+			for(int i = 0; i < first.length; i++) {
+				mineMember(first, i, false, pattern, 0);
+			}
+			return;
+		}
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected void compute() {
+				List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+				for(int i = 0; i < first.length; i++) {
+					int index = i;
+					tasks.add(new RecursiveAction() {
+						private static final long serialVersionUID = 1L;
+						@Override
+						protected void compute() {
+							mineMember(first, index, false, new int[itemCount], 0);
+						}
+					});
+				}
+				ForkJoinTask.invokeAll(tasks);
+			}
+		});
+	}
+	
+	/**
+	 * Generate the pattern of a member of a class, and mine the class of the member.
+	 * @param members  members of the class
+	 * @param index  index of the member
+	 * @param isDiffset  true if the sets of the members are diffsets, false if tidsets
+	 * @param pattern  items of the prefix of the class, in descending order of item id
+	 * @param depth  number of items of the prefix
+	 */
+	private void mineMember(Member[] members, int index, boolean isDiffset, int[] pattern, int depth) {
+		Member member = members[index];
+		pattern[depth] = member.item;
+		sink.accept(pattern, depth + 1, member.support);
+		//the class of member, of the members after it
+		Member[] children = new Member[members.length - index - 1];
+		int childCount = 0;
+		long supportTotal = 0;
+		for(int j = index + 1; j < members.length; j++) {
+			Member other = members[j];
+			Member child = new Member(other.item, null);
+			if(isDiffset == true) {
+				//d(PXY) = d(PY) - d(PX)
+				child.set = other.set.andNot(member.set);
+				child.support = member.support - child.set.cardinality();
+			} else {
+				//t(PXY) = t(PX) & t(PY)
+				child.set = member.set.and(other.set);
+				child.support = child.set.cardinality();
+			}
+			setCount.incrementAndGet();
+			if(child.support > 0 && child.support >= minSupport) {
+				children[childCount++] = child;
+				supportTotal += child.support;
+			}
+		}
+		if(childCount == 0) {
+			return;
+		}
+		boolean isChildDiffset = isDiffset;
+		if(isDiffset == false && supportTotal > DIFFSET_DENSITY * childCount * member.support) {
+			//dense class: d(PXY) = t(PX) - t(PXY) is smaller than t(PXY)
+			for(int j = 0; j < childCount; j++) {
+				children[j].set = member.set.andNot(children[j].set);
+			}
+			isChildDiffset = true;
+			diffsetClassCount.incrementAndGet();
+		}
+		if(childCount < children.length) {
+			children = Arrays.copyOf(children, childCount);
+		}
+		for(int j = 0; j < childCount; j++) {
+			mineMember(children, j, isChildDiffset, pattern, depth + 1);
+		}
+	}
+	
+	/**
+	 * Print statistics of mining.
+	 */
+	public void printStatistics() {
+		System.out.println("Eclat: " + itemWordTotal * 8 / 1024 + "KB of item bitsets, " + setCount.get()
+				+ " tidsets and diffsets computed, " + diffsetClassCount.get() + " classes switched to diffsets");
+	}
+	
+	/**
+	 * Class for a member of an equivalence class: the last item of its pattern,
+	 * and the tidset or diffset of its pattern.
+	 */
+	private static class Member {
+		/**
+		 * last item of the pattern
+		 */
+		private final int item;
+		
+		/**
+		 * tidset or diffset of the pattern
+		 */
+		private Bitset set;
+		
+		/**
+		 * support of the pattern
+		 */
+		private int support;
+		
+		/**
+		 * Constructor.
+		 * @param item  last item of the pattern
+		 * @param set  tidset or diffset of the pattern
+		 */
+		private Member(int item, Bitset set) {
+			this.item = item;
+			this.set = set;
+		}
+	}
+	
+	/**
+	 * Class for a set of transactions as a bitset,
+	 * which holds only the words from its first word with a set bit to its last one.
+	 */
+	private static class Bitset {
+		/**
+		 * empty set
+		 */
+		private static final Bitset EMPTY = new Bitset(new long[0], 0);
+		
+		/**
+		 * words of the bitset, bit t of word w is transaction 64 * (first + w) + t
+		 */
+		private final long[] words;
+		
+		/**
+		 * index of the first word
+		 */
+		private final int first;
+		
+		/**
+		 * Constructor.
+		 * @param words  words of the bitset
+		 * @param first  index of the first word
+		 */
+		private Bitset(long[] words, int first) {
+			this.words = words;
+			this.first = first;
+		}
+		
+		/**
+		 * Get number of transactions in the set.
+		 * @return number of set bits
+		 */
+		private int cardinality() {
+			int count = 0;
+			for(long word : words) {
+				count += Long.bitCount(word);
+			}
+			return count;
+		}
+		
+		/**
+		 * Get the intersection of this set and another one.
+		 * @param other
+		 * @return this & other
+		 */
+		private Bitset and(Bitset other) {
+			int from = Math.max(first, other.first);
+			int to = Math.min(first + words.length, other.first + other.words.length);
+			if(from >= to) {
+				return EMPTY;
+			}
+			long[] result = new long[to - from];
+			for(int w = from; w < to; w++) {
+				result[w - from] = words[w - first] & other.words[w - other.first];
+			}
+			return trim(result, from);
+		}
+		
+		/**
+		 * Get the difference of this set and another one.
+		 * @param other
+		 * @return this & ~other
+		 */
+		private Bitset andNot(Bitset other) {
+			long[] result = words.clone();
+			int from = Math.max(first, other.first);
+			int to = Math.min(first + words.length, other.first + other.words.length);
+			for(int w = from; w < to; w++) {
+				result[w - first] &= ~other.words[w - other.first];
+			}
+			return trim(result, first);
+		}
+		
+		/**
+		 * Create a bitset without the zero words at both ends.
+		 * @param words
+		 * @param first  index of the first word
+		 * @return the bitset
+		 */
+		private static Bitset trim(long[] words, int first) {
+			int from = 0;
+			int to = words.length;
+			while(from < to && words[from] == 0) {
+				from++;
+			}
+			while(to > from && words[to-1] == 0) {
+				to--;
+			}
+			if(from == to) {
+				return EMPTY;
+			}
+			if(from == 0 && to == words.length) {
+				return new Bitset(words, first);
+			}
+			return new Bitset(Arrays.copyOfRange(words, from, to), first + from);
+		}
+	}
+}
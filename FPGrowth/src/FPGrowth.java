@@ -1,5 +1,9 @@
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Main-Class for launching the program.
@@ -38,16 +42,143 @@ public class FPGrowth {
 	public Scanner input;
 	
 	/**
-	 * store frequent patterns to output file 
+	 * command line options
 	 */
-	private List<String> result = new ArrayList<String>();
+	private MiningOptions options = new MiningOptions();
+	
+	/**
+	 * fork-join pool in parallel mode, null in sequential mode
+	 */
+	private ForkJoinPool pool;
+	
+	/**
+	 * buffers of each mining thread
+	 */
+	private final ThreadLocal<MiningBuffer> buffers = new ThreadLocal<MiningBuffer>() {
+		@Override
+		protected MiningBuffer initialValue() {
+			return new MiningBuffer();
+		}
+	};
+	
+	/**
+	 * receive frequent patterns while mining
+	 */
+	private PatternSink sink;
+	
+	/**
+	 * number of patterns with the highest support to be mined, 0 to mine by minimum support
+	 */
+	private int topK;
+	
+	/**
+	 * keep the top-K patterns while mining, null if not in top-K mode
+	 */
+	private TopKSink topKSink;
+	
+	/**
+	 * the base FP-tree kept across runs, null if not built
+	 */
+	private FPTree baseTree;
+	
+	/**
+	 * absolute minimum support the base FP-tree was built with
+	 */
+	private int baseTreeMinSupport;
+	
+	/**
+	 * true if the base FP-tree has been saved to the snapshot file of options in this session
+	 */
+	private boolean isTreeSaved;
+	
+	/**
+	 * constraints on the patterns pushed into FP-growth
+	 */
+	private PatternConstraints constraints = PatternConstraints.NONE;
 	
 	/**
 	 * Initialize data input and output.
 	 */
 	private void init() {
 		dataIO = new DataIO(inputFile, outputFile, minSupRatio);
-		result.clear();
+		dataIO.setReadThreads(options.getReadThreads());
+		dataIO.setIncremental(options.isIncremental());
+		if(options.getStoreMemory() > 0 || options.getSpillDirectory() != null) {
+			long storeMemory = options.getStoreMemory() > 0 ? options.getStoreMemory() * 1024L * 1024L : Long.MAX_VALUE;
+			File spillDirectory = options.getSpillDirectory() == null ? null : new File(options.getSpillDirectory());
+			dataIO.setStoreMemory(storeMemory, spillDirectory);
+		}
+		if(options.getLoadTree() != null) {
+			loadBaseTree();
+		}
+	}
+	
+	/**
+	 * Load the base FP-tree from a snapshot file, instead of reading input file and building the tree.
+	 * The tree is reused by all runs, as the base FP-tree built at the minimum support of the snapshot.
+	 * In incremental mode, the snapshot must be saved in incremental mode, and its tree is updated 
+	 * with the transactions appended to input file since it was saved.
+	 */
+	private void loadBaseTree() {
+		System.out.print("Load FP-tree >>>\t");
+		long startTime = System.currentTimeMillis();
+		TreeSnapshot snapshot;
+		try {
+			snapshot = TreeSnapshot.load(options.getLoadTree());
+		} catch(IOException e) {
+			System.out.println("Cannot load FP-tree snapshot!");
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(snapshot.isCanonical() != options.isIncremental()) {
+			//item ids of a tree ranked by support change when transactions are appended
+			System.out.println(snapshot.isCanonical() == true ? "The FP-tree snapshot was saved with --incremental!" 
+					: "The FP-tree snapshot was not saved with --incremental!");
+			System.exit(1);
+			return;
+		}
+		if(snapshot.isCanonical() == true && new File(inputFile).length() < snapshot.getFileEnd()) {
+			System.out.println("Input file is shorter than when the FP-tree snapshot was saved!");
+			System.exit(1);
+			return;
+		}
+		dataIO.useSnapshot(snapshot);
+		baseTree = snapshot.getTree();
+		baseTreeMinSupport = snapshot.getMinSupport();
+		System.out.println("Complete! " + baseTree.getNodeCount() + " nodes, " + baseTree.getItemCount() + " items, " 
+				+ (System.currentTimeMillis() - startTime) + "ms");
+		if(snapshot.isCanonical() == true) {
+			System.out.println("Snapshot: " + snapshot.getTransactionCount() + " transactions, canonical order, " 
+					+ snapshot.getFileEnd() + " bytes of input file\n");
+		} else {
+			System.out.println("Snapshot: " + snapshot.getTransactionCount() + " transactions, Min_Sup = " + baseTreeMinSupport + "\n");
+		}
+	}
+	
+	/**
+	 * Save the base FP-tree just built or updated to the snapshot file of options.
+	 * In incremental mode, the tree has all items in canonical order, 
+	 * and covers input file up to the last transaction read.
+	 * @param tree  the base FP-tree, with header list created
+	 */
+	private void saveBaseTree(FPTree tree) {
+		System.out.print("Save FP-tree >>>\t");
+		long startTime = System.currentTimeMillis();
+		try {
+			long size;
+			if(options.isIncremental() == true) {
+				size = TreeSnapshot.save(options.getSaveTree(), tree, dataIO.getDictionary(), 
+						dataIO.getTransactionCount(), 0, dataIO.getFileEnd());
+			} else {
+				size = TreeSnapshot.save(options.getSaveTree(), tree, dataIO.getDictionary(), 
+						dataIO.getTransactionCount(), baseTreeMinSupport, -1);
+			}
+			System.out.println("Complete! " + size / 1024 + "KB, " + (System.currentTimeMillis() - startTime) + "ms\n");
+		} catch(IOException e) {
+			System.out.println("Cannot save FP-tree snapshot!");
+			e.printStackTrace();
+		}
 	}
 	
 	
@@ -72,8 +203,14 @@ public class FPGrowth {
 		
 		System.out.println("Welcome to FP-Growth >>>>>>\n");
 		
-		System.out.print("Please enter the INPUT file name: ");		
-		inputFile = input.next();
+		//the input file is not read if the FP-tree is loaded from a snapshot, 
+		//except for the transactions appended to it in incremental mode
+		if(options.getLoadTree() != null && options.isIncremental() == false) {
+			inputFile = options.getLoadTree();
+		} else {
+			System.out.print("Please enter the INPUT file name: ");		
+			inputFile = input.next();
+		}
 		boolean isFile = new File(inputFile).isFile();
 		while(isFile == false) {
 			System.out.println("The input is not a valid file!");
@@ -82,13 +219,19 @@ public class FPGrowth {
 			isFile = new File(inputFile).isFile();
 		}
 		
-		System.out.print("Please enter the RELATIVE MINIMUM SUPPORT (%), range [0-100]: ");		
-		boolean isValidMinSup = false;
-		try {
-			minSupRatio = input.nextFloat();
-			isValidMinSup = checkMinSupRatio(minSupRatio);
-		} catch(InputMismatchException e) {
-			isValidMinSup = false;
+		//no minimum support in top-K mode, minimum supports are given on command line in sweep mode
+		boolean isValidMinSup = topK > 0 || options.getSweep() != null;
+		if(options.getSweep() != null) {
+			minSupRatio = options.getSweep()[0];
+		}
+		if(isValidMinSup == false) {
+			System.out.print("Please enter the RELATIVE MINIMUM SUPPORT (%), range [0-100]: ");		
+			try {
+				minSupRatio = input.nextFloat();
+				isValidMinSup = checkMinSupRatio(minSupRatio);
+			} catch(InputMismatchException e) {
+				isValidMinSup = false;
+			}
 		}
 		while(isValidMinSup == false) {
 			input.nextLine();
@@ -103,162 +246,820 @@ public class FPGrowth {
 			}
 		}
 		
-		System.out.print("Please enter the OUTPUT file name: ");		
-		outputFile = input.next();
+		if(options.isCountOnly() == false) {
+			System.out.print("Please enter the OUTPUT file name: ");		
+			outputFile = input.next();
+		}
 		
 		System.out.print("\n");				
 		
 		//initialize data input and output.
 		init();
-			
+	
 	}
 	
 	/**
-	 * Display the frequent pattern in screen,
-	 * and store it to result list.
-	 * @param itemset
+	 * Pass the frequent pattern to the pattern sink,
+	 * which displays it in screen and writes it to output file.
+	 * @param itemset  item ids of the pattern, in descending order of item id
 	 * @param support
 	 */
-	private void generateFP(String[] itemset, int support) {
-		String res = new String();
-		for(int i = 0; i < itemset.length; i++) {
-			System.out.print(itemset[i] + " ");
-			res += itemset[i] + " ";
-		}
-		System.out.println(": " + support);
-		result.add(res + ": " + support);
+	private void generateFP(int[] itemset, int support) {
+		sink.accept(itemset, itemset.length, support);
 	}	
 	
 	/**
 	 * Handle the single path situation of the FP-tree.
 	 * For each combinations of the nodes in the path, 
 	 * generate the frequent patterns concatenated with given suffix.
-	 * Called by method fpgrowth().
-	 * @param node
+	 * Combinations are enumerated in depth first order with an explicit stack,
+	 * reusing the buffers of the mining thread, so no array is created per pattern.
+	 * If the path is longer than the summary length of options, 
+	 * only the closed or maximal patterns of the path may be generated.
+	 * Called by method pushTree().
+	 * @param tree  FP-tree which contains a single path
 	 * @param suffix  suffix of the patterns generated by this FP-tree
 	 * @param suffixCount  the minimum count of nodes in suffix
 	 */
-	private void handleSinglePath(FPNode node, String[] suffix, int suffixCount) {
-		if(node.item == null) {
-			//if root
-			return;
+	private void handleSinglePath(FPTree tree, int[] suffix, int suffixCount) {
+		MiningBuffer buffer = buffers.get();
+		//collect items and counts of nodes in the path, from bottom to top
+		int length = 0;
+		for(int node = tree.getLastHeaderNode(); node != FPTree.ROOT; node = tree.getParent(node)) {
+			length++;
+		}
+		buffer.ensureSinglePathCapacity(length, suffix.length + length);
+		int[] pathItems = buffer.pathItems;
+		int[] pathCounts = buffer.pathCounts;
+		int k = 0;
+		for(int node = tree.getLastHeaderNode(); node != FPTree.ROOT; node = tree.getParent(node)) {
+			pathItems[k] = tree.getItemId(tree.getItem(node));
+			pathCounts[k] = tree.getCount(node);
+			k++;
 		}
+		//pattern = suffix concatenated with chosen nodes
+		//patternSupports[n] = support of the first n items in pattern
+		int[] pattern = buffer.pattern;
+		int[] patternSupports = buffer.patternSupports;
+		System.arraycopy(suffix, 0, pattern, 0, suffix.length);
+		int patternLength = suffix.length;
+		patternSupports[patternLength] = suffixCount;
 		
-		//generate the frequent pattern
-		//create itemset = node's item concatenated with suffix
-		//support = minimun support of nodes in itemset
-		String[] itemset = new String[suffix.length + 1];
-		itemset[0] = node.item;
-		System.arraycopy(suffix, 0, itemset, 1, suffix.length);		
-		int minCount = node.count < suffixCount ? node.count : suffixCount;
-		generateFP(itemset, minCount);
+		if(length > options.getPathSummaryLength() && options.getPathSummary() != MiningOptions.PathSummary.NONE) {
+			handleSinglePathSummary(pathItems, pathCounts, length, pattern, patternLength, suffixCount);
+			return;
+		}
 		
-		if(node.parent.item != null) {
-			//if parent is not root, find all combinations recursively 
-			handleSinglePath(node.parent, suffix, suffixCount);
-			handleSinglePath(node.parent, itemset, minCount);
+		//for each node k in the path, generate node k concatenated with pattern,
+		//then find all combinations of nodes above k without node k, and with node k
+		//isTaken[k] is true when the combinations with node k are being found
+		//node k is not taken if the pattern with it has the maximum length
+		boolean[] isTaken = buffer.isTaken;
+		int maxLength = constraints.getMaxLength();
+		k = 0;
+		while(k >= 0) {
+			//generate the frequent pattern
+			//create itemset = pattern concatenated with node k's item
+			//support = minimun support of nodes in itemset
+			pattern[patternLength] = pathItems[k];
+			int minCount = Math.min(pathCounts[k], patternSupports[patternLength]);
+			sink.accept(pattern, patternLength + 1, minCount);
+			
+			if(k + 1 < length) {
+				//if parent is not root, find combinations without node k first
+				isTaken[k] = false;
+				k++;
+				continue;
+			}
+			//all combinations below are found, go back to the nearest node not taken
+			k--;
+			while(k >= 0) {
+				if(isTaken[k] == false && patternLength + 1 < maxLength) {
+					//find combinations with node k
+					isTaken[k] = true;
+					pattern[patternLength] = pathItems[k];
+					patternSupports[patternLength + 1] = Math.min(pathCounts[k], patternSupports[patternLength]);
+					patternLength++;
+					k++;
+					break;
+				}
+				//combinations with node k are found
+				if(isTaken[k] == true) {
+					patternLength--;
+				}
+				k--;
+			}
+		}
+	}
+	
+	/**
+	 * Generate only closed or maximal patterns of a long single path.
+	 * Counts of nodes never increase from top to bottom of the path,
+	 * so pattern = suffix concatenated with nodes from node k to the top is closed 
+	 * if node k is at the bottom or its count is greater than the count of the node below it,
+	 * and pattern with all nodes in the path is the only maximal one.
+	 * Each generated pattern stands for all of its sub-patterns containing node k,
+	 * which have the same support.
+	 * @param pathItems  items of nodes in the path, from bottom to top
+	 * @param pathCounts  counts of nodes in the path, from bottom to top
+	 * @param length  number of nodes in the path
+	 * @param pattern  buffer starting with the suffix
+	 * @param suffixLength  number of items in suffix
+	 * @param suffixCount  the minimum count of nodes in suffix
+	 */
+	private void handleSinglePathSummary(int[] pathItems, int[] pathCounts, int length, int[] pattern, int suffixLength, int suffixCount) {
+		int bottom = options.getPathSummary() == MiningOptions.PathSummary.MAXIMAL ? 1 : length;
+		for(int k = 0; k < bottom; k++) {
+			if(k == 0 || pathCounts[k-1] < pathCounts[k]) {
+				//itemset = suffix concatenated with nodes from node k to the top
+				int patternLength = suffixLength;
+				for(int j = k; j < length; j++) {
+					pattern[patternLength++] = pathItems[j];
+				}
+				sink.accept(pattern, patternLength, Math.min(pathCounts[k], suffixCount));
+			}
 		}
 	}
 	
 	/**
 	 * Handle the multiple paths situation of the FP-tree.
-	 * Called by method fpgrowth().
+	 * The tree is pushed as a frame onto the work stack, whose items in header list are mined one by one.
+	 * In parallel mode, the items of a large tree are forked from the work stack as fork-join tasks.
+	 * Items below the largest required item missing from suffix are skipped,
+	 * as patterns grown from them cannot have the missing item.
+	 * Called by method pushTree().
+	 * @param stack  work stack of the mining thread
 	 * @param tree  FP-tree
 	 * @param suffix  suffix of the patterns generated by this FP-tree
 	 */
-	private void handleMultiplePaths(FPTree tree, String[] suffix) {
-		for(int i = tree.getHeaderListLength()-1; i >= 0; i--) {
-			//process each item in header list in reverse order
-			
-			//for each item in header list, 
-			//create itemset = item concatenated with suffix
-			//support = item's support in header table
-			String item = tree.getItemFromHeaderList(i);
-			int itemCount = tree.getSupportByItem(item);
-			String[] itemset = new String[suffix.length + 1];
-			itemset[0] = item;
-			System.arraycopy(suffix, 0, itemset, 1, suffix.length);
+	private void handleMultiplePaths(Deque<MiningFrame> stack, FPTree tree, int[] suffix) {
+		//header list is in ascending order of item id
+		int missingItem = constraints.getMissingItem(suffix, suffix.length);
+		stack.push(new MiningFrame(tree, suffix, missingItem));
+	}
+	
+	/**
+	 * Generate the frequent pattern of an item in header list,
+	 * and push the item's conditional FP-tree onto the work stack.
+	 * Called by method mineStack() and MiningTask.
+	 * @param stack  work stack of the mining thread
+	 * @param tree  FP-tree
+	 * @param item  item in header list
+	 * @param suffix  suffix of the patterns generated by this FP-tree
+	 */
+	private void handleHeaderItem(Deque<MiningFrame> stack, FPTree tree, int item, int[] suffix) {
+		//for each item in header list, 
+		//create itemset = item concatenated with suffix
+		//support = item's support in header table
+		int itemCount = tree.getSupportByItem(item);
+		int minSupport = getMinSupport();
+		if(itemCount < minSupport) {
+			//in top-K mode, the threshold may be raised after the tree is created,
+			//in incremental and streaming mode, the base FP-tree has infrequent items
+			return;
+		}
+		int[] itemset = Arrays.copyOf(suffix, suffix.length + 1);
+		itemset[suffix.length] = tree.getItemId(item);
+		if(constraints.getMissingItem(itemset, itemset.length) < 0) {
 			generateFP(itemset, itemCount);
-			
-			//***************************************************
-			//construct itemset's Conditional Pattern Base
-			//***************************************************
-			//a sub-database consists of the set of prefix paths
-			//in the FP-tree co-occurring wtih the suffix pattern
-			List<List<FPNode>> prefixPaths = new ArrayList<List<FPNode>>();
-			//get the first node in tree having that item
-			FPNode node = tree.getNodeByItem(item);
-			while(node != null) {
-				//find all prefix paths by node links
-				if(node.parent.item != null) {
-					//if prefix path doesn't only have the root, add it to list
-					List<FPNode> path = new ArrayList<FPNode>();
-					path.add(node);
-					FPNode parentNode = node.parent;
-					while(parentNode.item != null) {
-						path.add(parentNode);
-						parentNode = parentNode.parent;
-					}
-					prefixPaths.add(path);				
-				}
-				//look for next prefix path
-				node = node.nodelink;
+		}
+		if(itemset.length >= constraints.getMaxLength()) {
+			//longer patterns are not mined
+			return;
+		}
+		
+		//construct itemset's Conditional FP-tree
+		//from its Conditional Pattern Base, 
+		//a sub-database consists of the set of prefix paths
+		//in the FP-tree co-occurring wtih the suffix pattern
+		FPTree newTree = tree.createConditionalTree(item, minSupport, buffers.get());
+		//mine conditional FP-tree after the items of this tree below item
+//		newTree.traverse();
+		pushTree(stack, newTree, itemset, itemCount);
+	}
+	
+	/**
+	 * Mine the frames of the work stack until it is empty.
+	 * The top frame gives its next item in header list, whose conditional FP-tree is pushed above it,
+	 * and a frame is popped when all its items are mined, so frames are mined depth first like recursion,
+	 * but the depth of mining is limited by heap instead of the stack of the thread.
+	 * In a fork-join task, the items of a large tree after its next item are forked as child tasks,
+	 * so no thread blocks on joining a task, and the stack of the thread does not grow with the depth of mining.
+	 * @param stack  work stack of the mining thread
+	 * @param task  the fork-join task mining the stack, null in sequential mode
+	 */
+	private void mineStack(Deque<MiningFrame> stack, MiningTask task) {
+		while(stack.isEmpty() == false) {
+			MiningFrame frame = stack.peek();
+			int item = frame.nextItem();
+			if(item == FPTree.NULL) {
+				//all items of the tree are mined
+				stack.pop();
+				continue;
 			}
-			
-			
-			//create conditional FP-tree			
-			//get count of each single item in conditional FP-tree
-			Map<String, Integer> newMapSingleItem = new HashMap<String, Integer>();
-			for(List<FPNode> path : prefixPaths) {
-				//get support of the path 
-				int pathCount = path.get(0).count;
-				for(int j = 1; j < path.size(); j++) {
-					node = path.get(j);
-					if(newMapSingleItem.get(node.item) == null) {
-						//no such item, add one
-						newMapSingleItem.put(node.item, pathCount);
-					} else {
-						//has item, increase its count by path count
-						newMapSingleItem.put(node.item, newMapSingleItem.get(node.item)+pathCount); 
-					}
+			if(task != null && frame.tree.getNodeCount() >= options.getParallelThreshold()) {
+				//mine items in header list in parallel: fork the others, and mine this one in this task
+				for(int other = frame.nextItem(); other != FPTree.NULL; other = frame.nextItem()) {
+					task.addToPendingCount(1);
+					new MiningTask(task, frame.tree, other, frame.suffix).fork();
 				}
 			}
-			
-			//***************************************************
-			//construct itemset's Conditional FP-tree
-			//***************************************************
-			FPTree newTree = new FPTree(newMapSingleItem);
-			for(List<FPNode> path : prefixPaths) {
-				//add each prefix path in conditional FP-tree
-				newTree.addPrefixPath(path, dataIO.getMinSupport());
-			}			
-			//mine conditional FP-tree recursively
-			if(newTree.isEmpty() == false) {
-				newTree.createHeaderList(dataIO.getMapSingleItem());
-//				newTree.traverse();
-				fpgrowth(newTree, itemset, itemCount);
-			}													
+			handleHeaderItem(stack, frame.tree, item, frame.suffix);
+		}
+	}
+	
+	/**
+	 * Mine one item in header list of an FP-tree, and the conditional FP-trees grown from it.
+	 * @param tree  FP-tree
+	 * @param item  item in header list
+	 * @param suffix  suffix of the patterns generated by this FP-tree
+	 */
+	private void mineHeaderItem(FPTree tree, int item, int[] suffix) {
+		Deque<MiningFrame> stack = new ArrayDeque<MiningFrame>();
+		handleHeaderItem(stack, tree, item, suffix);
+		mineFrames(stack);
+	}
+	
+	/**
+	 * Mine the frames of a work stack, in the fork-join pool in parallel mode.
+	 * @param stack  work stack
+	 */
+	private void mineFrames(Deque<MiningFrame> stack) {
+		if(pool == null) {
+			mineStack(stack, null);
+		} else if(stack.isEmpty() == false) {
+			pool.invoke(new MiningTask(stack));
+		}
+	}
+	
+	/**
+	 * Get the current absolute minimum support.
+	 * In top-K mode, it is the K-th highest support found so far, raised while mining.
+	 * @return minimum support
+	 */
+	private int getMinSupport() {
+		return topKSink != null ? topKSink.getThreshold() : dataIO.getMinSupport();
+	}
+	
+	/**
+	 * Get a support no higher than the K-th highest support of patterns, to start top-K mining with.
+	 * If single items are counted, the K most frequent items are K patterns, 
+	 * so the support of the K-th item is such a support.
+	 * @return initial threshold of top-K mining
+	 */
+	private int getTopKInitialThreshold() {
+		ItemDictionary dictionary = dataIO.getDictionary();
+		if(options.getMinLength() > 1 || dictionary.size() < topK) {
+			return 1;
+		}
+		return dictionary.getSupport(topK - 1);
+	}
+	
+	/**
+	 * Class for a frame of the work stack: an FP-tree being mined,
+	 * the suffix of its patterns, and its items in header list not mined yet.
+	 */
+	private static class MiningFrame {
+		/**
+		 * FP-tree
+		 */
+		private final FPTree tree;
+		
+		/**
+		 * suffix of the patterns generated by this FP-tree
+		 */
+		private final int[] suffix;
+		
+		/**
+		 * items with a smaller item id are not mined, as they cannot have a required item missing from suffix
+		 */
+		private final int missingItem;
+		
+		/**
+		 * index in header list of the next item to be mined, in reverse order
+		 */
+		private int next;
+		
+		/**
+		 * Constructor.
+		 * @param tree  FP-tree
+		 * @param suffix  suffix of the patterns generated by this FP-tree
+		 * @param missingItem  largest required item missing from suffix, -1 if none
+		 */
+		private MiningFrame(FPTree tree, int[] suffix, int missingItem) {
+			this.tree = tree;
+			this.suffix = suffix;
+			this.missingItem = missingItem;
+			next = tree.getHeaderListLength()-1;
+		}
+		
+		/**
+		 * Get the next item in header list to be mined.
+		 * @return item, FPTree.NULL if all items are mined
+		 */
+		private int nextItem() {
+			if(next < 0) {
+				return FPTree.NULL;
+			}
+			int item = tree.getItemFromHeaderList(next--);
+			if(tree.getItemId(item) < missingItem) {
+				//header list is in ascending order of item id
+				next = -1;
+				return FPTree.NULL;
+			}
+			return item;
+		}
+	}
+	
+	/**
+	 * Class for a fork-join task which mines a work stack of its own,
+	 * starting from the frames given to the root task, or from one item in header list of an FP-tree.
+	 * A task forks its child tasks without joining them, and completes when all of them complete.
+	 */
+	private class MiningTask extends CountedCompleter<Void> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * work stack of the task
+		 */
+		private final Deque<MiningFrame> stack;
+		
+		/**
+		 * FP-tree of the item, null for the root task
+		 */
+		private final FPTree tree;
+		
+		/**
+		 * item in header list
+		 */
+		private final int item;
+		
+		/**
+		 * suffix of the patterns generated by this FP-tree
+		 */
+		private final int[] suffix;
+		
+		/**
+		 * Constructor of the root task.
+		 * @param stack  work stack with the frames to be mined
+		 */
+		public MiningTask(Deque<MiningFrame> stack) {
+			super(null);
+			this.stack = stack;
+			this.tree = null;
+			this.item = FPTree.NULL;
+			this.suffix = null;
+		}
+		
+		/**
+		 * Constructor of a task mining one item in header list.
+		 * @param parent  task forking this task
+		 * @param tree  FP-tree
+		 * @param item  item in header list
+		 * @param suffix  suffix of the patterns generated by this FP-tree
+		 */
+		public MiningTask(MiningTask parent, FPTree tree, int item, int[] suffix) {
+			super(parent);
+			this.stack = new ArrayDeque<MiningFrame>();
+			this.tree = tree;
+			this.item = item;
+			this.suffix = suffix;
+		}
+		
+		@Override
+		public void compute() {
+			if(tree != null) {
+				handleHeaderItem(stack, tree, item, suffix);
+			}
+			mineStack(stack, this);
+			tryComplete();
 		}
 	}
 	
 	/**
 	 * Run FP-growth algorithm.
+	 * Conditional FP-trees are mined with an explicit work stack instead of recursion,
+	 * so long transactions do not overflow the stack of the thread, 
+	 * and in parallel mode the stack is mined in the fork-join pool.
 	 * @param tree  FP-tree
 	 * @param suffix  suffix of the patterns generated by this FP-tree
 	 * @param suffixCount  the minimum count of nodes in suffix
 	 */
-	public void fpgrowth(FPTree tree, String[] suffix, int suffixCount) {
+	public void fpgrowth(FPTree tree, int[] suffix, int suffixCount) {
+		Deque<MiningFrame> stack = new ArrayDeque<MiningFrame>();
+		pushTree(stack, tree, suffix, suffixCount);
+		mineFrames(stack);
+	}
+	
+	/**
+	 * Mine an FP-tree: generate the patterns of a single path at once,
+	 * or push a tree of multiple paths onto the work stack.
+	 * @param stack  work stack of the mining thread
+	 * @param tree  FP-tree
+	 * @param suffix  suffix of the patterns generated by this FP-tree
+	 * @param suffixCount  the minimum count of nodes in suffix
+	 */
+	private void pushTree(Deque<MiningFrame> stack, FPTree tree, int[] suffix, int suffixCount) {
 		if(tree.isEmpty())
 			return;
-		if(tree.hasSinglePath() == true) {
+		if(constraints.canComplete(tree, suffix, getMinSupport()) == false) {
+			//a required item missing from suffix is not frequent in the tree
+			return;
+		}
+		if(tree.hasSinglePath() == true && constraints.getMissingItem(suffix, suffix.length) < 0) {
 			//if single path
 			//start from the last node in header list
-			handleSinglePath(tree.getLastHeaderNode(), suffix, suffixCount);
+			handleSinglePath(tree, suffix, suffixCount);
 		} else {
-			//if multiple path
-			handleMultiplePaths(tree, suffix);
+			//if multiple path, or required items are missing from suffix
+			handleMultiplePaths(stack, tree, suffix);
 		}
-		
+	}
+	
+	/**
+	 * Run FP-growth algorithm on the base FP-tree.
+	 * In incremental and streaming mode, and when the tree was built at a lower minimum support,
+	 * the base FP-tree also has infrequent items, which are skipped as items in header list,
+	 * so the tree is never mined as a single path.
+	 * @param tree  the base FP-tree
+	 */
+	private void mineBaseTree(FPTree tree) {
+		//init suffix = null
+		int[] suffix = new int[0];
+		if(options.isIncremental() == true || options.getWindow() > 0 || baseTreeMinSupport < getMinSupport()) {
+			if(tree.isEmpty() == false) {
+				Deque<MiningFrame> stack = new ArrayDeque<MiningFrame>();
+				handleMultiplePaths(stack, tree, suffix);
+				mineFrames(stack);
+			}
+		} else {
+			fpgrowth(tree, suffix, dataIO.getTransactionCount());
+		}
+	}
+	
+	/**
+	 * Get the minimum support to build the base FP-tree with,
+	 * the lowest minimum support to be mined in this session,
+	 * so that runs at higher minimum supports mine the same tree.
+	 * Closed and maximal miners do not skip infrequent items, so their tree is built at the current minimum support.
+	 * @return absolute minimum support
+	 */
+	private int getTreeMinSupport() {
+		int treeMinSupport = dataIO.getMinSupport();
+		if(options.getSweep() != null && options.getPatternType() == MiningOptions.PatternType.ALL) {
+			for(float ratio : options.getSweep()) {
+				treeMinSupport = Math.min(treeMinSupport, dataIO.getMinSupport(ratio));
+			}
+		}
+		return treeMinSupport;
+	}
+	
+	/**
+	 * Check if the base FP-tree should build an FP-array.
+	 * In auto mode, the array is built if the database is sparse, as MiningPlanner judges it,
+	 * i.e. a transaction has few of the frequent items on average.
+	 * @return true if the base FP-tree should build an FP-array
+	 */
+	private boolean isBaseFPArrayNeeded() {
+		int itemCount = dataIO.getFrequentItemCount();
+		if(itemCount < 2 || FPTree.isArraySmall(itemCount) == false) {
+			return false;
+		}
+		if(options.getFPArray() == MiningOptions.FPArray.AUTO) {
+			//average number of frequent items in a transaction
+			long occurrences = 0;
+			for(int item = 0; item < itemCount; item++) {
+				occurrences += dataIO.getDictionary().getSupport(item);
+			}
+			double density = (double) occurrences / dataIO.getTransactionCount() / itemCount;
+			return density < MiningPlanner.DENSE_DENSITY;
+		}
+		return options.getFPArray() == MiningOptions.FPArray.ON;
+	}
+	
+	/**
+	 * Create the base FP-tree, or update the one kept from the last run.
+	 * @param statistics  statistics of the mining run
+	 * @return the base FP-tree, with header list created
+	 */
+	private FPTree createBaseTree(MiningStatistics statistics) {
+		FPTree tree;
+		if(dataIO.isSnapshot() == true && dataIO.getMinSupport() < baseTreeMinSupport) {
+			//the snapshot has no items below its minimum support
+			System.out.println("The FP-tree snapshot was built at Min_Sup = " + baseTreeMinSupport + ", mining at that minimum support");
+			dataIO.setMinSupRatio(100f * baseTreeMinSupport / dataIO.getTransactionCount());
+			dataIO.setMinSupport(baseTreeMinSupport);
+		}
+		if(options.isIncremental() == true) {
+			//the base FP-tree is kept in canonical order and only updated with appended transactions
+			if(baseTree == null) {
+				baseTree = new FPTree(dataIO.getDictionary().size());
+			} else {
+				baseTree.addItems(dataIO.getDictionary().size());
+			}
+			tree = baseTree;
+			tree.setMiningMode(options.getFPArray(), statistics);
+			int insertedCount = dataIO.updateTree(tree);
+			if(options.getSaveTree() != null && (insertedCount > 0 || isTreeSaved == false)) {
+				tree.createHeaderList();
+				saveBaseTree(tree);
+				isTreeSaved = true;
+			}
+		} else if(baseTree != null && baseTreeMinSupport <= dataIO.getMinSupport() 
+				&& options.getPatternType() == MiningOptions.PatternType.ALL) {
+			//the base FP-tree built at a lower minimum support has all frequent items
+			System.out.println("Create FP-tree >>>\tReused!\n");
+			tree = baseTree;
+			tree.setMiningMode(options.getFPArray(), statistics);
+		} else {
+			//build the base FP-tree at the lowest minimum support to be mined in this session
+			baseTree = null;
+			int minSupport = dataIO.getMinSupport();
+			baseTreeMinSupport = getTreeMinSupport();
+			dataIO.setMinSupport(baseTreeMinSupport);
+			tree = new FPTree(dataIO.getFrequentItemCount());
+			tree.setMiningMode(options.getFPArray(), statistics);
+			if(isBaseFPArrayNeeded()) {
+				tree.buildFPArray(true);
+			}
+			dataIO.createTreeFromData(tree);
+			dataIO.setMinSupport(minSupport);
+			baseTree = tree;
+			if(options.getSaveTree() != null) {
+				tree.createHeaderList();
+				saveBaseTree(tree);
+			}
+		}
+		tree.createHeaderList();
+//		tree.traverse();
+		return tree;
+	}
+	
+	/**
+	 * Create the sink of the patterns mined,
+	 * which counts them, displays them in screen and writes them to output file while mining.
+	 * @param counter  sink counting the patterns
+	 * @return the sink
+	 */
+	private PatternSink createOutput(CountingSink counter) {
+		List<PatternSink> sinks = new ArrayList<PatternSink>();
+		sinks.add(counter);
+		if(options.isCountOnly() == false) {
+			if(dataIO.getOutputFile() != null) {
+				TextSink fileSink = dataIO.openOutputFile();
+				if(fileSink != null) {
+					sinks.add(fileSink);
+				}
+			}
+			if(options.isQuiet() == false) {
+				sinks.add(new TextSink(System.out, dataIO.getDictionary()));
+			}
+		}
+		return new TeeSink(sinks.toArray(new PatternSink[sinks.size()]));
+	}
+	
+	/**
+	 * Mine all frequent patterns of the base FP-tree, in parallel if asked.
+	 * @param tree  the base FP-tree
+	 */
+	private void mineAllPatterns(FPTree tree) {
+		if(options.isParallel() == true) {
+			pool = new ForkJoinPool(options.getThreads());
+			mineBaseTree(tree);
+			pool.shutdown();
+			pool = null;
+		} else {
+			mineBaseTree(tree);
+		}
+	}
+	
+	/**
+	 * Mine frequent patterns from the projected databases of frequent items on disk, in out-of-core mode.
+	 * Each transaction is first written to the partition of its least frequent item,
+	 * and partitions are mined from the least frequent item:
+	 * the partition of item i then holds every transaction containing i whose other items are more frequent,
+	 * so an FP-tree of the partition without i is the conditional FP-tree of i.
+	 * While the FP-tree is built, each transaction is forwarded without i to the partition of its next item.
+	 * Only one partition is in memory at a time, apart from the buffers of the partition store.
+	 * @param statistics  statistics of the mining run
+	 */
+	private void mineOutOfCore(MiningStatistics statistics) {
+		int itemCount = dataIO.getFrequentItemCount();
+		int minSupport = dataIO.getMinSupport();
+		File spillDirectory = options.getSpillDirectory() == null ? null : new File(options.getSpillDirectory());
+		PartitionStore partitions = new PartitionStore(itemCount, options.getPartitionMemory() * 1024L * 1024L, spillDirectory);
+		if(options.isParallel() == true) {
+			pool = new ForkJoinPool(options.getThreads());
+		}
+		try {
+			dataIO.createPartitions(partitions);
+			//count of each item in a partition, and its item in the FP-tree of the partition
+			int[] counts = new int[itemCount];
+			int[] newItems = new int[itemCount];
+			int[] path = new int[itemCount];
+			for(int item = itemCount-1; item >= 0; item--) {
+				PartitionStore.Partition partition = partitions.take(item);
+				//count items of the partition
+				int support = 0;
+				PartitionStore.Reader reader = partition.openReader();
+				while(reader.next() == true) {
+					support++;
+					int[] items = reader.getItems();
+					int end = reader.getStart() + reader.getLength() - 1;
+					for(int j = reader.getStart(); j < end; j++) {
+						counts[items[j]]++;
+					}
+				}
+				int newItemCount = 0;
+				for(int a = 0; a < item; a++) {
+					newItems[a] = counts[a] >= minSupport ? newItemCount++ : -1;
+					counts[a] = 0;
+				}
+				int[] newItemIds = new int[newItemCount];
+				for(int a = 0; a < item; a++) {
+					if(newItems[a] >= 0) {
+						newItemIds[newItems[a]] = a;
+					}
+				}
+				FPTree newTree = new FPTree(newItemIds);
+				newTree.setMiningMode(options.getFPArray(), statistics);
+				if(newItemCount > 1 && FPTree.isArraySmall(newItemCount) && options.getFPArray() == MiningOptions.FPArray.ON) {
+					newTree.buildFPArray(false);
+				}
+				//add each transaction without item to the FP-tree, and forward it to the partition of its last item
+				reader = partition.openReader();
+				while(reader.next() == true) {
+					int[] items = reader.getItems();
+					int start = reader.getStart();
+					int length = reader.getLength() - 1;
+					int pathLength = 0;
+					for(int j = start; j < start + length; j++) {
+						if(newItems[items[j]] >= 0) {
+							path[pathLength++] = newItems[items[j]];
+						}
+					}
+					newTree.addPath(path, pathLength, 1);
+					if(length > 0) {
+						partitions.add(items[start + length - 1], items, start, length);
+					}
+				}
+				newTree.createHeaderList();
+				//mine the conditional FP-tree of item
+				int[] itemset = new int[] {item};
+				generateFP(itemset, support);
+				fpgrowth(newTree, itemset, support);
+			}
+		} finally {
+			partitions.close();
+			if(pool != null) {
+				pool.shutdown();
+				pool = null;
+			}
+		}
+	}
+	
+	/**
+	 * Mine frequent patterns on the vertical database with Eclat, in parallel if asked.
+	 * @return the miner, for its statistics
+	 */
+	private EclatMiner mineVertical() {
+		EclatMiner miner = new EclatMiner(sink, dataIO.getMinSupport(), dataIO.getFrequentItemCount());
+		dataIO.createVerticalDatabase(miner);
+		if(options.isParallel() == true) {
+			ForkJoinPool eclatPool = new ForkJoinPool(options.getThreads());
+			miner.mine(eclatPool);
+			eclatPool.shutdown();
+		} else {
+			miner.mine(null);
+		}
+		return miner;
+	}
+	
+	/**
+	 * Mine frequent patterns on arrays of merged transactions with LCM, in parallel if asked.
+	 * @return the miner, for its statistics
+	 */
+	private LcmMiner mineArrays() {
+		LcmMiner miner = new LcmMiner(sink, dataIO.getMinSupport(), dataIO.getFrequentItemCount());
+		dataIO.createArrayDatabase(miner);
+		if(options.isParallel() == true) {
+			ForkJoinPool lcmPool = new ForkJoinPool(options.getThreads());
+			miner.mine(lcmPool);
+			lcmPool.shutdown();
+		} else {
+			miner.mine(null);
+		}
+		return miner;
+	}
+	
+	/**
+	 * Mine frequent patterns with local worker processes, in PFP mode.
+	 * The frequent items are divided into groups, and the shard of each group is mined by a worker JVM,
+	 * which finds the patterns whose least frequent item is in the group.
+	 * The patterns of all workers are then passed to the sink.
+	 */
+	private void mineWithWorkers() {
+		int itemCount = dataIO.getFrequentItemCount();
+		int groups = Math.max(1, Math.min(options.getGroups(), itemCount));
+		//workers mine the same way as this process
+		List<String> workerOptions = new ArrayList<String>();
+		workerOptions.add("--fp-array=" + options.getFPArray().name().toLowerCase());
+		if(options.getPathSummary() != MiningOptions.PathSummary.NONE) {
+			workerOptions.add("--path-summary=" + options.getPathSummary().name().toLowerCase());
+			workerOptions.add("--path-summary-length=" + options.getPathSummaryLength());
+		}
+		File spillDirectory = options.getSpillDirectory() == null ? null : new File(options.getSpillDirectory());
+		PFPJob job = null;
+		try {
+			job = new PFPJob(options.getWorkers(), groups, dataIO.getMinSupport(), itemCount, options.getWorkerHeap(),
+					workerOptions, spillDirectory);
+			dataIO.createShards(job);
+			job.run(sink);
+		} catch(IOException | InterruptedException e) {
+			e.printStackTrace();
+		} finally {
+			if(job != null) {
+				job.close();
+			}
+		}
+	}
+	
+	/**
+	 * Mine the shard of a group of items, as a worker process of a PFP job.
+	 * An FP-tree is built from the frequent items of the shard,
+	 * and only the items of the group in its header list are mined,
+	 * as the shard holds their whole conditional pattern bases.
+	 * Patterns are written to the pattern file of the shard.
+	 * @throws IOException if the shard cannot be read or the pattern file cannot be written
+	 */
+	private void runWorker() throws IOException {
+		long startTime = System.currentTimeMillis();
+		File shardFile = new File(options.getWorkerShard());
+		DataInputStream in = PFPJob.openShard(shardFile);
+		int[] header = PFPJob.readHeader(in);
+		int group = header[0];
+		int groups = header[1];
+		int minSupport = header[2];
+		int itemCount = header[3];
+		//count items of the shard
+		int[] transaction = new int[itemCount];
+		int[] counts = new int[itemCount];
+		int length;
+		while((length = PFPJob.readTransaction(in, transaction)) >= 0) {
+			for(int i = 0; i < length; i++) {
+				counts[transaction[i]]++;
+			}
+		}
+		in.close();
+		//an item co-occurs with an item of the group at most as often as it occurs in the shard
+		int[] newItems = new int[itemCount];
+		int newItemCount = 0;
+		for(int a = 0; a < itemCount; a++) {
+			newItems[a] = counts[a] >= minSupport ? newItemCount++ : -1;
+		}
+		int[] newItemIds = new int[newItemCount];
+		for(int a = 0; a < itemCount; a++) {
+			if(newItems[a] >= 0) {
+				newItemIds[newItems[a]] = a;
+			}
+		}
+		FPTree tree = new FPTree(newItemIds);
+		tree.setMiningMode(options.getFPArray(), null);
+		if(newItemCount > 1 && FPTree.isArraySmall(newItemCount) && options.getFPArray() == MiningOptions.FPArray.ON) {
+			tree.buildFPArray(false);
+		}
+		//build the FP-tree of the shard
+		in = PFPJob.openShard(shardFile);
+		PFPJob.readHeader(in);
+		int[] path = new int[itemCount];
+		while((length = PFPJob.readTransaction(in, transaction)) >= 0) {
+			int pathLength = 0;
+			for(int i = 0; i < length; i++) {
+				if(newItems[transaction[i]] >= 0) {
+					path[pathLength++] = newItems[transaction[i]];
+				}
+			}
+			tree.addPath(path, pathLength, 1);
+		}
+		in.close();
+		tree.createHeaderList();
+		//mine the items of the group
+		dataIO = new DataIO(shardFile.getPath(), null, 0);
+		dataIO.setMinSupport(minSupport);
+		CountingSink counter = new CountingSink();
+		PatternSink writer = new PFPJob.PatternWriter(PFPJob.getPatternFile(shardFile));
+		sink = new TeeSink(counter, writer);
+		int[] suffix = new int[0];
+		for(int i = tree.getHeaderListLength()-1; i >= 0; i--) {
+			int item = tree.getItemFromHeaderList(i);
+			if(PFPJob.getGroup(tree.getItemId(item), groups) == group) {
+				mineHeaderItem(tree, item, suffix);
+			}
+		}
+		sink.close();
+		System.out.println("Group " + group + " of " + groups + ": " + tree.getNodeCount() + " nodes, " 
+				+ counter.getCount() + " patterns, " + (System.currentTimeMillis() - startTime) + "ms");
 	}
 	
 	/**
@@ -268,26 +1069,224 @@ public class FPGrowth {
 		//get start time
 		long startTime = System.currentTimeMillis();
 		dataIO.readFile();
-		//create the base FP-tree
-		FPTree tree = new FPTree(dataIO.getMapSingleItem());
-		dataIO.createTreeFromData(tree);
-		tree.createHeaderList(dataIO.getMapSingleItem());
-//		tree.traverse();
+		topKSink = null;
+		if(topK > 0) {
+			//start with a threshold no higher than the K-th highest support
+			topKSink = new TopKSink(topK, options.getMinLength(), getTopKInitialThreshold());
+			dataIO.setMinSupport(topKSink.getThreshold());
+		}
+		//constraints on patterns, whose excluded items are not inserted into the base FP-tree
+		if(options.hasConstraints() == true) {
+			constraints = PatternConstraints.create(options, dataIO.getDictionary());
+			constraints.print(dataIO.getDictionary());
+			dataIO.setConstraints(constraints);
+		}
+		//choose the engine from statistics of the database, if asked
+		MiningOptions.Engine engine = options.getEngine();
+		boolean isOutOfCore = options.isOutOfCore();
+		if(engine == MiningOptions.Engine.AUTO) {
+			MiningPlanner planner = new MiningPlanner(dataIO, options);
+			planner.plan();
+			engine = planner.getEngine();
+			isOutOfCore = planner.isOutOfCore();
+		}
+		//create the base FP-tree, except in out-of-core and PFP mode and for other engines
+		MiningStatistics statistics = new MiningStatistics();
+		boolean isTreeNeeded = isOutOfCore == false && options.getWorkers() == 0 
+				&& engine == MiningOptions.Engine.FPGROWTH;
+		FPTree tree = isTreeNeeded == true ? createBaseTree(statistics) : null;
 
 		System.out.println("Generate frequent patterns >>>");
-		//init suffix = null
-		String[] suffix = new String[0];
+		CountingSink counter = new CountingSink();
+		PatternSink output = createOutput(counter);
+		//in top-K mode, patterns are kept while mining and output after mining
+		sink = topKSink != null ? topKSink : output;
+		//patterns are also kept in a trie to generate association rules after mining
+		PatternTrie trie = null;
+		if(options.getRulesFile() != null) {
+			trie = new PatternTrie(dataIO.getTransactionCount());
+			sink = new TeeSink(output, trie);
+		}
 		//do FP-growth algorithm
-		fpgrowth(tree, suffix, dataIO.getTransactionCount());
+		ClosedMiner closedMiner = null;
+		MaximalMiner maximalMiner = null;
+		EclatMiner eclatMiner = null;
+		LcmMiner lcmMiner = null;
+		if(options.getPatternType() == MiningOptions.PatternType.CLOSED) {
+			//closed patterns are mined in one thread
+			closedMiner = new ClosedMiner(sink, dataIO.getMinSupport());
+			closedMiner.mine(tree);
+		} else if(options.getPatternType() == MiningOptions.PatternType.MAXIMAL) {
+			//maximal patterns are mined in one thread
+			maximalMiner = new MaximalMiner(sink, dataIO.getMinSupport(), dataIO.getFrequentItemCount());
+			maximalMiner.mine(tree, dataIO.getTransactionCount());
+		} else if(isOutOfCore == true) {
+			mineOutOfCore(statistics);
+		} else if(options.getWorkers() > 0) {
+			mineWithWorkers();
+		} else if(engine == MiningOptions.Engine.ECLAT) {
+			eclatMiner = mineVertical();
+		} else if(engine == MiningOptions.Engine.LCM) {
+			lcmMiner = mineArrays();
+		} else {
+			mineAllPatterns(tree);
+		}
+		if(topKSink != null) {
+			topKSink.emit(output);
+		}
+		//flush the output file
+		output.close();
 		//get end time
 		long endTime = System.currentTimeMillis();
-		//write the result into output file
-		dataIO.writeFile(result);
 		//display running time
 		System.out.println("\nFrequent Pattern Mining is complete!");
-		dataIO.printMinSup();
-		System.out.println("The total number of frequent patterns: " + result.size());
+		if(topKSink != null) {
+			System.out.println("Top-K: " + topK + " patterns of at least " + options.getMinLength() 
+					+ " items, K-th highest support = " + topKSink.getThreshold());
+		} else {
+			dataIO.printMinSup();
+		}
+		System.out.println("The total number of frequent patterns: " + counter.getCount());
+		statistics.print();
+		if(closedMiner != null) {
+			closedMiner.printStatistics();
+		} else if(maximalMiner != null) {
+			maximalMiner.printStatistics();
+		} else {
+			if(eclatMiner != null) {
+				eclatMiner.printStatistics();
+			}
+			if(lcmMiner != null) {
+				lcmMiner.printStatistics();
+			}
+			if(options.isParallel() == true) {
+				System.out.println("Parallel mining: " + options.getThreads() + " threads");
+			}
+		}
 		System.out.println("Running time: " + (endTime-startTime) + "ms\n");
+		if(trie != null) {
+			generateRules(trie);
+		}
+	}
+	
+	/**
+	 * Generate association rules from the frequent patterns kept in a trie, and write them to the rule file.
+	 * @param trie  trie of all frequent patterns
+	 */
+	private void generateRules(PatternTrie trie) {
+		System.out.println("Generate association rules >>>");
+		long startTime = System.currentTimeMillis();
+		RuleGenerator generator = new RuleGenerator(trie, dataIO.getTransactionCount(), dataIO.getDictionary(), 
+				options.getMinConfidence(), options.getMinLift(), options.getMinConviction());
+		try {
+			generator.generate(options.getRulesFile(), options.isParallel() == true ? options.getThreads() : 1);
+		} catch(IOException e) {
+			System.out.println("Cannot write rule file!");
+			e.printStackTrace();
+			return;
+		}
+		System.out.println("Min_Conf: " + options.getMinConfidence() + "%, Min_Lift: " + options.getMinLift() 
+				+ ", Min_Conviction: " + options.getMinConviction());
+		System.out.println("The total number of association rules: " + generator.getRuleCount() 
+				+ " from " + trie.getPatternCount() + " patterns");
+		System.out.println("Running time: " + (System.currentTimeMillis() - startTime) + "ms\n");
+	}
+	
+	/**
+	 * Run the FP-growth program on a stream of transactions, in streaming mode.
+	 * The FP-tree of the sliding window is updated with each transaction as it arrives,
+	 * and the frequent patterns of the window are mined every slide transactions and at the end of stream.
+	 */
+	private void runStream() {
+		dataIO = new DataIO(options.getStreamInput(), options.getOutputFile(), options.getMinSupport());
+		ItemDictionary dictionary = dataIO.getDictionary();
+		SlidingWindow window = new SlidingWindow(options.getWindow());
+		window.getTree().setMiningMode(options.getFPArray(), null);
+		TransactionStream stream;
+		try {
+			stream = TransactionStream.open(options.getStreamInput(), options.isFollow(), dictionary);
+		} catch(IOException e) {
+			System.out.println("No such file!");
+			e.printStackTrace();
+			return;
+		}
+		System.out.println("Stream >>>\twindow: " + options.getWindow() + " transactions, slide: " + options.getSlide() + " transactions\n");
+		try {
+			//transactions added since the last emission, and the time to add them
+			int pendingCount = 0;
+			long updateTime = 0;
+			while(stream.next() == true) {
+				long startTime = System.nanoTime();
+				window.add(stream.getCodes(), stream.getLength(), dictionary.size());
+				updateTime += System.nanoTime() - startTime;
+				pendingCount++;
+				if(pendingCount == options.getSlide()) {
+					emitWindow(window, updateTime, stream.getArrivalTime());
+					pendingCount = 0;
+					updateTime = 0;
+				}
+			}
+			if(pendingCount > 0) {
+				emitWindow(window, updateTime, stream.getArrivalTime());
+			}
+		} catch(IOException e) {
+			e.printStackTrace();
+		} finally {
+			stream.close();
+		}
+	}
+	
+	/**
+	 * Mine and emit the frequent patterns of the sliding window, with the metrics of the batch,
+	 * i.e. the transactions added since the last emission.
+	 * Latency is the time from the arrival of the last transaction of the batch until its patterns are emitted.
+	 * @param window  the sliding window
+	 * @param updateTime  nanoseconds spent adding the batch to the FP-tree
+	 * @param arrivalTime  time in nanoseconds when the last transaction of the batch arrived
+	 */
+	private void emitWindow(SlidingWindow window, long updateTime, long arrivalTime) {
+		long startTime = System.nanoTime();
+		FPTree tree = window.getTree();
+		//names of new items are decoded by item id
+		dataIO.getDictionary().rankByCode();
+		int minSupport = (int) Math.ceil(options.getMinSupport() * window.size() / 100);
+		dataIO.setMinSupport(minSupport);
+		tree.createHeaderList();
+		CountingSink counter = new CountingSink();
+		PatternSink output = createOutput(counter);
+		sink = output;
+		mineAllPatterns(tree);
+		output.close();
+		long endTime = System.nanoTime();
+		System.out.println("\nWindow >>>\ttransactions " + (window.getAddedCount() - window.size() + 1) + "-" + window.getAddedCount()
+				+ ", Min_Sup: " + options.getMinSupport() + "% of " + window.size() + " transactions = " + minSupport);
+		System.out.println("The total number of frequent patterns: " + counter.getCount());
+		System.out.println("FP-tree nodes: " + tree.getNodeCount() + ", distinct items: " + dataIO.getDictionary().size());
+		System.out.println("Update time: " + updateTime / 1000000 + "ms, mining time: " + (endTime - startTime) / 1000000 
+				+ "ms, latency: " + (endTime - arrivalTime) / 1000000 + "ms\n");
+	}
+	
+	/**
+	 * Mine frequent patterns at each minimum support of the sweep, one after another in one session.
+	 * The base FP-tree is built once at the lowest minimum support and mined at every minimum support,
+	 * and the patterns of each minimum support are written to their own output file,
+	 * e.g. out-2.5.txt for out.txt at 2.5%.
+	 */
+	private void runSweep() {
+		float[] sweep = options.getSweep();
+		String[] labels = options.getSweepLabels();
+		for(int i = 0; i < sweep.length; i++) {
+			minSupRatio = sweep[i];
+			dataIO.setMinSupRatio(minSupRatio);
+			if(outputFile != null) {
+				int dot = outputFile.lastIndexOf('.');
+				if(dot <= outputFile.lastIndexOf(File.separatorChar)) {
+					dot = outputFile.length();
+				}
+				dataIO.setOutputFile(outputFile.substring(0, dot) + "-" + labels[i] + outputFile.substring(dot));
+			}
+			run();
+		}
 	}
 	
 	/**
@@ -295,6 +1294,10 @@ public class FPGrowth {
 	 */
 	private void changeMinSupRatio() {
 		isMinSupChanged = false;
+		if(topK > 0) {
+			changeTopK();
+			return;
+		}
 //		input.nextLine();
 		System.out.print("Do you want to CHANGE min support (y/[n]): ");
 		String s = input.next();
@@ -320,11 +1323,31 @@ public class FPGrowth {
 				}
 			}
 			isMinSupChanged = true;
-			init();
+			//the encoded transactions of input file are reused
+			dataIO.setMinSupRatio(minSupRatio);
 		}
-		
+	
 	}
-
+	
+	/**
+	 * Change K in top-K mode, and run algorithm again.
+	 */
+	private void changeTopK() {
+		System.out.print("Do you want to CHANGE K (y/[n]): ");
+		String s = input.next();
+		if(s.equals("y")) {
+			System.out.print("Please enter K, the number of patterns: ");
+			while(input.hasNextInt() == false || (topK = input.nextInt()) <= 0) {
+				if(input.hasNextInt() == false) {
+					input.next();
+				}
+				System.out.println("The input is not a valid number!");
+				System.out.print("Please enter K, the number of patterns: ");
+			}
+			isMinSupChanged = true;
+		}
+	}
+	
 	/**
 	 * Main method.
 	 * Launch the program.
@@ -332,15 +1355,44 @@ public class FPGrowth {
 	 */
 	public static void main(String[] args) {
 		FPGrowth fp = new FPGrowth();
+		try {
+			fp.options = MiningOptions.parse(args);
+		} catch(IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			MiningOptions.printUsage();
+			return;
+		}
+		fp.topK = fp.options.getTopK();
+		if(fp.options.getWorkerShard() != null) {
+			//a worker of a PFP job, started by its master, no questions asked
+			try {
+				fp.runWorker();
+			} catch(IOException e) {
+				e.printStackTrace();
+				System.exit(1);
+			}
+			System.exit(0);
+		}
+		if(fp.options.getWindow() > 0) {
+			//transactions arrive on stdin or a file, no questions asked
+			fp.runStream();
+			System.out.println("Thank you for using FP-growth. Goodbye!");
+			System.exit(-1);
+		}
 		fp.input = new Scanner(System.in);
 		fp.set();	
-		fp.run();
-		fp.changeMinSupRatio();
-		while(fp.isMinSupChanged == true) {
+		if(fp.options.getSweep() != null) {
+			fp.runSweep();
+		} else {
 			fp.run();
 			fp.changeMinSupRatio();
+			while(fp.isMinSupChanged == true) {
+				fp.run();
+				fp.changeMinSupRatio();
+			}
 		}
 		System.out.println("Thank you for using FP-growth. Goodbye!");
+		fp.dataIO.close();
 		fp.input.close();
 		System.exit(-1);
 	}
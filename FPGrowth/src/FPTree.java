@@ -1,64 +1,268 @@
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Class for FP-tree
+ * Items in a tree are numbered 0, 1, ..., itemCount-1 in descending order of support,
+ * and the header table is a set of arrays indexed by item.
+ * Nodes are numbered 0, 1, 2, ..., where 0 is the root,
+ * and each field of the nodes is stored in a chunked int array indexed by node,
+ * so the tree is a few primitive arrays instead of one object per node.
+ * A tree may also keep an FP-array, the count of each pair of its items,
+ * so that conditional FP-trees are created without counting their items by scanning prefix paths.
  * @author Jacky
  */
 public class FPTree {
 	/**
-	 * root of the FP-tree
+	 * the root node
 	 */
-	private FPNode root;
+	public static final int ROOT = 0;
 	
 	/**
-	 * list of items in header table, in descending order of support 
+	 * maximum number of counts in an FP-array
 	 */
-	private List<String> headerList;
+	public static final int MAX_ARRAY_SIZE = 1 << 22;
+	
+	/**
+	 * a tree is sparse if its number of nodes is at least this ratio of the items inserted
+	 */
+	public static final double SPARSE_RATIO = 0.5;
+	
+	/**
+	 * no node, e.g. parent of the root or node link of the last node
+	 */
+	public static final int NULL = -1;
+	
+	/**
+	 * item of each node, -1 for the root
+	 */
+	private final ChunkedIntArray items;
+	
+	/**
+	 * support of each node
+	 */
+	private final ChunkedIntArray counts;
+	
+	/**
+	 * parent of each node
+	 */
+	private final ChunkedIntArray parents;
+	
+	/**
+	 * first child of each node
+	 */
+	private final ChunkedIntArray firstChildren;
+	
+	/**
+	 * next sibling of each node
+	 */
+	private final ChunkedIntArray nextSiblings;
+	
+	/**
+	 * link to next node with same item
+	 */
+	private final ChunkedIntArray nodelinks;
+	
+	/**
+	 * number of children of each node
+	 */
+	private final ChunkedIntArray childCounts;
+	
+	/**
+	 * index of children of the nodes having more than childIndexThreshold children,
+	 * null if there is no such node
+	 */
+	private ChildIndex childIndex;
+	
+	/**
+	 * children of a node are put into childIndex
+	 * when the node has more than this number of children,
+	 * otherwise they are found by scanning the list of siblings
+	 */
+	private int childIndexThreshold;
+	
+	/**
+	 * previous sibling of each node, null if nodes are never removed
+	 */
+	private ChunkedIntArray prevSiblings;
+	
+	/**
+	 * link to previous node with same item, null if nodes are never removed
+	 */
+	private ChunkedIntArray prevNodelinks;
+	
+	/**
+	 * first node of the list of removed nodes to be reused, linked by nextSiblings
+	 */
+	private int freeList;
+	
+	/**
+	 * number of removed nodes to be reused
+	 */
+	private int freeCount;
+	
+	/**
+	 * number of node slots used, including the root and removed nodes
+	 */
+	private int nodeCount;
+	
+	/**
+	 * number of items which can be inserted into this tree
+	 */
+	private int itemCount;
+	
+	/**
+	 * item id in database of each item in this tree
+	 */
+	private int[] itemIds;
+	
+	/**
+	 * list of items in header table, in descending order of support
+	 */
+	private int[] headerList;
+	
+	/**
+	 * number of items in header list
+	 */
+	private int headerListLength;
 	
 	/**
 	 * count of each single item in this tree
 	 */
-	private Map<String, Integer> mapSingleItem;
+	private int[] supports;
+	
+	/**
+	 * node for each item in header table
+	 */
+	private int[] headerNodes;
 	
 	/**
-	 * node for each item in header table (key: item, value: node)
+	 * last node for each item using node link
 	 */
-	private Map<String, FPNode> mapHeaderNode;
+	private int[] lastNodes;
 	
 	/**
-	 * last node for each item using node link (key: item, value: node)
+	 * number of nodes having more than one child, 0 if tree contains a single path
 	 */
-	private Map<String, FPNode> mapLastNode;
+	private int branchingNodeCount;
 	
 	/**
-	 * true if tree contains a single path
+	 * FP-array: count of each pair of items in this tree,
+	 * count of items a < b is at index b*(b-1)/2 + a.
+	 * null if not built
 	 */
-	private boolean hasSinglePath;
+	private int[] fpArray;
+	
+	/**
+	 * when to build FP-array for conditional FP-trees
+	 */
+	private MiningOptions.FPArray fpArrayMode;
+	
+	/**
+	 * number of items inserted, to measure how well the tree compresses paths
+	 */
+	private long insertedItemCount;
+	
+	/**
+	 * statistics of the mining run, null if not recorded
+	 */
+	private MiningStatistics statistics;
 	
 	/**
 	 * Constructor.
-	 * @param mapSingleItem  count of each single item in this tree
+	 * @param itemIds  item id in database of each item in this tree
+	 * @param initialCapacity  initial number of nodes
 	 */
-	public FPTree(Map<String, Integer> mapSingleItem) {
-		root = new FPNode();
-		mapHeaderNode = new HashMap<String, FPNode>();
-		mapLastNode = new HashMap<String, FPNode>();
-		hasSinglePath = true;
-		this.mapSingleItem = mapSingleItem;
+	public FPTree(int[] itemIds, int initialCapacity) {
+		items = new ChunkedIntArray(initialCapacity);
+		counts = new ChunkedIntArray(initialCapacity);
+		parents = new ChunkedIntArray(initialCapacity);
+		firstChildren = new ChunkedIntArray(initialCapacity);
+		nextSiblings = new ChunkedIntArray(initialCapacity);
+		nodelinks = new ChunkedIntArray(initialCapacity);
+		childCounts = new ChunkedIntArray(initialCapacity);
+		childIndex = null;
+		childIndexThreshold = 8;
+		prevSiblings = null;
+		prevNodelinks = null;
+		freeList = NULL;
+		freeCount = 0;
+		//create the root
+		nodeCount = 0;
+		newNode(-1, 0, NULL);
+		itemCount = itemIds.length;
+		this.itemIds = itemIds;
+		headerList = new int[itemCount];
+		headerListLength = 0;
+		supports = new int[itemCount];
+		headerNodes = new int[itemCount];
+		lastNodes = new int[itemCount];
+		Arrays.fill(headerNodes, NULL);
+		Arrays.fill(lastNodes, NULL);
+		branchingNodeCount = 0;
+		fpArray = null;
+		fpArrayMode = MiningOptions.FPArray.OFF;
+		insertedItemCount = 0;
+		statistics = null;
 	}
 	
+	/**
+	 * Constructor.
+	 * @param itemIds  item id in database of each item in this tree
+	 */
+	public FPTree(int[] itemIds) {
+		this(itemIds, 16);
+	}
+	
+	/**
+	 * Constructor of a base FP-tree,
+	 * whose items are the first itemCount items in database.
+	 * @param itemCount  number of frequent items in database
+	 */
+	public FPTree(int itemCount) {
+		this(identity(itemCount), 1 << 10);
+	}
+	
+	/**
+	 * Add items to a base FP-tree whose items are the first items in database,
+	 * i.e. whose item ids are 0, 1, ..., itemCount-1.
+	 * Used in incremental mode when appended transactions have new items.
+	 * The tree must have no FP-array.
+	 * @param newItemCount  number of items after adding
+	 */
+	public void addItems(int newItemCount) {
+		if(newItemCount <= itemCount) {
+			return;
+		}
+		itemIds = identity(newItemCount);
+		headerList = Arrays.copyOf(headerList, newItemCount);
+		supports = Arrays.copyOf(supports, newItemCount);
+		headerNodes = Arrays.copyOf(headerNodes, newItemCount);
+		lastNodes = Arrays.copyOf(lastNodes, newItemCount);
+		Arrays.fill(headerNodes, itemCount, newItemCount, NULL);
+		Arrays.fill(lastNodes, itemCount, newItemCount, NULL);
+		itemCount = newItemCount;
+	}
+	
+	/**
+	 * Create array {0, 1, ..., n-1}.
+	 * @param n
+	 * @return the array
+	 */
+	private static int[] identity(int n) {
+		int[] array = new int[n];
+		for(int i = 0; i < n; i++) {
+			array[i] = i;
+		}
+		return array;
+	}
 	
 	/**
 	 * Check if tree contains a single path or not.
 	 * @return true if tree contains a single path, false otherwise
 	 */
 	public boolean hasSinglePath() {
-		return hasSinglePath;
+		return branchingNodeCount == 0;
 	}
 	
 	/**
@@ -66,7 +270,154 @@ public class FPTree {
 	 * @return true if tree is empty, false otherwise
 	 */
 	public boolean isEmpty() {
-		return (root.children.size() == 0);
+		return firstChildren.get(ROOT) == NULL;
+	}
+	
+	/**
+	 * Get number of nodes including the root.
+	 * @return number of nodes
+	 */
+	public int getNodeCount() {
+		return nodeCount - freeCount;
+	}
+	
+	/**
+	 * Keep the links needed to remove paths, i.e. previous siblings and previous node links.
+	 * Should be called before inserting any path.
+	 * The tree must have no FP-array.
+	 */
+	public void enableRemoval() {
+		prevSiblings = new ChunkedIntArray(items.capacity());
+		prevNodelinks = new ChunkedIntArray(items.capacity());
+	}
+	
+	/**
+	 * Set the number of children above which children of a node are indexed.
+	 * Should be called before inserting any path.
+	 * @param childIndexThreshold  Integer.MAX_VALUE to always scan the list of siblings
+	 */
+	public void setChildIndexThreshold(int childIndexThreshold) {
+		this.childIndexThreshold = childIndexThreshold;
+	}
+	
+	/**
+	 * Set when to build FP-array, and where to record statistics.
+	 * Conditional FP-trees created from this tree inherit both.
+	 * @param fpArrayMode  when to build FP-array for conditional FP-trees
+	 * @param statistics  statistics of the mining run, or null
+	 */
+	public void setMiningMode(MiningOptions.FPArray fpArrayMode, MiningStatistics statistics) {
+		this.fpArrayMode = fpArrayMode;
+		this.statistics = statistics;
+	}
+	
+	/**
+	 * Check if an FP-array of the given number of items is small enough to be built.
+	 * @param itemCount
+	 * @return true if the FP-array has no more than MAX_ARRAY_SIZE counts
+	 */
+	public static boolean isArraySmall(int itemCount) {
+		return (long) itemCount * (itemCount - 1) / 2 <= MAX_ARRAY_SIZE;
+	}
+	
+	/**
+	 * Build FP-array while inserting paths.
+	 * Should be called before inserting any path.
+	 * @param isBaseTree  true if this is the base FP-tree
+	 */
+	public void buildFPArray(boolean isBaseTree) {
+		fpArray = new int[itemCount * (itemCount - 1) / 2];
+		if(statistics != null) {
+			statistics.addArray(isBaseTree);
+		}
+	}
+	
+	/**
+	 * Check if the tree is sparse,
+	 * i.e. paths share few nodes so that scanning prefix paths costs about as much as the paths themselves.
+	 * @return true if the number of nodes is at least SPARSE_RATIO of the items inserted
+	 */
+	public boolean isSparse() {
+		return getNodeCount() - 1 >= SPARSE_RATIO * insertedItemCount;
+	}
+	
+	/**
+	 * Get number of items inserted, counting each item of each path inserted.
+	 * @return insertedItemCount
+	 */
+	public long getInsertedItemCount() {
+		return insertedItemCount;
+	}
+	
+	/**
+	 * Get number of items which can be inserted into this tree.
+	 * @return number of items
+	 */
+	public int getItemCount() {
+		return itemCount;
+	}
+	
+	/**
+	 * Get item id in database of the given item in this tree.
+	 * @param item  item in this tree
+	 * @return item id in database
+	 */
+	public int getItemId(int item) {
+		return itemIds[item];
+	}
+	
+	/**
+	 * Get item in this tree of the given item id in database.
+	 * Items are numbered in ascending order of item id, so item ids are binary searched.
+	 * @param itemId  item id in database
+	 * @return item in this tree, or a negative number if the item is not in this tree
+	 */
+	public int getItemById(int itemId) {
+		return Arrays.binarySearch(itemIds, itemId);
+	}
+	
+	/**
+	 * Get item id in database of each item in this tree.
+	 * @return item ids, in ascending order
+	 */
+	public int[] getItemIds() {
+		return itemIds;
+	}
+	
+	/**
+	 * Get item of the given node.
+	 * @param node
+	 * @return item of the node, -1 if root
+	 */
+	public int getItem(int node) {
+		return items.get(node);
+	}
+	
+	/**
+	 * Get support of the given node.
+	 * @param node
+	 * @return support of the node
+	 */
+	public int getCount(int node) {
+		return counts.get(node);
+	}
+	
+	/**
+	 * Get parent of the given node.
+	 * @param node
+	 * @return parent of the node, NULL if root
+	 */
+	public int getParent(int node) {
+		return parents.get(node);
+	}
+	
+	/**
+	 * Get next node with same item of the given node.
+	 * @param node
+	 * @return next node with same item, NULL if this is the last one
+	 */
+	public int getNodeLink(int node) {
+		return nodelinks.get(node);
 	}
 	
 	/**
@@ -74,7 +425,7 @@ public class FPTree {
 	 * @return length of header list
 	 */
 	public int getHeaderListLength() {
-		return headerList.size();
+		return headerListLength;
 	}
 	
 	/**
@@ -82,25 +433,25 @@ public class FPTree {
 	 * @param i  index in header list
 	 * @return  item of index i in header list
 	 */
-	public String getItemFromHeaderList(int i) {
-		return headerList.get(i);
+	public int getItemFromHeaderList(int i) {
+		return headerList[i];
 	}
 	
 	/**
 	 * Get node whose item is the last item in header list.
 	 * @return node whose item is the last item in header list
 	 */
-	public FPNode getLastHeaderNode() {
-		return mapHeaderNode.get(headerList.get(headerList.size()-1));
+	public int getLastHeaderNode() {
+		return headerNodes[headerList[headerListLength-1]];
 	}
 	
 	/**
-	 * Get the first node in tree given a specific item. 
-	 * @param item  
+	 * Get the first node in tree given a specific item.
+	 * @param item
 	 * @return the first node in tree with the given item
 	 */
-	public FPNode getNodeByItem(String item) {
-		return mapHeaderNode.get(item);
+	public int getNodeByItem(int item) {
+		return headerNodes[item];
 	}
 	
 	/**
@@ -108,160 +459,539 @@ public class FPTree {
 	 * @param item
 	 * @return support of the given item in header table
 	 */
-	public int getSupportByItem(String item) {
-		return mapSingleItem.get(item);
+	public int getSupportByItem(int item) {
+		return supports[item];
 	}
 	
 	/**
 	 * Print header table of this tree.
-	 * For each item in header list, its support is stored in Map mapSingleItem.
+	 * For each item in header list, its support is stored in array supports.
 	 */
 	public void printHeaderTable() {
-		for(int i = 0; i < headerList.size(); i++) {
-			String item = headerList.get(i);
-			String s = (i < headerList.size()-1) ? "{" + item + ":" + mapSingleItem.get(item) + "}, " : "{" + item + ":" + mapSingleItem.get(item) + "}\n";
+		for(int i = 0; i < headerListLength; i++) {
+			int item = headerList[i];
+			String s = (i < headerListLength-1) ? "{" + itemIds[item] + ":" + supports[item] + "}, " : "{" + itemIds[item] + ":" + supports[item] + "}\n";
 			System.out.print(s);
 		}
 	}
 	
+	/**
+	 * Create a new node.
+	 * @param item
+	 * @param count
+	 * @param parent
+	 * @return the new node
+	 */
+	private int newNode(int item, int count, int parent) {
+		int node;
+		if(freeList != NULL) {
+			//reuse a removed node
+			node = freeList;
+			freeList = nextSiblings.get(node);
+			freeCount--;
+		} else {
+			node = nodeCount++;
+		}
+		if(node == items.capacity()) {
+			items.ensureCapacity(nodeCount);
+			counts.ensureCapacity(nodeCount);
+			parents.ensureCapacity(nodeCount);
+			firstChildren.ensureCapacity(nodeCount);
+			nextSiblings.ensureCapacity(nodeCount);
+			nodelinks.ensureCapacity(nodeCount);
+			childCounts.ensureCapacity(nodeCount);
+			if(prevSiblings != null) {
+				prevSiblings.ensureCapacity(nodeCount);
+				prevNodelinks.ensureCapacity(nodeCount);
+			}
+		}
+		items.set(node, item);
+		counts.set(node, count);
+		parents.set(node, parent);
+		firstChildren.set(node, NULL);
+		nextSiblings.set(node, NULL);
+		nodelinks.set(node, NULL);
+		childCounts.set(node, 0);
+		if(prevSiblings != null) {
+			prevSiblings.set(node, NULL);
+			prevNodelinks.set(node, NULL);
+		}
+		return node;
+	}
+	
+	/**
+	 * Get the child node by given a item.
+	 * A node with few children scans its list of siblings,
+	 * a node with many children looks up the child index.
+	 * @param node  the parent node
+	 * @param item  the given item
+	 * @return child node with that item, or NULL if no such node exists
+	 */
+	private int getChildByItem(int node, int item) {
+		if(childCounts.get(node) > childIndexThreshold) {
+			return childIndex.get(node, item);
+		}
+		int child = firstChildren.get(node);
+		while(child != NULL && items.get(child) != item) {
+			child = nextSiblings.get(child);
+		}
+		return child;
+	}
+	
+	/**
+	 * Add a new child to the list of children of a node.
+	 * @param node  the parent node
+	 * @param item  item of the child
+	 * @param child  the new child
+	 */
+	private void addChild(int node, int item, int child) {
+		int firstChild = firstChildren.get(node);
+		nextSiblings.set(child, firstChild);
+		if(prevSiblings != null && firstChild != NULL) {
+			prevSiblings.set(firstChild, child);
+		}
+		firstChildren.set(node, child);
+		int childCount = childCounts.get(node) + 1;
+		childCounts.set(node, childCount);
+		if(childCount == 2) {
+			//the tree no longer contains a single path
+			branchingNodeCount++;
+		}
+		if(childCount > childIndexThreshold) {
+			if(childIndex == null) {
+				childIndex = new ChildIndex();
+			}
+			if(childCount == childIndexThreshold + 1) {
+				//too many children, put all children into the index
+				for(int c = child; c != NULL; c = nextSiblings.get(c)) {
+					childIndex.put(node, items.get(c), c);
+				}
+			} else {
+				childIndex.put(node, item, child);
+			}
+		}
+	}
+	
 	/**
 	 * Add node link after inserting a new node.
-	 * Called by method addTransaction() and method addPrefixPath().
+	 * Called by method addPath().
 	 * @param item
 	 * @param newNode
 	 */
-	private void addNodeLink(FPNode newNode) {
-		FPNode lastNode = mapLastNode.get(newNode.item);
-		if(lastNode != null) {
+	private void addNodeLink(int item, int newNode) {
+		int lastNode = lastNodes[item];
+		if(lastNode != NULL) {
 			//has last node, add node link to the new node
-			lastNode.nodelink = newNode;
+			nodelinks.set(lastNode, newNode);
+			if(prevNodelinks != null) {
+				prevNodelinks.set(newNode, lastNode);
+			}
 		} else {
 			//no last node, add newNode to header table
-			mapHeaderNode.put(newNode.item, newNode);
+			headerNodes[item] = newNode;
+			headerList[headerListLength++] = item;
 		}
 		//set new node as last node
-		mapLastNode.put(newNode.item, newNode);
+		lastNodes[item] = newNode;
 	}
 	
 	/**
 	 * Insert one transaction into FP-tree.
 	 * Called when creating the base FP-tree.
-	 * @param transaction
+	 * @param transaction  items sorted in ascending order
+	 * @param length  number of items in transaction
+	 */
+	public void addTransaction(int[] transaction, int length) {
+		addPath(transaction, length, 1);
+	}
+	
+	/**
+	 * Insert a path of items with the same support into FP-tree.
+	 * Called when creating the base FP-tree and the conditional FP-tree.
+	 * @param path  items sorted in ascending order
+	 * @param length  number of items in path
+	 * @param pathCount  support of the path
 	 */
-	public void addTransaction(List<String> transaction) {
-		FPNode currentNode = root;
-		for(String item: transaction) {
-			FPNode childNode = currentNode.getChildByItem(item);
-			if(childNode == null) {
+	public void addPath(int[] path, int length, int pathCount) {
+		insertedItemCount += length;
+		if(fpArray != null) {
+			//count each pair of items in the path
+			for(int j = 1; j < length; j++) {
+				int base = path[j] * (path[j] - 1) / 2;
+				for(int i = 0; i < j; i++) {
+					fpArray[base + path[i]] += pathCount;
+				}
+			}
+		}
+		int currentNode = ROOT;
+		for(int i = 0; i < length; i++) {
+			int item = path[i];
+			supports[item] += pathCount;
+			int childNode = getChildByItem(currentNode, item);
+			if(childNode == NULL) {
 				//no such node, add one
-				FPNode newNode = new FPNode();
-				newNode.item = item;
-				newNode.count = 1;
-				newNode.parent = currentNode;
-				currentNode.children.add(newNode);
+				int newNode = newNode(item, pathCount, currentNode);
+				addChild(currentNode, item, newNode);
 				//add node link
-				addNodeLink(newNode);	
-				//check if it contains a single path
-				if(hasSinglePath == true && currentNode.children.size() > 1) {
-					hasSinglePath = false;
-				}
+				addNodeLink(item, newNode);
 				currentNode = newNode;
 			}
 			else {
-				//has a child, increase count by 1
-				childNode.count++;
+				//has a child, increase count by path count
+				counts.add(childNode, pathCount);
+				currentNode = childNode;
+			}
+		}
+	}
+	
+	/**
+	 * Remove a path of items inserted before from FP-tree, e.g. an expired transaction of a sliding window.
+	 * Counts of the nodes on the path are decreased,
+	 * and the nodes whose count becomes zero are unlinked and reused by later insertions.
+	 * Removal must be enabled before inserting any path.
+	 * @param path  items sorted in ascending order
+	 * @param length  number of items in path
+	 * @param pathCount  support of the path
+	 */
+	public void removePath(int[] path, int length, int pathCount) {
+		insertedItemCount -= length;
+		int currentNode = ROOT;
+		for(int i = 0; i < length; i++) {
+			int item = path[i];
+			supports[item] -= pathCount;
+			int childNode = getChildByItem(currentNode, item);
+			int count = counts.get(childNode) - pathCount;
+			if(count > 0) {
+				counts.set(childNode, count);
 				currentNode = childNode;
+				continue;
 			}
+			//no other path shares the node,
+			//so the rest of the path is a chain of nodes of this path only
+			for(int j = i + 1; j < length; j++) {
+				supports[path[j]] -= pathCount;
+			}
+			removeChild(currentNode, item, childNode);
+			int node = childNode;
+			while(node != NULL) {
+				int child = firstChildren.get(node);
+				if(childIndex != null && child != NULL) {
+					//the node may have had many children before
+					childIndex.remove(node, items.get(child));
+				}
+				removeNodeLink(items.get(node), node);
+				//put the node into the free list
+				nextSiblings.set(node, freeList);
+				freeList = node;
+				freeCount++;
+				node = child;
+			}
+			return;
 		}
 	}
 	
 	/**
-	 * Insert one prefix path into FP-tree.
-	 * Called when creating the conditional FP-tree.
-	 * @param path  a prefix path to be added
+	 * Remove a child from the list of children of a node.
+	 * @param node  the parent node
+	 * @param item  item of the child
+	 * @param child  the child to be removed
+	 */
+	private void removeChild(int node, int item, int child) {
+		int prevSibling = prevSiblings.get(child);
+		int nextSibling = nextSiblings.get(child);
+		if(prevSibling == NULL) {
+			firstChildren.set(node, nextSibling);
+		} else {
+			nextSiblings.set(prevSibling, nextSibling);
+		}
+		if(nextSibling != NULL) {
+			prevSiblings.set(nextSibling, prevSibling);
+		}
+		int childCount = childCounts.get(node) - 1;
+		childCounts.set(node, childCount);
+		if(childCount == 1) {
+			branchingNodeCount--;
+		}
+		if(childIndex != null) {
+			//an indexed child must not be found after its node is reused
+			childIndex.remove(node, item);
+		}
+	}
+	
+	/**
+	 * Remove node link of a node to be removed.
+	 * If it is the last node of its item, the item is removed from header list.
+	 * @param item
+	 * @param node
+	 */
+	private void removeNodeLink(int item, int node) {
+		int prevNode = prevNodelinks.get(node);
+		int nextNode = nodelinks.get(node);
+		if(prevNode == NULL) {
+			headerNodes[item] = nextNode;
+		} else {
+			nodelinks.set(prevNode, nextNode);
+		}
+		if(nextNode == NULL) {
+			lastNodes[item] = prevNode;
+		} else {
+			prevNodelinks.set(nextNode, prevNode);
+		}
+		if(headerNodes[item] == NULL) {
+			//keep header list sorted
+			int i = 0;
+			while(headerList[i] != item) {
+				i++;
+			}
+			System.arraycopy(headerList, i + 1, headerList, i, headerListLength - i - 1);
+			headerListLength--;
+		}
+	}
+	
+	/**
+	 * Create the conditional FP-tree of an item in header list.
+	 * The conditional pattern base is the set of prefix paths of the nodes with that item,
+	 * it is never stored but scanned twice by node links and parent links:
+	 * first to count each single item in it, then to add each prefix path to the new tree.
+	 * Items of a prefix path are always before the item in header list,
+	 * so the buffers need no more than item entries.
+	 * If this tree has an FP-array, the counts are read from it instead of the first scan.
+	 * The new tree builds its own FP-array if it is small enough 
+	 * and, in auto mode, if this tree is sparse.
+	 * @param item  item in header list
+	 * @param minSupport  absolute minimum support
+	 * @param buffer  buffers of the mining thread
+	 * @return the conditional FP-tree, with header list created
+	 */
+	public FPTree createConditionalTree(int item, int minSupport, MiningBuffer buffer) {
+		return createConditionalTree(item, minSupport, false, buffer);
+	}
+	
+	/**
+	 * Create the conditional FP-tree of an item in header list, merging items if asked.
+	 * An item whose count in the conditional pattern base equals the support of the item in header list
+	 * occurs in every prefix path, so every pattern of the conditional FP-tree can be extended by it 
+	 * with the same support. Merged items are not added to the new tree,
+	 * but put into buffer.mergedItems as item ids in database.
+	 * @param item  item in header list
 	 * @param minSupport  absolute minimum support
+	 * @param mergeItems  true to merge the items occurring in every prefix path
+	 * @param buffer  buffers of the mining thread
+	 * @return the conditional FP-tree, with header list created
 	 */
-	public void addPrefixPath(List<FPNode> path, int minSupport) {
-		//get support of the path 
-		int pathCount = path.get(0).count;
+	public FPTree createConditionalTree(int item, int minSupport, boolean mergeItems, MiningBuffer buffer) {
+		buffer.ensureCapacity(item);
+		buffer.mergedCount = 0;
+		//count of each single item in the conditional pattern base,
+		//and the item in conditional FP-tree of each frequent item,
+		//reset after the conditional FP-tree is created
+		int[] counts = buffer.counts;
+		int[] newItems = buffer.newItems;
+		//items whose count is not zero
+		int[] touched = buffer.touched;
+		int touchedCount = 0;
+		
+		int newItemCount = 0;
+		if(fpArray != null) {
+			//get count of each single item in conditional pattern base from FP-array,
+			//touched items are the frequent ones, already in ascending order
+			int base = item * (item - 1) / 2;
+			for(int a = 0; a < item; a++) {
+				int count = fpArray[base + a];
+				if(count > 0 && count >= minSupport) {
+					if(mergeItems == true && count == supports[item]) {
+						buffer.mergedItems[buffer.mergedCount++] = itemIds[a];
+					} else {
+						touched[touchedCount++] = a;
+						newItems[a] = newItemCount++;
+					}
+				}
+			}
+		} else {
+			//get count of each single item in conditional pattern base
+			for(int node = headerNodes[item]; node != NULL; node = nodelinks.get(node)) {
+				//get support of the path 
+				int pathCount = this.counts.get(node);
+				for(int parent = parents.get(node); parent != ROOT; parent = parents.get(parent)) {
+					int pathItem = items.get(parent);
+					if(counts[pathItem] == 0) {
+						//first time to see the item
+						touched[touchedCount++] = pathItem;
+					}
+					counts[pathItem] += pathCount;
+				}
+			}
+			//number frequent items in descending order of support
+			Arrays.sort(touched, 0, touchedCount);
+			for(int j = 0; j < touchedCount; j++) {
+				if(counts[touched[j]] >= minSupport) {
+					if(mergeItems == true && counts[touched[j]] == supports[item]) {
+						buffer.mergedItems[buffer.mergedCount++] = itemIds[touched[j]];
+					} else {
+						newItems[touched[j]] = newItemCount++;
+					}
+				}
+			}
+		}
+		if(statistics != null) {
+			statistics.addConditionalTree(fpArray != null);
+		}
+		int[] newItemIds = new int[newItemCount];
+		for(int j = 0; j < touchedCount; j++) {
+			if(newItems[touched[j]] >= 0) {
+				newItemIds[newItems[touched[j]]] = itemIds[touched[j]];
+			}
+		}
 		
-		FPNode currentNode = root;
-		for(int i = path.size()-1; i >= 1; i--) {
-			FPNode node = path.get(i);
-			if(mapSingleItem.get(node.item) >= minSupport) {
-				//if item is frequent, add it to the tree
-				FPNode childNode = currentNode.getChildByItem(node.item);
-				if(childNode == null) {
-					//no such node, add one
-					FPNode newNode = new FPNode();
-					newNode.item = node.item;
-					newNode.count = pathCount;
-					newNode.parent = currentNode;
-					currentNode.children.add(newNode);
-					//add node link
-					addNodeLink(newNode);	
-					//check if it contains a single path
-					if(hasSinglePath == true && currentNode.children.size() > 1) {
-						hasSinglePath = false;
+		//add each prefix path to conditional FP-tree
+		FPTree newTree = new FPTree(newItemIds);
+		newTree.setMiningMode(fpArrayMode, statistics);
+		if(newItemCount > 1 && isArraySmall(newItemCount)
+				&& (fpArrayMode == MiningOptions.FPArray.ON || fpArrayMode == MiningOptions.FPArray.AUTO && isSparse())) {
+			newTree.buildFPArray(false);
+		}
+		if(newItemCount > 0) {
+			int[] path = buffer.path;
+			for(int node = headerNodes[item]; node != NULL; node = nodelinks.get(node)) {
+				//collect frequent items of the path from bottom to top
+				int length = 0;
+				for(int parent = parents.get(node); parent != ROOT; parent = parents.get(parent)) {
+					int newItem = newItems[items.get(parent)];
+					if(newItem >= 0) {
+						path[length++] = newItem;
 					}
-					currentNode = newNode;
 				}
-				else {
-					//has a child, increase count by path count
-					childNode.count += pathCount;
-					currentNode = childNode;
+				//reverse the items to insert them from top to bottom
+				for(int i = 0, j = length-1; i < j; i++, j--) {
+					int t = path[i];
+					path[i] = path[j];
+					path[j] = t;
 				}
-				
+				newTree.addPath(path, length, this.counts.get(node));
 			}
 		}
+		//reset buffers for next item
+		for(int j = 0; j < touchedCount; j++) {
+			counts[touched[j]] = 0;
+			newItems[touched[j]] = -1;
+		}
+		newTree.createHeaderList();
+		return newTree;
 	}
 	
 	/**
-	 * Create list of items in header table, in descending order of support 
-	 * @param mapSingleItemInDatabase  count of each single item in database
+	 * Create list of items in header table, in descending order of support.
+	 * Items are numbered by support, so the list is sorted in ascending order of item.
 	 */
-	public void createHeaderList(Map<String, Integer> mapSingleItemInDatabase) {
-		headerList = new ArrayList<String>(mapHeaderNode.keySet());
-		//sort in descending order of support
-		Collections.sort(headerList, new Comparator<String>() {
-			@Override
-			public int compare(String item1, String item2) { 
-				int compare = mapSingleItemInDatabase.get(item2) - mapSingleItemInDatabase.get(item1);
-				// if same support, sort in lexicographical order
-				if(compare == 0){ 
-					return item1.compareTo(item2);
-				}
-				return compare;
-			}
-		});
-		//print header table after creating a new FP-tree 
+	public void createHeaderList() {
+		Arrays.sort(headerList, 0, headerListLength);
+		//print header table after creating a new FP-tree
 //		System.out.print("HeaderTable: ");
 //		printHeaderTable();
 	}
 	
+	/**
+	 * Write this tree to a snapshot: its header table, its node arrays and its FP-array.
+	 * Links to remove paths are not written, so a loaded tree cannot remove paths.
+	 * @param out  writer of the snapshot file
+	 * @throws IOException
+	 */
+	public void save(TreeSnapshot.Writer out) throws IOException {
+		out.writeInt(nodeCount);
+		out.writeInt(itemCount);
+		out.writeInt(headerListLength);
+		out.writeInt(freeList);
+		out.writeInt(freeCount);
+		out.writeInt(branchingNodeCount);
+		out.writeInt(childIndexThreshold);
+		out.writeLong(insertedItemCount);
+		out.writeInts(itemIds, itemCount);
+		out.writeInts(headerList, headerListLength);
+		out.writeInts(supports, itemCount);
+		out.writeInts(headerNodes, itemCount);
+		out.writeInts(lastNodes, itemCount);
+		for(ChunkedIntArray array : new ChunkedIntArray[] {items, counts, parents, firstChildren, nextSiblings, nodelinks, childCounts}) {
+			out.writeInts(array, nodeCount);
+		}
+		out.writeInt(fpArray == null ? -1 : fpArray.length);
+		if(fpArray != null) {
+			out.writeInts(fpArray, fpArray.length);
+		}
+	}
+	
+	/**
+	 * Read a tree written by method save().
+	 * The index of children is rebuilt from the lists of siblings.
+	 * @param in  reader of the snapshot file
+	 * @return the tree
+	 * @throws IOException
+	 */
+	public static FPTree load(TreeSnapshot.Reader in) throws IOException {
+		int nodeCount = in.readInt();
+		int itemCount = in.readInt();
+		int headerListLength = in.readInt();
+		int freeList = in.readInt();
+		int freeCount = in.readInt();
+		int branchingNodeCount = in.readInt();
+		int childIndexThreshold = in.readInt();
+		long insertedItemCount = in.readLong();
+		FPTree tree = new FPTree(in.readInts(itemCount), nodeCount);
+		tree.nodeCount = nodeCount;
+		tree.headerListLength = headerListLength;
+		tree.freeList = freeList;
+		tree.freeCount = freeCount;
+		tree.branchingNodeCount = branchingNodeCount;
+		tree.childIndexThreshold = childIndexThreshold;
+		tree.insertedItemCount = insertedItemCount;
+		System.arraycopy(in.readInts(headerListLength), 0, tree.headerList, 0, headerListLength);
+		tree.supports = in.readInts(itemCount);
+		tree.headerNodes = in.readInts(itemCount);
+		tree.lastNodes = in.readInts(itemCount);
+		for(ChunkedIntArray array : new ChunkedIntArray[] {tree.items, tree.counts, tree.parents, tree.firstChildren, 
+				tree.nextSiblings, tree.nodelinks, tree.childCounts}) {
+			in.readInts(array, nodeCount);
+		}
+		int fpArrayLength = in.readInt();
+		if(fpArrayLength >= 0) {
+			tree.fpArray = in.readInts(fpArrayLength);
+		}
+		//index children of the nodes having many children
+		for(int node = 0; node < nodeCount; node++) {
+			if(tree.childCounts.get(node) > childIndexThreshold) {
+				if(tree.childIndex == null) {
+					tree.childIndex = new ChildIndex();
+				}
+				for(int c = tree.firstChildren.get(node); c != NULL; c = tree.nextSiblings.get(c)) {
+					tree.childIndex.put(node, tree.items.get(c), c);
+				}
+			}
+		}
+		return tree;
+	}
+	
 	/**
 	 * Traverse FP-tree.
 	 */
 	public void traverse() {
 		System.out.println("FP-tree:");
-		traverseHelper(root, 0);
+		traverseHelper(ROOT, 0);
 		System.out.println("");
 	}
 	
 	/**
 	 * Depth first traverse FP-tree recursively.
-	 * @param node 
+	 * @param node
 	 * @param depth  depth of node in tree
 	 */
-	public void traverseHelper(FPNode node, int depth) {
-		if(node == null)
+	public void traverseHelper(int node, int depth) {
+		if(node == NULL)
 			return;
 		for(int i = 0; i < depth*3; i++)
 			System.out.print(" ");
-		System.out.println(node);
-		for(FPNode child : node.children) {
+		System.out.println(getItem(node) + ": " + getCount(node));
+		for(int child = firstChildren.get(node); child != NULL; child = nextSiblings.get(child)) {
 			traverseHelper(child, depth+1);
 		}
 	}
-	
+
 }
@@ -0,0 +1,91 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark of FP-tree construction on a dataset with high fan-out.
+ * Every transaction starts with a random item out of many,
+ * so the root and the nodes near it have thousands of children.
+ * The tree is built with the child index, and again with scanning siblings only.
+ *
+ * Usage: java FPTreeBenchmark [transactions] [items] [maxLength]
+ */
+public class FPTreeBenchmark {
+	
+	/**
+	 * number of times each construction is repeated, the best time is reported
+	 */
+	private static final int ROUNDS = 3;
+	
+	/**
+	 * Generate random transactions with items sorted in ascending order.
+	 * @param transactionCount  number of transactions
+	 * @param itemCount  number of distinct items
+	 * @param maxLength  maximum number of items in a transaction
+	 * @return transactions
+	 */
+	private static int[][] generate(int transactionCount, int itemCount, int maxLength) {
+		Random random = new Random(588);
+		int[][] transactions = new int[transactionCount][];
+		for(int t = 0; t < transactionCount; t++) {
+			int length = 1 + random.nextInt(maxLength);
+			int[] transaction = new int[length];
+			for(int i = 0; i < length; i++) {
+				transaction[i] = random.nextInt(itemCount);
+			}
+			Arrays.sort(transaction);
+			//remove duplicate items
+			int n = 1;
+			for(int i = 1; i < length; i++) {
+				if(transaction[i] != transaction[n-1]) {
+					transaction[n++] = transaction[i];
+				}
+			}
+			transactions[t] = Arrays.copyOf(transaction, n);
+		}
+		return transactions;
+	}
+	
+	/**
+	 * Build an FP-tree and return the best running time.
+	 * @param transactions
+	 * @param itemCount  number of distinct items
+	 * @param childIndexThreshold  threshold of child index in FP-tree
+	 * @return best running time in ms
+	 */
+	private static long build(int[][] transactions, int itemCount, int childIndexThreshold) {
+		long best = Long.MAX_VALUE;
+		int nodeCount = 0;
+		for(int round = 0; round < ROUNDS; round++) {
+			long startTime = System.nanoTime();
+			FPTree tree = new FPTree(itemCount);
+			tree.setChildIndexThreshold(childIndexThreshold);
+			for(int[] transaction : transactions) {
+				tree.addTransaction(transaction, transaction.length);
+			}
+			long endTime = System.nanoTime();
+			best = Math.min(best, (endTime - startTime) / 1000000);
+			nodeCount = tree.getNodeCount();
+		}
+		System.out.println("  nodes: " + nodeCount + ", best of " + ROUNDS + ": " + best + "ms");
+		return best;
+	}
+	
+	/**
+	 * Main method.
+	 * @param args  [transactions] [items] [maxLength]
+	 */
+	public static void main(String[] args) {
+		int transactionCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int itemCount = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		int maxLength = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		System.out.println("FP-tree construction: " + transactionCount + " transactions, "
+				+ itemCount + " items, at most " + maxLength + " items per transaction\n");
+		int[][] transactions = generate(transactionCount, itemCount, maxLength);
+		
+		System.out.println("Scan list of siblings:");
+		long scanTime = build(transactions, itemCount, Integer.MAX_VALUE);
+		System.out.println("Child index:");
+		long indexTime = build(transactions, itemCount, 8);
+		System.out.println("\nSpeedup: " + String.format("%.1f", (double) scanTime / Math.max(1, indexTime)) + "x");
+	}
+}
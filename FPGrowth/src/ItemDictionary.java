@@ -0,0 +1,353 @@
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Class for the item dictionary.
+ * Each distinct item gets a code when it is read for the first time.
+ * Items are looked up by their bytes in the default charset of files in an open-addressing hash table,
+ * so a String is only created for the first occurrence of an item.
+ * After the counting scan, items are ranked in descending order of support,
+ * and the rank is the integer item id used by FP-tree and FP-growth.
+ * Item names are only needed again when patterns are written out.
+ */
+public class ItemDictionary {
+	/**
+	 * hash table of codes, -1 for an empty slot
+	 */
+	private int[] table;
+	
+	/**
+	 * capacity of hash table - 1, capacity is a power of 2
+	 */
+	private int mask;
+	
+	/**
+	 * bytes of each code
+	 */
+	private byte[][] keys;
+	
+	/**
+	 * hash of each code
+	 */
+	private int[] hashes;
+	
+	/**
+	 * item name of each code
+	 */
+	private String[] names;
+	
+	/**
+	 * support of each code
+	 */
+	private int[] supports;
+	
+	/**
+	 * number of distinct items
+	 */
+	private int size;
+	
+	/**
+	 * item id of each code, valid after ranking
+	 */
+	private int[] itemOfCode;
+	
+	/**
+	 * code of each item id, valid after ranking
+	 */
+	private int[] codeOfItem;
+	
+	/**
+	 * Constructor.
+	 */
+	public ItemDictionary() {
+		table = new int[64];
+		Arrays.fill(table, -1);
+		mask = table.length - 1;
+		keys = new byte[16][];
+		hashes = new int[16];
+		names = new String[16];
+		supports = new int[16];
+		size = 0;
+	}
+	
+	/**
+	 * Get number of distinct items.
+	 * @return number of distinct items
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Get hash of a byte range.
+	 * @param bytes
+	 * @param start  index of first byte
+	 * @param end  index after last byte
+	 * @return hash
+	 */
+	private static int hash(byte[] bytes, int start, int end) {
+		int h = 0;
+		for(int i = start; i < end; i++) {
+			h = 31 * h + bytes[i];
+		}
+		//spread bits of the hash
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * Find the slot of a byte range in hash table.
+	 * @param bytes
+	 * @param start  index of first byte
+	 * @param end  index after last byte
+	 * @param h  hash of the byte range
+	 * @return slot holding code of the item, or an empty slot if no such item
+	 */
+	private int find(byte[] bytes, int start, int end, int h) {
+		int length = end - start;
+		for(int i = h & mask; ; i = (i + 1) & mask) {
+			int code = table[i];
+			if(code < 0) {
+				return i;
+			}
+			if(hashes[code] == h && keys[code].length == length) {
+				byte[] key = keys[code];
+				int j = 0;
+				while(j < length && key[j] == bytes[start + j]) {
+					j++;
+				}
+				if(j == length) {
+					return i;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Add occurrences of an item given by its bytes.
+	 * @param bytes
+	 * @param start  index of first byte
+	 * @param end  index after last byte
+	 * @param name  item name, or null to decode it from the bytes if the item is new
+	 * @param count  number of occurrences
+	 * @return code of the item
+	 */
+	private int add(byte[] bytes, int start, int end, String name, int count) {
+		int h = hash(bytes, start, end);
+		int slot = find(bytes, start, end, h);
+		int code = table[slot];
+		if(code < 0) {
+			//no such item, give it a new code
+			if(size == names.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				hashes = Arrays.copyOf(hashes, size * 2);
+				names = Arrays.copyOf(names, size * 2);
+				supports = Arrays.copyOf(supports, size * 2);
+			}
+			code = size;
+			keys[code] = Arrays.copyOfRange(bytes, start, end);
+			hashes[code] = h;
+			names[code] = name != null ? name : new String(bytes, start, end - start, Charset.defaultCharset());
+			table[slot] = code;
+			size++;
+			if(size * 2 > table.length) {
+				//keep load factor no more than 0.5
+				resize(table.length * 2);
+			}
+		}
+		supports[code] += count;
+		return code;
+	}
+	
+	/**
+	 * Resize the hash table.
+	 * @param capacity  new capacity, a power of 2
+	 */
+	private void resize(int capacity) {
+		table = new int[capacity];
+		Arrays.fill(table, -1);
+		mask = capacity - 1;
+		for(int code = 0; code < size; code++) {
+			int i = hashes[code] & mask;
+			while(table[i] >= 0) {
+				i = (i + 1) & mask;
+			}
+			table[i] = code;
+		}
+	}
+	
+	/**
+	 * Add one occurrence of an item given by its bytes.
+	 * @param bytes
+	 * @param start  index of first byte
+	 * @param end  index after last byte
+	 * @return code of the item
+	 */
+	public int add(byte[] bytes, int start, int end) {
+		return add(bytes, start, end, null, 1);
+	}
+	
+	/**
+	 * Get code of an item given by its bytes, adding it with no occurrence if it is new.
+	 * @param bytes
+	 * @param start  index of first byte
+	 * @param end  index after last byte
+	 * @return code of the item
+	 */
+	public int intern(byte[] bytes, int start, int end) {
+		return add(bytes, start, end, null, 0);
+	}
+	
+	/**
+	 * Add one occurrence of an item given by its code.
+	 * @param code  code of the item
+	 */
+	public void count(int code) {
+		supports[code]++;
+	}
+	
+	/**
+	 * Add one occurrence of an item.
+	 * @param name  item name
+	 * @return code of the item
+	 */
+	public int add(String name) {
+		byte[] bytes = name.getBytes(Charset.defaultCharset());
+		return add(bytes, 0, bytes.length, name, 1);
+	}
+	
+	/**
+	 * Add an item given by its bytes with its support, e.g. when a snapshot is loaded.
+	 * @param bytes  bytes of the item
+	 * @param support  number of occurrences
+	 * @return code of the item
+	 */
+	public int add(byte[] bytes, int support) {
+		return add(bytes, 0, bytes.length, null, support);
+	}
+	
+	/**
+	 * Get code of the given item name.
+	 * @param name  item name
+	 * @return code of the item, or -1 if no such item
+	 */
+	public int getCode(String name) {
+		byte[] bytes = name.getBytes(Charset.defaultCharset());
+		return table[find(bytes, 0, bytes.length, hash(bytes, 0, bytes.length))];
+	}
+	
+	/**
+	 * Add all items of another dictionary with their supports.
+	 * Used to merge the dictionaries of chunks counted in parallel.
+	 * @param other  dictionary to be merged into this one
+	 * @return code in this dictionary of each code in other dictionary
+	 */
+	public int[] merge(ItemDictionary other) {
+		int[] codes = new int[other.size];
+		for(int code = 0; code < other.size; code++) {
+			byte[] key = other.keys[code];
+			codes[code] = add(key, 0, key.length, other.names[code], other.supports[code]);
+		}
+		return codes;
+	}
+	
+	/**
+	 * Rank items in descending order of support.
+	 * If same support, items are ranked in lexicographical order.
+	 */
+	public void rankBySupport() {
+		Integer[] codes = new Integer[size];
+		for(int i = 0; i < size; i++) {
+			codes[i] = i;
+		}
+		Arrays.sort(codes, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer code1, Integer code2) {
+				int compare = supports[code2] - supports[code1];
+				// if same support, sort in lexicographical order
+				if(compare == 0) {
+					return names[code1].compareTo(names[code2]);
+				}
+				return compare;
+			}
+		});
+		itemOfCode = new int[size];
+		codeOfItem = new int[size];
+		for(int i = 0; i < size; i++) {
+			codeOfItem[i] = codes[i];
+			itemOfCode[codes[i]] = i;
+		}
+	}
+	
+	/**
+	 * Rank items in canonical order, the order they were first read, i.e. item id = code.
+	 * Ids of items do not change when transactions are appended, 
+	 * and new items get ids after all old items.
+	 * Frequent items are not the first items in canonical order, so getFrequentItemCount() is not valid.
+	 */
+	public void rankByCode() {
+		itemOfCode = new int[size];
+		codeOfItem = new int[size];
+		for(int i = 0; i < size; i++) {
+			codeOfItem[i] = i;
+			itemOfCode[i] = i;
+		}
+	}
+	
+	/**
+	 * Get item id of the given code.
+	 * @param code  code of the item
+	 * @return item id
+	 */
+	public int getItem(int code) {
+		return itemOfCode[code];
+	}
+	
+	/**
+	 * Get item name of the given item id.
+	 * @param item  item id
+	 * @return item name
+	 */
+	public String getName(int item) {
+		return names[codeOfItem[item]];
+	}
+	
+	/**
+	 * Get bytes of the given item id, as read from input file.
+	 * @param item  item id
+	 * @return bytes of the item, not to be modified
+	 */
+	public byte[] getBytes(int item) {
+		return keys[codeOfItem[item]];
+	}
+	
+	/**
+	 * Get support of the given item id in database.
+	 * @param item  item id
+	 * @return support of the item
+	 */
+	public int getSupport(int item) {
+		return supports[codeOfItem[item]];
+	}
+	
+	/**
+	 * Get number of frequent items.
+	 * Frequent items are the first items in ranked order.
+	 * @param minSupport  absolute minimum support
+	 * @return number of items whose support is no less than minSupport
+	 */
+	public int getFrequentItemCount(int minSupport) {
+		int low = 0;
+		int high = size;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(getSupport(mid) >= minSupport) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
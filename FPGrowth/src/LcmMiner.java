@@ -0,0 +1,551 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class for mining frequent patterns in the way of LCM, on arrays of transactions instead of trees.
+ * A database is one int array of the items of all its transactions, each sorted in ascending order of item,
+ * with the start and weight of each transaction, where identical transactions are merged into one
+ * whose weight is their number.
+ * Mining a database first delivers each transaction to the occurrence list of each of its items in one sweep.
+ * The conditional database of item e is then made from the occurrence list of e:
+ * one sweep counts the frequency of every item before e, and a second one keeps
+ * the frequent items before e of each transaction, renumbered, and merges identical transactions again,
+ * so conditional databases shrink quickly and have no pointers to follow.
+ * Items of a database are numbered 0, 1, ... in descending order of support like FPTree,
+ * and a conditional database keeps the items before e, so a pattern is built in descending order of item id
+ * and the same pattern sink as FPGrowth receives it.
+ * Each mining thread counts the items of a projection in buffers it reuses, and cleans up only the items touched,
+ * so a projection costs in proportion to its transactions rather than to the number of items before e.
+ * In parallel mode, the conditional databases of the items of the database are mined by fork-join tasks.
+ */
+public class LcmMiner {
+	/**
+	 * the items touched by a projection are sorted if they are fewer than the items before e divided by this ratio,
+	 * otherwise they are collected in order by scanning the counts
+	 */
+	private static final int SORT_RATIO = 16;
+	
+	/**
+	 * receive frequent patterns
+	 */
+	private final PatternSink sink;
+	
+	/**
+	 * absolute minimum support
+	 */
+	private final int minSupport;
+	
+	/**
+	 * number of frequent items in database
+	 */
+	private final int itemCount;
+	
+	/**
+	 * database of all transactions, being built
+	 */
+	private Database database;
+	
+	/**
+	 * number of transactions added to the database
+	 */
+	private long transactionTotal;
+	
+	/**
+	 * number of conditional databases built
+	 */
+	private final AtomicLong databaseCount = new AtomicLong();
+	
+	/**
+	 * number of transactions projected into conditional databases, before merging
+	 */
+	private final AtomicLong projectedCount = new AtomicLong();
+	
+	/**
+	 * number of transactions of conditional databases, after merging
+	 */
+	private final AtomicLong mergedCount = new AtomicLong();
+	
+	/**
+	 * buffers of each mining thread
+	 */
+	private final ThreadLocal<ProjectionBuffer> buffers = new ThreadLocal<ProjectionBuffer>() {
+		@Override
+		protected ProjectionBuffer initialValue() {
+			return new ProjectionBuffer();
+		}
+	};
+	
+	/**
+	 * Constructor.
+	 * @param sink  receive frequent patterns
+	 * @param minSupport  absolute minimum support
+	 * @param itemCount  number of frequent items in database
+	 */
+	public LcmMiner(PatternSink sink, int minSupport, int itemCount) {
+		this.sink = sink;
+		this.minSupport = minSupport;
+		this.itemCount = itemCount;
+		database = new Database(itemCount, identity(itemCount), 1024);
+		transactionTotal = 0;
+	}
+	
+	/**
+	 * Create array {0, 1, ..., n-1}.
+	 * @param n
+	 * @return the array
+	 */
+	private static int[] identity(int n) {
+		int[] array = new int[n];
+		for(int i = 0; i < n; i++) {
+			array[i] = i;
+		}
+		return array;
+	}
+	
+	/**
+	 * Add a transaction to the database.
+	 * @param items  frequent items of the transaction, sorted in ascending order
+	 * @param length  number of items
+	 */
+	public void addTransaction(int[] items, int length) {
+		transactionTotal++;
+		if(length == 0) {
+			return;
+		}
+		for(int i = 0; i < length; i++) {
+			database.supports[items[i]]++;
+			database.occurrenceCounts[items[i]]++;
+		}
+		database.add(items, length, 1);
+	}
+	
+	/**
+	 * Mine all frequent patterns.
+	 * @param pool  fork-join pool in parallel mode, null to mine in this thread
+	 */
+	public void mine(ForkJoinPool pool) {
+		Database root = database;
+		database = null;
+		root.finish();
+		if(pool == null) {
+			mineDatabase(root, new int[itemCount], 0);
+			return;
+		}
+		int[][] occurrences = root.deliver();
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected void compute() {
+				List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+				for(int e = root.itemCount-1; e >= 0; e--) {
+					int item = e;
+					tasks.add(new RecursiveAction() {
+						private static final long serialVersionUID = 1L;
+						@Override
+						protected void compute() {
+							mineItem(root, occurrences, item, new int[itemCount], 0);
+						}
+					});
+				}
+				ForkJoinTask.invokeAll(tasks);
+			}
+		});
+	}
+	
+	/**
+	 * Mine the patterns of a database, each of which has an item of the database after a prefix.
+	 * @param db  the database
+	 * @param pattern  items of the prefix, in descending order of item id
+	 * @param depth  number of items of the prefix
+	 */
+	private void mineDatabase(Database db, int[] pattern, int depth) {
+		int[][] occurrences = db.deliver();
+		for(int e = db.itemCount-1; e >= 0; e--) {
+			mineItem(db, occurrences, e, pattern, depth);
+		}
+	}
+	
+	/**
+	 * Generate the pattern of an item after a prefix, and mine the conditional database of the item.
+	 * @param db  database of the prefix
+	 * @param occurrences  occurrence list of each item of the database
+	 * @param e  the item
+	 * @param pattern  items of the prefix, in descending order of item id
+	 * @param depth  number of items of the prefix
+	 */
+	private void mineItem(Database db, int[][] occurrences, int e, int[] pattern, int depth) {
+		pattern[depth] = db.itemIds[e];
+		sink.accept(pattern, depth + 1, db.supports[e]);
+		if(e == 0) {
+			return;
+		}
+		Database child = project(db, occurrences[e], e);
+		if(child != null) {
+			mineDatabase(child, pattern, depth + 1);
+		}
+	}
+	
+	/**
+	 * Create the conditional database of an item: the transactions containing it, with their frequent items before it.
+	 * @param db  the database
+	 * @param occurrence  transactions of the database containing the item, ended by -1 if not full
+	 * @param e  the item
+	 * @return the conditional database, null if it has no frequent item
+	 */
+	private Database project(Database db, int[] occurrence, int e) {
+		ProjectionBuffer buffer = buffers.get();
+		buffer.ensureCapacity(e);
+		int[] counts = buffer.counts;
+		int[] newItems = buffer.newItems;
+		int[] touched = buffer.touched;
+		//count the items before e in one sweep of the occurrence list,
+		//the number of transactions containing each frequent one is counted when they are kept
+		int touchedCount = 0;
+		int occurrenceLength = 0;
+		for(int t : occurrence) {
+			if(t < 0) {
+				break;
+			}
+			occurrenceLength++;
+			int weight = db.weights[t];
+			//items are in ascending order, and e is in the transaction
+			for(int i = db.starts[t]; db.items[i] != e; i++) {
+				int item = db.items[i];
+				int count = counts[item];
+				//an item is touched if its count was zero, without a branch in this innermost loop
+				touched[touchedCount] = item;
+				touchedCount += count == 0 ? 1 : 0;
+				counts[item] = count + weight;
+			}
+		}
+		//renumber the frequent items, keeping their order
+		//only items occurring in a projected transaction are touched, so no item of support 0 is kept
+		if(touchedCount * SORT_RATIO < e) {
+			Arrays.sort(touched, 0, touchedCount);
+		} else {
+			//many items touched, collecting them in order is cheaper than sorting them
+			touchedCount = 0;
+			for(int i = 0; i < e; i++) {
+				if(counts[i] > 0) {
+					touched[touchedCount++] = i;
+				}
+			}
+		}
+		int newItemCount = 0;
+		for(int k = 0; k < touchedCount; k++) {
+			int item = touched[k];
+			if(counts[item] > 0 && counts[item] >= minSupport) {
+				newItems[item] = newItemCount++;
+			}
+		}
+		if(newItemCount == 0) {
+			buffer.clear(touchedCount);
+			return null;
+		}
+		int[] itemIds = new int[newItemCount];
+		Database child = new Database(newItemCount, itemIds, occurrenceLength);
+		for(int k = 0; k < touchedCount; k++) {
+			int item = touched[k];
+			if(newItems[item] >= 0) {
+				itemIds[newItems[item]] = db.itemIds[item];
+				child.supports[newItems[item]] = counts[item];
+			}
+		}
+		//keep the frequent items of each transaction, and merge identical transactions
+		int[] transaction = buffer.transaction;
+		for(int k = 0; k < occurrenceLength; k++) {
+			int t = occurrence[k];
+			int length = 0;
+			for(int i = db.starts[t]; db.items[i] != e; i++) {
+				int item = newItems[db.items[i]];
+				if(item >= 0) {
+					transaction[length++] = item;
+					child.occurrenceCounts[item]++;
+				}
+			}
+			if(length > 0) {
+				child.add(transaction, length, db.weights[t]);
+			}
+		}
+		buffer.clear(touchedCount);
+		child.finish();
+		databaseCount.incrementAndGet();
+		projectedCount.addAndGet(occurrenceLength);
+		mergedCount.addAndGet(child.transactionCount);
+		return child;
+	}
+	
+	/**
+	 * Print statistics of mining.
+	 */
+	public void printStatistics() {
+		System.out.println("LCM: " + transactionTotal + " transactions, " + databaseCount.get() + " conditional databases, "
+				+ projectedCount.get() + " transactions projected, " + mergedCount.get() + " after merging");
+	}
+	
+	/**
+	 * Class for the buffers used when creating a conditional database.
+	 * Each mining thread has its own buffers and reuses them for every conditional database,
+	 * only the entries of the items touched are cleaned up after each use.
+	 */
+	private static class ProjectionBuffer {
+		/**
+		 * weighted count of each item in the projected transactions
+		 */
+		private int[] counts;
+		
+		/**
+		 * item in conditional database of each item in the database, -1 if not frequent
+		 */
+		private int[] newItems;
+		
+		/**
+		 * items whose count is not zero
+		 */
+		private int[] touched;
+		
+		/**
+		 * frequent items of a projected transaction
+		 */
+		private int[] transaction;
+		
+		/**
+		 * Constructor.
+		 */
+		private ProjectionBuffer() {
+			counts = new int[0];
+			newItems = new int[0];
+			touched = new int[0];
+			transaction = new int[0];
+		}
+		
+		/**
+		 * Make sure the buffers can hold the given number of items.
+		 * @param itemCount  number of items before the projected item
+		 */
+		private void ensureCapacity(int itemCount) {
+			if(counts.length < itemCount) {
+				counts = new int[itemCount];
+				newItems = new int[itemCount];
+				Arrays.fill(newItems, -1);
+				//one more for the item written after all items are touched
+				touched = new int[itemCount + 1];
+				transaction = new int[itemCount];
+			}
+		}
+		
+		/**
+		 * Clean up the entries of the touched items.
+		 * @param touchedCount  number of touched items
+		 */
+		private void clear(int touchedCount) {
+			for(int k = 0; k < touchedCount; k++) {
+				int item = touched[k];
+				counts[item] = 0;
+				newItems[item] = -1;
+			}
+		}
+	}
+	
+	/**
+	 * Class for a database of weighted transactions in arrays,
+	 * where identical transactions are merged while they are added.
+	 */
+	private static class Database {
+		/**
+		 * number of items of the database
+		 */
+		private final int itemCount;
+		
+		/**
+		 * item id in the whole database of each item
+		 */
+		private final int[] itemIds;
+		
+		/**
+		 * support of each item
+		 */
+		private final int[] supports;
+		
+		/**
+		 * number of transactions containing each item before merging, the size of its occurrence list
+		 */
+		private final int[] occurrenceCounts;
+		
+		/**
+		 * items of all transactions
+		 */
+		private int[] items;
+		
+		/**
+		 * number of items of all transactions
+		 */
+		private int size;
+		
+		/**
+		 * start of each transaction in items, and end of the last one
+		 */
+		private int[] starts;
+		
+		/**
+		 * number of identical transactions merged into each transaction
+		 */
+		private int[] weights;
+		
+		/**
+		 * number of transactions
+		 */
+		private int transactionCount;
+		
+		/**
+		 * hash table of transactions, index + 1 of a transaction or 0 if empty, null after the database is built
+		 */
+		private int[] table;
+		
+		/**
+		 * Constructor.
+		 * @param itemCount  number of items
+		 * @param itemIds  item id in the whole database of each item
+		 * @param capacity  initial number of transactions
+		 */
+		private Database(int itemCount, int[] itemIds, int capacity) {
+			this.itemCount = itemCount;
+			this.itemIds = itemIds;
+			supports = new int[itemCount];
+			occurrenceCounts = new int[itemCount];
+			capacity = Math.max(capacity, 16);
+			items = new int[capacity * 4];
+			size = 0;
+			starts = new int[capacity + 1];
+			weights = new int[capacity];
+			transactionCount = 0;
+			table = new int[Integer.highestOneBit(capacity) * 4];
+		}
+		
+		/**
+		 * Get hash of the items of a transaction.
+		 * @param array  array holding the items
+		 * @param start  index of first item
+		 * @param end  index after last item
+		 * @return hash
+		 */
+		private static int hash(int[] array, int start, int end) {
+			int h = 1;
+			for(int i = start; i < end; i++) {
+				h = 31 * h + array[i];
+			}
+			//spread bits of the hash, short transactions of small items have close hashes
+			h *= 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+		
+		/**
+		 * Add a transaction, or increase the weight of an identical one.
+		 * @param transaction  items sorted in ascending order
+		 * @param length  number of items
+		 * @param weight  number of transactions
+		 */
+		private void add(int[] transaction, int length, int weight) {
+			int mask = table.length - 1;
+			int slot = hash(transaction, 0, length) & mask;
+			while(table[slot] != 0) {
+				int t = table[slot] - 1;
+				if(equals(t, transaction, length) == true) {
+					weights[t] += weight;
+					return;
+				}
+				slot = (slot + 1) & mask;
+			}
+			if(transactionCount == weights.length) {
+				weights = Arrays.copyOf(weights, transactionCount * 2);
+				starts = Arrays.copyOf(starts, transactionCount * 2 + 1);
+			}
+			if(size + length > items.length) {
+				items = Arrays.copyOf(items, Math.max(items.length * 2, size + length));
+			}
+			System.arraycopy(transaction, 0, items, size, length);
+			starts[transactionCount] = size;
+			weights[transactionCount] = weight;
+			size += length;
+			transactionCount++;
+			starts[transactionCount] = size;
+			table[slot] = transactionCount;
+			if(transactionCount * 2 > table.length) {
+				rehash();
+			}
+		}
+		
+		/**
+		 * Check if a transaction has the given items.
+		 * @param t  the transaction
+		 * @param transaction  items sorted in ascending order
+		 * @param length  number of items
+		 * @return true if they are the same
+		 */
+		private boolean equals(int t, int[] transaction, int length) {
+			int start = starts[t];
+			if(starts[t+1] - start != length) {
+				return false;
+			}
+			for(int i = 0; i < length; i++) {
+				if(items[start + i] != transaction[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		/**
+		 * Double the hash table.
+		 */
+		private void rehash() {
+			table = new int[table.length * 2];
+			int mask = table.length - 1;
+			for(int t = 0; t < transactionCount; t++) {
+				int slot = hash(items, starts[t], starts[t+1]) & mask;
+				while(table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = t + 1;
+			}
+		}
+		
+		/**
+		 * Drop the hash table when all transactions are added.
+		 */
+		private void finish() {
+			table = null;
+		}
+		
+		/**
+		 * Deliver each transaction to the occurrence list of each of its items, in one sweep of the database.
+		 * A list is as long as the number of transactions containing its item before merging,
+		 * so it is ended by -1 if merged transactions leave it not full.
+		 * @return occurrence list of each item
+		 */
+		private int[][] deliver() {
+			int[][] occurrences = new int[itemCount][];
+			for(int item = 0; item < itemCount; item++) {
+				occurrences[item] = new int[occurrenceCounts[item]];
+			}
+			int[] ends = new int[itemCount];
+			for(int t = 0; t < transactionCount; t++) {
+				for(int i = starts[t]; i < starts[t+1]; i++) {
+					int item = items[i];
+					occurrences[item][ends[item]++] = t;
+				}
+			}
+			for(int item = 0; item < itemCount; item++) {
+				if(ends[item] < occurrences[item].length) {
+					occurrences[item][ends[item]] = -1;
+				}
+			}
+			return occurrences;
+		}
+	}
+}
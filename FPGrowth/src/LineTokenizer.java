@@ -0,0 +1,141 @@
+import java.util.Arrays;
+
+/**
+ * Class for splitting the bytes of one line into item codes of an item dictionary.
+ * Lines are split the same way as String.split(delimiter):
+ * empty items at the end of a line are dropped, other empty items are kept.
+ * A transaction is a set of items, so an item repeated in a line is kept and counted once.
+ */
+public class LineTokenizer {
+	/**
+	 * dictionary counting each item
+	 */
+	private final ItemDictionary dictionary;
+	
+	/**
+	 * delimiter byte as an unsigned value, -1 if each line is a single item
+	 */
+	private final int delimiter;
+	
+	/**
+	 * item codes of the last line tokenized
+	 */
+	private int[] codes;
+	
+	/**
+	 * number of the last line tokenized, from 1
+	 */
+	private int line;
+	
+	/**
+	 * number of the last line containing each code, 0 if none
+	 */
+	private int[] lineOfCode;
+	
+	/**
+	 * Constructor.
+	 * @param dictionary  dictionary counting each item
+	 * @param delimiter  delimiter byte as an unsigned value, -1 if each line is a single item
+	 */
+	public LineTokenizer(ItemDictionary dictionary, int delimiter) {
+		this.dictionary = dictionary;
+		this.delimiter = delimiter;
+		codes = new int[16];
+		lineOfCode = new int[16];
+	}
+	
+	/**
+	 * Find the delimiter of a line,
+	 * the first of ',', ';' and ' ' occurring after the first character.
+	 * @param line  bytes of the line, without line break
+	 * @param length  number of bytes
+	 * @return delimiter byte, or -1 if the line has none of them
+	 */
+	public static int findDelimiter(byte[] line, int length) {
+		for(byte d : new byte[] {',', ';', ' '}) {
+			int i = 0;
+			while(i < length && line[i] != d) {
+				i++;
+			}
+			if(i > 0 && i < length) {
+				return d;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Get item codes of the last line tokenized.
+	 * The array is reused by the next line.
+	 * @return item codes
+	 */
+	public int[] getCodes() {
+		return codes;
+	}
+	
+	/**
+	 * Tokenize one line, and count its items in dictionary.
+	 * @param bytes
+	 * @param from  index of first byte of the line
+	 * @param to  index after last byte of the line
+	 * @return number of items, or -1 if the line is empty
+	 */
+	public int tokenize(byte[] bytes, int from, int to) {
+		if(from == to) {
+			//if the line is empty
+			return -1;
+		}
+		if(line == Integer.MAX_VALUE) {
+			//start numbering lines again
+			Arrays.fill(lineOfCode, 0);
+			line = 0;
+		}
+		line++;
+		int length = 0;
+		//empty items are only added when a non-empty item follows them
+		int emptyCount = 0;
+		int itemStart = from;
+		for(int i = from; i <= to; i++) {
+			if(i < to && (bytes[i] & 0xFF) != delimiter) {
+				continue;
+			}
+			if(i == itemStart) {
+				emptyCount++;
+			} else {
+				if(length + emptyCount + 1 > codes.length) {
+					codes = Arrays.copyOf(codes, Math.max(codes.length * 2, length + emptyCount + 1));
+				}
+				for(; emptyCount > 0; emptyCount--) {
+					length = addItem(bytes, i, i, length);
+				}
+				length = addItem(bytes, itemStart, i, length);
+			}
+			itemStart = i + 1;
+		}
+		return length;
+	}
+	
+	/**
+	 * Add an item to the codes of the current line and count it in dictionary,
+	 * unless it is already in the line.
+	 * @param bytes
+	 * @param start  index of first byte of the item
+	 * @param end  index after last byte of the item
+	 * @param length  number of items of the line so far
+	 * @return number of items of the line after the item is added
+	 */
+	private int addItem(byte[] bytes, int start, int end, int length) {
+		int code = dictionary.intern(bytes, start, end);
+		if(code >= lineOfCode.length) {
+			lineOfCode = Arrays.copyOf(lineOfCode, Math.max(lineOfCode.length * 2, code + 1));
+		}
+		if(lineOfCode[code] == line) {
+			//repeated item
+			return length;
+		}
+		lineOfCode[code] = line;
+		dictionary.count(code);
+		codes[length] = code;
+		return length + 1;
+	}
+}
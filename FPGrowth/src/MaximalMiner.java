@@ -0,0 +1,225 @@
+/**
+ * Class for mining maximal frequent patterns on FP-trees, in the way of FPMax.
+ * A pattern is maximal if no super-pattern is frequent.
+ * The maximal patterns found so far are kept in MFI-trees,
+ * FP-trees whose paths are maximal patterns.
+ * Along with the conditional FP-tree of each head, there is a conditional MFI-tree with the same items,
+ * whose paths are the maximal patterns containing head, with head removed.
+ * Before mining the conditional FP-tree of head,
+ * tail, all items of the conditional FP-tree, is looked up in the MFI-tree of head;
+ * if a maximal pattern contains head concatenated with tail,
+ * no pattern of the conditional FP-tree is maximal and the branch is skipped.
+ * Items in header list are mined from the least frequent one,
+ * so the maximal super-patterns of a pattern are always found before it.
+ * For this order the miner runs in one thread.
+ */
+public class MaximalMiner {
+	/**
+	 * receive maximal patterns
+	 */
+	private final PatternSink sink;
+	
+	/**
+	 * absolute minimum support
+	 */
+	private final int minSupport;
+	
+	/**
+	 * MFI-tree of each head pattern[0..depth-1], indexed by depth
+	 */
+	private final FPTree[] mfiTrees;
+	
+	/**
+	 * buffers for creating conditional FP-trees
+	 */
+	private final MiningBuffer buffer;
+	
+	/**
+	 * item ids of the pattern being mined, in descending order
+	 */
+	private final int[] pattern;
+	
+	/**
+	 * items of a path to be looked up in or inserted into an MFI-tree, in ascending order
+	 */
+	private final int[] path;
+	
+	/**
+	 * number of maximal patterns
+	 */
+	private long maximalCount;
+	
+	/**
+	 * number of branches skipped by look-ahead
+	 */
+	private long prunedCount;
+	
+	/**
+	 * Constructor.
+	 * @param sink  receive maximal patterns
+	 * @param minSupport  absolute minimum support
+	 * @param itemCount  number of frequent items in database
+	 */
+	public MaximalMiner(PatternSink sink, int minSupport, int itemCount) {
+		this.sink = sink;
+		this.minSupport = minSupport;
+		mfiTrees = new FPTree[itemCount + 1];
+		buffer = new MiningBuffer();
+		pattern = new int[itemCount];
+		path = new int[itemCount];
+		maximalCount = 0;
+		prunedCount = 0;
+	}
+	
+	/**
+	 * Mine maximal patterns of the base FP-tree.
+	 * @param tree  base FP-tree
+	 * @param transactionCount  number of transactions in database
+	 */
+	public void mine(FPTree tree, int transactionCount) {
+		mfiTrees[0] = new FPTree(tree.getItemIds());
+		mine(tree, 0, transactionCount);
+	}
+	
+	/**
+	 * Mine an FP-tree recursively.
+	 * @param tree  FP-tree
+	 * @param depth  number of items in head, the suffix of the patterns of this tree
+	 * @param support  support of head
+	 */
+	private void mine(FPTree tree, int depth, int support) {
+		FPTree mfiTree = mfiTrees[depth];
+		if(tree.isEmpty()) {
+			//head is the only candidate
+			if(depth > 0 && isSubsumed(mfiTree, 0) == false) {
+				generate(depth, depth, support);
+			}
+			return;
+		}
+		if(tree.hasSinglePath() == true) {
+			//head concatenated with the whole path is the only candidate,
+			//the bottom node has the lowest count
+			int length = 0;
+			for(int node = tree.getLastHeaderNode(); node != FPTree.ROOT; node = tree.getParent(node)) {
+				length++;
+			}
+			int k = length;
+			for(int node = tree.getLastHeaderNode(); node != FPTree.ROOT; node = tree.getParent(node)) {
+				path[--k] = tree.getItem(node);
+				pattern[depth + length - 1 - k] = tree.getItemId(tree.getItem(node));
+			}
+			if(isSubsumed(mfiTree, length) == false) {
+				generate(depth + length, depth, tree.getCount(tree.getLastHeaderNode()));
+			}
+			return;
+		}
+		for(int i = tree.getHeaderListLength()-1; i >= 0; i--) {
+			//process each item in header list in reverse order
+			int item = tree.getItemFromHeaderList(i);
+			pattern[depth] = tree.getItemId(item);
+			FPTree newTree = tree.createConditionalTree(item, minSupport, buffer);
+			//look ahead: check if item concatenated with tail is in the MFI-tree of head
+			int tailLength = newTree.getItemCount();
+			for(int j = 0; j < tailLength; j++) {
+				path[j] = tree.getItemById(newTree.getItemId(j));
+			}
+			path[tailLength] = item;
+			if(isSubsumed(mfiTree, tailLength + 1) == true) {
+				prunedCount++;
+				continue;
+			}
+			mfiTrees[depth + 1] = createConditionalMFITree(mfiTree, item, newTree.getItemIds());
+			mine(newTree, depth + 1, tree.getSupportByItem(item));
+			mfiTrees[depth + 1] = null;
+		}
+	}
+	
+	/**
+	 * Create the conditional MFI-tree of an item, with the items of its conditional FP-tree.
+	 * Its paths are the prefix paths of the nodes with that item.
+	 * @param mfiTree  MFI-tree of head
+	 * @param item  item in MFI-tree of head
+	 * @param itemIds  item ids in database of the items of conditional FP-tree
+	 * @return the conditional MFI-tree
+	 */
+	private FPTree createConditionalMFITree(FPTree mfiTree, int item, int[] itemIds) {
+		FPTree newTree = new FPTree(itemIds);
+		for(int node = mfiTree.getNodeByItem(item); node != FPTree.NULL; node = mfiTree.getNodeLink(node)) {
+			//collect items of the prefix path from bottom to top
+			int length = 0;
+			for(int parent = mfiTree.getParent(node); parent != FPTree.ROOT; parent = mfiTree.getParent(parent)) {
+				int newItem = newTree.getItemById(mfiTree.getItemId(mfiTree.getItem(parent)));
+				if(newItem >= 0) {
+					path[length++] = newItem;
+				}
+			}
+			//reverse the items to insert them from top to bottom
+			for(int i = 0, j = length-1; i < j; i++, j--) {
+				int t = path[i];
+				path[i] = path[j];
+				path[j] = t;
+			}
+			newTree.addPath(path, length, 1);
+		}
+		return newTree;
+	}
+	
+	/**
+	 * Check if a path of an MFI-tree contains the items in path.
+	 * Follow node links of the last item,
+	 * and match the other items in the path from each node to the root.
+	 * @param mfiTree  MFI-tree
+	 * @param length  number of items in path, in ascending order
+	 * @return true if a path of the MFI-tree contains the items
+	 */
+	private boolean isSubsumed(FPTree mfiTree, int length) {
+		if(length == 0) {
+			return mfiTree.isEmpty() == false;
+		}
+		for(int node = mfiTree.getNodeByItem(path[length-1]); node != FPTree.NULL; node = mfiTree.getNodeLink(node)) {
+			int j = length - 2;
+			for(int parent = mfiTree.getParent(node); parent != FPTree.ROOT && j >= 0; parent = mfiTree.getParent(parent)) {
+				int parentItem = mfiTree.getItem(parent);
+				if(parentItem == path[j]) {
+					j--;
+				} else if(parentItem < path[j]) {
+					//items above are even more frequent, path[j] is not in this path
+					break;
+				}
+			}
+			if(j < 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Generate a maximal pattern,
+	 * and insert it into the MFI-trees of head and of all prefixes of head.
+	 * @param length  number of items in pattern
+	 * @param depth  number of items in head
+	 * @param support  support of the pattern
+	 */
+	private void generate(int length, int depth, int support) {
+		for(int d = 0; d <= depth; d++) {
+			//items of pattern after the first d items, in ascending order
+			FPTree mfiTree = mfiTrees[d];
+			int k = 0;
+			for(int j = length-1; j >= d; j--) {
+				path[k++] = mfiTree.getItemById(pattern[j]);
+			}
+			mfiTree.addPath(path, k, 1);
+		}
+		maximalCount++;
+		sink.accept(pattern, length, support);
+	}
+	
+	/**
+	 * Print statistics of pruning.
+	 */
+	public void printStatistics() {
+		System.out.println("Maximal patterns: " + maximalCount
+				+ " (branches pruned by look-ahead: " + prunedCount + ")");
+	}
+}
@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+/**
+ * Class for buffers used when creating a conditional FP-tree.
+ * Each mining thread has its own buffers and reuses them for every conditional FP-tree,
+ * the buffers are cleaned up after each use.
+ */
+public class MiningBuffer {
+	/**
+	 * count of each single item in a conditional pattern base
+	 */
+	public int[] counts;
+	
+	/**
+	 * item in conditional FP-tree of each item in the FP-tree, -1 if not frequent
+	 */
+	public int[] newItems;
+	
+	/**
+	 * items whose count is not zero
+	 */
+	public int[] touched;
+	
+	/**
+	 * items of a prefix path to be added to conditional FP-tree
+	 */
+	public int[] path;
+	
+	/**
+	 * item ids of nodes in a single path, from bottom to top
+	 */
+	public int[] pathItems;
+	
+	/**
+	 * counts of nodes in a single path, from bottom to top
+	 */
+	public int[] pathCounts;
+	
+	/**
+	 * item ids of the pattern being generated
+	 */
+	public int[] pattern;
+	
+	/**
+	 * support of each prefix of the pattern being generated
+	 */
+	public int[] patternSupports;
+	
+	/**
+	 * true if a node in a single path is in the pattern being generated
+	 */
+	public boolean[] isTaken;
+	
+	/**
+	 * item ids of the items merged into the pattern when creating a conditional FP-tree
+	 */
+	public int[] mergedItems;
+	
+	/**
+	 * number of merged items
+	 */
+	public int mergedCount;
+	
+	/**
+	 * Constructor.
+	 */
+	public MiningBuffer() {
+		counts = new int[0];
+		newItems = new int[0];
+		touched = new int[0];
+		path = new int[0];
+		pathItems = new int[0];
+		pathCounts = new int[0];
+		pattern = new int[0];
+		patternSupports = new int[0];
+		isTaken = new boolean[0];
+		mergedItems = new int[0];
+		mergedCount = 0;
+	}
+	
+	/**
+	 * Make sure the buffers can hold the given number of items.
+	 * @param itemCount  number of items in FP-tree
+	 */
+	public void ensureCapacity(int itemCount) {
+		if(counts.length < itemCount) {
+			counts = new int[itemCount];
+			newItems = new int[itemCount];
+			Arrays.fill(newItems, -1);
+			touched = new int[itemCount];
+			path = new int[itemCount];
+			mergedItems = new int[itemCount];
+		}
+	}
+	
+	/**
+	 * Make sure the buffers can hold a single path and the patterns generated from it.
+	 * @param pathLength  number of nodes in the path
+	 * @param patternLength  maximum number of items in a pattern
+	 */
+	public void ensureSinglePathCapacity(int pathLength, int patternLength) {
+		if(pathItems.length < pathLength) {
+			pathItems = new int[pathLength];
+			pathCounts = new int[pathLength];
+			isTaken = new boolean[pathLength];
+		}
+		if(pattern.length < patternLength + 1) {
+			pattern = new int[patternLength + 1];
+			patternSupports = new int[patternLength + 1];
+		}
+	}
+}
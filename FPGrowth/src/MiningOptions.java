@@ -0,0 +1,996 @@
+/**
+ * Class for command line options of FP-growth.
+ * Options are given as --name or --name=value,
+ * e.g. java FPGrowth --parallel --threads=8
+ */
+public class MiningOptions {
+	/**
+	 * kind of frequent patterns to be mined
+	 */
+	public enum PatternType {
+		/** all frequent patterns */
+		ALL,
+		/** closed frequent patterns */
+		CLOSED,
+		/** maximal frequent patterns */
+		MAXIMAL
+	}
+	
+	/**
+	 * patterns generated from a long single path
+	 */
+	public enum PathSummary {
+		/** all patterns */
+		NONE,
+		/** closed patterns only */
+		CLOSED,
+		/** the maximal pattern only */
+		MAXIMAL
+	}
+	
+	/**
+	 * when to build FP-array of FP-trees
+	 */
+	public enum FPArray {
+		/** when the tree is sparse */
+		AUTO,
+		/** whenever the array is small enough */
+		ON,
+		/** never */
+		OFF
+	}
+	
+	/**
+	 * algorithm mining frequent patterns
+	 */
+	public enum Engine {
+		/** FP-growth on FP-trees */
+		FPGROWTH,
+		/** Eclat and dEclat on bitsets of the vertical database */
+		ECLAT,
+		/** LCM on arrays of merged transactions */
+		LCM,
+		/** chosen by MiningPlanner from statistics of the database */
+		AUTO
+	}
+	
+	/**
+	 * kind of frequent patterns to be mined
+	 */
+	private PatternType patternType;
+	
+	/**
+	 * algorithm mining frequent patterns
+	 */
+	private Engine engine;
+	
+	/**
+	 * number of patterns with the highest support to be mined, 0 to mine by minimum support
+	 */
+	private int topK;
+	
+	/**
+	 * patterns with fewer items are not counted in top-K mode
+	 */
+	private int minLength;
+	
+	/**
+	 * relative minimum supports (%) to be mined one after another in one session, null if not sweeping
+	 */
+	private float[] sweep;
+	
+	/**
+	 * each minimum support of sweep as given, to name its output file
+	 */
+	private String[] sweepLabels;
+	
+	/**
+	 * true if the base FP-tree is kept in canonical order and updated with transactions appended to input file
+	 */
+	private boolean incremental;
+	
+	/**
+	 * number of latest transactions of a stream to be mined, 0 to mine input file in batch
+	 */
+	private int window;
+	
+	/**
+	 * number of transactions between two emissions of patterns in streaming mode, 0 for window size
+	 */
+	private int slide;
+	
+	/**
+	 * file of transactions in streaming mode, "-" for stdin
+	 */
+	private String streamInput;
+	
+	/**
+	 * true if lines appended to the stream file are waited for
+	 */
+	private boolean follow;
+	
+	/**
+	 * relative minimum support (%) of the window in streaming mode, negative if not given
+	 */
+	private float minSupport;
+	
+	/**
+	 * output file of the patterns of the latest window in streaming mode, null for no file
+	 */
+	private String outputFile;
+	
+	/**
+	 * true if conditional FP-trees are mined in parallel
+	 */
+	private boolean parallel;
+	
+	/**
+	 * number of threads for parallel mining
+	 */
+	private int threads;
+	
+	/**
+	 * FP-trees with fewer nodes than this are mined sequentially in parallel mode
+	 */
+	private int parallelThreshold;
+	
+	/**
+	 * true if frequent patterns are not displayed in screen
+	 */
+	private boolean quiet;
+	
+	/**
+	 * true if frequent patterns are only counted, not written to output file
+	 */
+	private boolean countOnly;
+	
+	/**
+	 * patterns generated from a single path longer than pathSummaryLength
+	 */
+	private PathSummary pathSummary;
+	
+	/**
+	 * single paths with more nodes than this are summarized
+	 */
+	private int pathSummaryLength;
+	
+	/**
+	 * when to build FP-array of FP-trees
+	 */
+	private FPArray fpArray;
+	
+	/**
+	 * maximum MB of encoded transactions kept in memory, 0 for no limit
+	 */
+	private int storeMemory;
+	
+	/**
+	 * directory of encoded transactions spilled to disk, null for the default temp directory
+	 */
+	private String spillDirectory;
+	
+	/**
+	 * number of threads reading input file
+	 */
+	private int readThreads;
+	
+	/**
+	 * true if frequent patterns are mined from projected databases on disk instead of the base FP-tree
+	 */
+	private boolean outOfCore;
+	
+	/**
+	 * maximum MB of projected databases buffered in memory in out-of-core mode
+	 */
+	private int partitionMemory;
+	
+	/**
+	 * number of worker processes of parallel FP-growth (PFP), 0 to mine in this process
+	 */
+	private int workers;
+	
+	/**
+	 * number of groups of frequent items in PFP mode, 0 for the number of workers
+	 */
+	private int groups;
+	
+	/**
+	 * maximum MB of heap of each worker process, 0 for the default of the JVM
+	 */
+	private int workerHeap;
+	
+	/**
+	 * shard file to be mined when this process is a PFP worker, null otherwise
+	 */
+	private String workerShard;
+	
+	/**
+	 * file of association rules generated from the frequent patterns, null for no rules
+	 */
+	private String rulesFile;
+	
+	/**
+	 * minimum confidence (%) of association rules
+	 */
+	private double minConfidence;
+	
+	/**
+	 * minimum lift of association rules
+	 */
+	private double minLift;
+	
+	/**
+	 * minimum conviction of association rules
+	 */
+	private double minConviction;
+	
+	/**
+	 * file the base FP-tree is saved to after it is built, null if not saved
+	 */
+	private String saveTree;
+	
+	/**
+	 * snapshot file the base FP-tree is loaded from instead of reading input file, null if not loaded
+	 */
+	private String loadTree;
+	
+	/**
+	 * maximum number of items of a pattern, 0 if not limited
+	 */
+	private int maxLength;
+	
+	/**
+	 * names of the items every pattern must contain, null if none
+	 */
+	private String[] requiredItems;
+	
+	/**
+	 * names of the items no pattern may contain, null if none
+	 */
+	private String[] excludedItems;
+	
+	/**
+	 * Constructor with default options.
+	 */
+	public MiningOptions() {
+		patternType = PatternType.ALL;
+		engine = Engine.FPGROWTH;
+		topK = 0;
+		minLength = 1;
+		sweep = null;
+		sweepLabels = null;
+		incremental = false;
+		window = 0;
+		slide = 0;
+		streamInput = "-";
+		follow = false;
+		minSupport = -1;
+		outputFile = null;
+		parallel = false;
+		threads = Runtime.getRuntime().availableProcessors();
+		parallelThreshold = 2048;
+		quiet = false;
+		countOnly = false;
+		pathSummary = PathSummary.NONE;
+		pathSummaryLength = 20;
+		fpArray = FPArray.AUTO;
+		storeMemory = 0;
+		spillDirectory = null;
+		readThreads = Runtime.getRuntime().availableProcessors();
+		outOfCore = false;
+		partitionMemory = 64;
+		workers = 0;
+		groups = 0;
+		workerHeap = 0;
+		workerShard = null;
+		rulesFile = null;
+		minConfidence = 50;
+		minLift = 0;
+		minConviction = 0;
+		saveTree = null;
+		loadTree = null;
+		maxLength = 0;
+		requiredItems = null;
+		excludedItems = null;
+	}
+	
+	/**
+	 * Get kind of frequent patterns to be mined.
+	 * @return patternType
+	 */
+	public PatternType getPatternType() {
+		return patternType;
+	}
+	
+	/**
+	 * Get algorithm mining frequent patterns.
+	 * @return engine
+	 */
+	public Engine getEngine() {
+		return engine;
+	}
+	
+	/**
+	 * Get number of patterns with the highest support to be mined.
+	 * @return topK, 0 to mine by minimum support
+	 */
+	public int getTopK() {
+		return topK;
+	}
+	
+	/**
+	 * Get minimum number of items of a pattern in top-K mode.
+	 * @return minLength
+	 */
+	public int getMinLength() {
+		return minLength;
+	}
+	
+	/**
+	 * Get relative minimum supports to be mined one after another in one session.
+	 * @return sweep (%), null if not sweeping
+	 */
+	public float[] getSweep() {
+		return sweep;
+	}
+	
+	/**
+	 * Get each minimum support of sweep as given on command line.
+	 * @return sweepLabels, null if not sweeping
+	 */
+	public String[] getSweepLabels() {
+		return sweepLabels;
+	}
+	
+	/**
+	 * Check if the base FP-tree is updated incrementally.
+	 * @return incremental
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+	
+	/**
+	 * Get number of latest transactions of a stream to be mined.
+	 * @return window, 0 to mine input file in batch
+	 */
+	public int getWindow() {
+		return window;
+	}
+	
+	/**
+	 * Get number of transactions between two emissions of patterns in streaming mode.
+	 * @return slide
+	 */
+	public int getSlide() {
+		return slide > 0 ? slide : window;
+	}
+	
+	/**
+	 * Get file of transactions in streaming mode.
+	 * @return streamInput, "-" for stdin
+	 */
+	public String getStreamInput() {
+		return streamInput;
+	}
+	
+	/**
+	 * Check if lines appended to the stream file are waited for.
+	 * @return follow
+	 */
+	public boolean isFollow() {
+		return follow;
+	}
+	
+	/**
+	 * Get relative minimum support of the window in streaming mode.
+	 * @return minSupport (%)
+	 */
+	public float getMinSupport() {
+		return minSupport;
+	}
+	
+	/**
+	 * Get output file of the patterns of the latest window in streaming mode.
+	 * @return outputFile, null for no file
+	 */
+	public String getOutputFile() {
+		return outputFile;
+	}
+	
+	/**
+	 * Check if conditional FP-trees are mined in parallel.
+	 * @return parallel
+	 */
+	public boolean isParallel() {
+		return parallel;
+	}
+	
+	/**
+	 * Get number of threads for parallel mining.
+	 * @return threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+	
+	/**
+	 * Get minimum number of nodes of an FP-tree to be mined in parallel.
+	 * @return parallelThreshold
+	 */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+	
+	/**
+	 * Check if frequent patterns are not displayed in screen.
+	 * @return quiet
+	 */
+	public boolean isQuiet() {
+		return quiet;
+	}
+	
+	/**
+	 * Check if frequent patterns are only counted.
+	 * @return countOnly
+	 */
+	public boolean isCountOnly() {
+		return countOnly;
+	}
+	
+	/**
+	 * Get patterns generated from a long single path.
+	 * @return pathSummary
+	 */
+	public PathSummary getPathSummary() {
+		return pathSummary;
+	}
+	
+	/**
+	 * Get number of nodes above which a single path is summarized.
+	 * @return pathSummaryLength
+	 */
+	public int getPathSummaryLength() {
+		return pathSummaryLength;
+	}
+	
+	/**
+	 * Get when to build FP-array of FP-trees.
+	 * @return fpArray
+	 */
+	public FPArray getFPArray() {
+		return fpArray;
+	}
+	
+	/**
+	 * Get maximum MB of encoded transactions kept in memory.
+	 * @return storeMemory, 0 for no limit
+	 */
+	public int getStoreMemory() {
+		return storeMemory;
+	}
+	
+	/**
+	 * Get directory of encoded transactions spilled to disk.
+	 * @return spillDirectory, null for the default temp directory
+	 */
+	public String getSpillDirectory() {
+		return spillDirectory;
+	}
+	
+	/**
+	 * Get number of threads reading input file.
+	 * @return readThreads
+	 */
+	public int getReadThreads() {
+		return readThreads;
+	}
+	
+	/**
+	 * Check if frequent patterns are mined from projected databases on disk.
+	 * @return outOfCore
+	 */
+	public boolean isOutOfCore() {
+		return outOfCore;
+	}
+	
+	/**
+	 * Get maximum MB of projected databases buffered in memory in out-of-core mode.
+	 * @return partitionMemory
+	 */
+	public int getPartitionMemory() {
+		return partitionMemory;
+	}
+	
+	/**
+	 * Get number of worker processes of parallel FP-growth.
+	 * @return workers, 0 to mine in this process
+	 */
+	public int getWorkers() {
+		return workers;
+	}
+	
+	/**
+	 * Get number of groups of frequent items in PFP mode.
+	 * @return groups
+	 */
+	public int getGroups() {
+		return groups > 0 ? groups : workers;
+	}
+	
+	/**
+	 * Get maximum MB of heap of each worker process.
+	 * @return workerHeap, 0 for the default of the JVM
+	 */
+	public int getWorkerHeap() {
+		return workerHeap;
+	}
+	
+	/**
+	 * Get shard file to be mined when this process is a PFP worker.
+	 * @return workerShard, null if this process is not a worker
+	 */
+	public String getWorkerShard() {
+		return workerShard;
+	}
+	
+	/**
+	 * Get file of association rules generated from the frequent patterns.
+	 * @return rulesFile, null for no rules
+	 */
+	public String getRulesFile() {
+		return rulesFile;
+	}
+	
+	/**
+	 * Get minimum confidence of association rules.
+	 * @return minConfidence (%)
+	 */
+	public double getMinConfidence() {
+		return minConfidence;
+	}
+	
+	/**
+	 * Get minimum lift of association rules.
+	 * @return minLift
+	 */
+	public double getMinLift() {
+		return minLift;
+	}
+	
+	/**
+	 * Get minimum conviction of association rules.
+	 * @return minConviction
+	 */
+	public double getMinConviction() {
+		return minConviction;
+	}
+	
+	/**
+	 * Get file the base FP-tree is saved to after it is built.
+	 * @return saveTree, null if not saved
+	 */
+	public String getSaveTree() {
+		return saveTree;
+	}
+	
+	/**
+	 * Get snapshot file the base FP-tree is loaded from.
+	 * @return loadTree, null if not loaded
+	 */
+	public String getLoadTree() {
+		return loadTree;
+	}
+	
+	/**
+	 * Get maximum number of items of a pattern.
+	 * @return maxLength, 0 if not limited
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+	
+	/**
+	 * Get names of the items every pattern must contain.
+	 * @return requiredItems, null if none
+	 */
+	public String[] getRequiredItems() {
+		return requiredItems;
+	}
+	
+	/**
+	 * Get names of the items no pattern may contain.
+	 * @return excludedItems, null if none
+	 */
+	public String[] getExcludedItems() {
+		return excludedItems;
+	}
+	
+	/**
+	 * Check if patterns are constrained by length, required items or excluded items.
+	 * @return true if any constraint is given
+	 */
+	public boolean hasConstraints() {
+		return maxLength > 0 || requiredItems != null || excludedItems != null;
+	}
+	
+	/**
+	 * Parse command line options.
+	 * @param args  command line arguments
+	 * @return options
+	 * @throws IllegalArgumentException if an option is unknown or has an invalid value
+	 */
+	public static MiningOptions parse(String[] args) {
+		MiningOptions options = new MiningOptions();
+		for(String arg : args) {
+			if(arg.startsWith("--") == false) {
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+			int index = arg.indexOf('=');
+			String name = index < 0 ? arg.substring(2) : arg.substring(2, index);
+			String value = index < 0 ? null : arg.substring(index + 1);
+			switch(name) {
+			case "patterns":
+				if("all".equals(value)) {
+					options.patternType = PatternType.ALL;
+				} else if("closed".equals(value)) {
+					options.patternType = PatternType.CLOSED;
+				} else if("maximal".equals(value)) {
+					options.patternType = PatternType.MAXIMAL;
+				} else {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				break;
+			case "engine":
+				if("fpgrowth".equals(value)) {
+					options.engine = Engine.FPGROWTH;
+				} else if("eclat".equals(value)) {
+					options.engine = Engine.ECLAT;
+				} else if("lcm".equals(value)) {
+					options.engine = Engine.LCM;
+				} else if("auto".equals(value)) {
+					options.engine = Engine.AUTO;
+				} else {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				break;
+			case "top-k":
+				options.topK = parsePositiveInt(name, value);
+				break;
+			case "min-length":
+				options.minLength = parsePositiveInt(name, value);
+				break;
+			case "sweep":
+				options.sweepLabels = value == null ? new String[] {""} : value.split(",");
+				options.sweep = new float[options.sweepLabels.length];
+				for(int i = 0; i < options.sweep.length; i++) {
+					options.sweep[i] = parsePercent(name, options.sweepLabels[i]);
+				}
+				break;
+			case "incremental":
+				options.incremental = true;
+				break;
+			case "window":
+				options.window = parsePositiveInt(name, value);
+				break;
+			case "slide":
+				options.slide = parsePositiveInt(name, value);
+				break;
+			case "stream":
+				if(value == null || value.isEmpty() == true) {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				options.streamInput = value;
+				break;
+			case "follow":
+				options.follow = true;
+				break;
+			case "min-support":
+				options.minSupport = parsePercent(name, value);
+				break;
+			case "output":
+				if(value == null || value.isEmpty() == true) {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				options.outputFile = value;
+				break;
+			case "parallel":
+				options.parallel = true;
+				break;
+			case "threads":
+				options.threads = parsePositiveInt(name, value);
+				options.parallel = true;
+				break;
+			case "parallel-threshold":
+				options.parallelThreshold = parsePositiveInt(name, value);
+				break;
+			case "quiet":
+				options.quiet = true;
+				break;
+			case "count-only":
+				options.countOnly = true;
+				break;
+			case "path-summary":
+				if("closed".equals(value)) {
+					options.pathSummary = PathSummary.CLOSED;
+				} else if("maximal".equals(value)) {
+					options.pathSummary = PathSummary.MAXIMAL;
+				} else {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				break;
+			case "path-summary-length":
+				options.pathSummaryLength = parsePositiveInt(name, value);
+				break;
+			case "fp-array":
+				if("auto".equals(value)) {
+					options.fpArray = FPArray.AUTO;
+				} else if("on".equals(value)) {
+					options.fpArray = FPArray.ON;
+				} else if("off".equals(value)) {
+					options.fpArray = FPArray.OFF;
+				} else {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				break;
+			case "store-memory":
+				options.storeMemory = parsePositiveInt(name, value);
+				break;
+			case "spill-dir":
+				if(value == null || value.isEmpty() == true) {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				options.spillDirectory = value;
+				break;
+			case "read-threads":
+				options.readThreads = parsePositiveInt(name, value);
+				break;
+			case "out-of-core":
+				options.outOfCore = true;
+				break;
+			case "partition-memory":
+				options.partitionMemory = parsePositiveInt(name, value);
+				options.outOfCore = true;
+				break;
+			case "workers":
+				options.workers = parsePositiveInt(name, value);
+				break;
+			case "groups":
+				options.groups = parsePositiveInt(name, value);
+				break;
+			case "worker-heap":
+				options.workerHeap = parsePositiveInt(name, value);
+				break;
+			case "worker":
+				//given by the master of a PFP job to its workers
+				if(value == null || value.isEmpty() == true) {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				options.workerShard = value;
+				break;
+			case "rules":
+				if(value == null || value.isEmpty() == true) {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				options.rulesFile = value;
+				break;
+			case "min-confidence":
+				options.minConfidence = parseNonNegativeDouble(name, value);
+				if(options.minConfidence > 100) {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				break;
+			case "min-lift":
+				options.minLift = parseNonNegativeDouble(name, value);
+				break;
+			case "min-conviction":
+				options.minConviction = parseNonNegativeDouble(name, value);
+				break;
+			case "save-tree":
+				if(value == null || value.isEmpty() == true) {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				options.saveTree = value;
+				break;
+			case "max-length":
+				options.maxLength = parsePositiveInt(name, value);
+				break;
+			case "require":
+				options.requiredItems = parseItems(name, value);
+				break;
+			case "exclude":
+				options.excludedItems = parseItems(name, value);
+				break;
+			case "load-tree":
+				if(value == null || value.isEmpty() == true) {
+					throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+				}
+				options.loadTree = value;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + arg);
+			}
+		}
+		if(options.topK > 0 && options.patternType != PatternType.ALL) {
+			throw new IllegalArgumentException("--top-k cannot be used with closed or maximal patterns");
+		}
+		if(options.incremental == true && (options.topK > 0 || options.patternType != PatternType.ALL)) {
+			throw new IllegalArgumentException("--incremental cannot be used with --top-k, closed or maximal patterns");
+		}
+		if(options.sweep != null && (options.topK > 0 || options.window > 0)) {
+			throw new IllegalArgumentException("--sweep cannot be used with --top-k or --window");
+		}
+		if(options.outOfCore == true 
+				&& (options.topK > 0 || options.patternType != PatternType.ALL || options.incremental == true || options.window > 0)) {
+			throw new IllegalArgumentException("--out-of-core cannot be used with --top-k, --incremental, --window, closed or maximal patterns");
+		}
+		if(options.workers > 0 && (options.topK > 0 || options.patternType != PatternType.ALL || options.incremental == true
+				|| options.window > 0 || options.outOfCore == true)) {
+			throw new IllegalArgumentException("--workers cannot be used with --top-k, --incremental, --window, --out-of-core, closed or maximal patterns");
+		}
+		if(options.rulesFile != null && (options.topK > 0 || options.patternType != PatternType.ALL || options.window > 0 
+				|| options.sweep != null || options.pathSummary != PathSummary.NONE)) {
+			//rules need the support of every subset of a pattern
+			throw new IllegalArgumentException("--rules cannot be used with --top-k, --window, --sweep, --path-summary, closed or maximal patterns");
+		}
+		if(options.saveTree != null && (options.window > 0 || options.outOfCore == true || options.workers > 0)) {
+			//no base FP-tree is kept in these modes
+			throw new IllegalArgumentException("--save-tree cannot be used with --window, --out-of-core or --workers");
+		}
+		if(options.loadTree != null && (options.topK > 0 || options.patternType != PatternType.ALL 
+				|| options.window > 0 || options.outOfCore == true || options.workers > 0 
+				|| options.saveTree != null && options.incremental == false)) {
+			//the snapshot has no transactions, only the FP-tree of its minimum support,
+			//or in incremental mode the FP-tree of all items, updated with the transactions appended since it was saved
+			throw new IllegalArgumentException("--load-tree cannot be used with --top-k, --window, --out-of-core, --workers, closed or maximal patterns, "
+					+ "nor with --save-tree except in --incremental mode");
+		}
+		if((options.engine == Engine.ECLAT || options.engine == Engine.LCM) && (options.topK > 0 
+				|| options.patternType != PatternType.ALL || options.incremental == true || options.window > 0 
+				|| options.outOfCore == true || options.workers > 0 || options.saveTree != null || options.loadTree != null)) {
+			//the vertical database or transaction arrays are built from the transactions, and mined by a fixed minimum support
+			throw new IllegalArgumentException("--engine=" + options.engine.name().toLowerCase() 
+					+ " cannot be used with --top-k, --incremental, --window, --out-of-core, --workers, --save-tree, --load-tree, closed or maximal patterns");
+		}
+		if(options.hasConstraints() == true && (options.topK > 0 || options.patternType != PatternType.ALL 
+				|| options.incremental == true || options.window > 0 || options.outOfCore == true || options.workers > 0 
+				|| options.rulesFile != null || options.pathSummary != PathSummary.NONE || options.saveTree != null 
+				|| options.loadTree != null || options.engine == Engine.ECLAT || options.engine == Engine.LCM)) {
+			//constraints are pushed into FP-growth on the base FP-tree built from input file
+			throw new IllegalArgumentException("--max-length, --require and --exclude cannot be used with --top-k, --incremental, --window, --out-of-core, --workers, --rules, --path-summary, --save-tree, --load-tree, other engines, closed or maximal patterns");
+		}
+		if(options.window > 0) {
+			if(options.minSupport < 0) {
+				throw new IllegalArgumentException("--window needs --min-support");
+			}
+			if(options.topK > 0 || options.patternType != PatternType.ALL || options.incremental == true) {
+				throw new IllegalArgumentException("--window cannot be used with --top-k, --incremental, closed or maximal patterns");
+			}
+			if(options.follow == true && "-".equals(options.streamInput)) {
+				throw new IllegalArgumentException("--follow needs --stream=FILE");
+			}
+		}
+		return options;
+	}
+	
+	/**
+	 * Parse value of an option as a positive integer.
+	 * @param name  option name
+	 * @param value  option value
+	 * @return the integer
+	 * @throws IllegalArgumentException if value is not a positive integer
+	 */
+	private static int parsePositiveInt(String name, String value) {
+		try {
+			int n = Integer.parseInt(value);
+			if(n > 0) {
+				return n;
+			}
+		} catch(NumberFormatException e) {
+			//fall through
+		}
+		throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+	}
+	
+	/**
+	 * Parse value of an option as a list of item names separated by commas.
+	 * @param name  option name
+	 * @param value  option value
+	 * @return item names
+	 * @throws IllegalArgumentException if value is empty
+	 */
+	private static String[] parseItems(String name, String value) {
+		if(value == null || value.isEmpty() == true) {
+			throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+		}
+		return value.split(",");
+	}
+	
+	/**
+	 * Parse value of an option as a relative minimum support.
+	 * @param name  option name
+	 * @param value  option value
+	 * @return the percentage
+	 * @throws IllegalArgumentException if value is not a number in range [0-100]
+	 */
+	private static float parsePercent(String name, String value) {
+		try {
+			float percent = Float.parseFloat(value);
+			if(percent >= 0 && percent <= 100) {
+				return percent;
+			}
+		} catch(NumberFormatException | NullPointerException e) {
+			//fall through
+		}
+		throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+	}
+	
+	/**
+	 * Parse value of an option as a non-negative number.
+	 * @param name  option name
+	 * @param value  option value
+	 * @return the number
+	 * @throws IllegalArgumentException if value is not a non-negative number
+	 */
+	private static double parseNonNegativeDouble(String name, String value) {
+		try {
+			double x = Double.parseDouble(value);
+			if(x >= 0) {
+				return x;
+			}
+		} catch(NumberFormatException | NullPointerException e) {
+			//fall through
+		}
+		throw new IllegalArgumentException("Invalid value of --" + name + ": " + value);
+	}
+	
+	/**
+	 * Print usage of command line options.
+	 */
+	public static void printUsage() {
+		System.out.println("Usage: java FPGrowth [options]");
+		System.out.println("  --patterns=all|closed|maximal");
+		System.out.println("                             kind of frequent patterns to be mined (default all)");
+		System.out.println("  --engine=fpgrowth|eclat|lcm|auto");
+		System.out.println("                             mine FP-trees, bitsets of the vertical database for dense data,");
+		System.out.println("                             arrays of merged transactions,");
+		System.out.println("                             or choose from statistics of the database (default fpgrowth)");
+		System.out.println("  --top-k=K                  mine the K patterns with the highest support, no minimum support");
+		System.out.println("  --min-length=N             count only patterns with at least N items in top-K mode");
+		System.out.println("  --sweep=P1,P2,...          mine each relative minimum support (%) in one session, one output file each");
+		System.out.println("  --incremental              keep the FP-tree in canonical order and insert transactions appended to input file");
+		System.out.println("  --window=N                 streaming mode: mine the latest N transactions of stdin");
+		System.out.println("  --slide=N                  emit patterns every N transactions in streaming mode (default window size)");
+		System.out.println("  --stream=FILE              read the stream from FILE instead of stdin");
+		System.out.println("  --follow                   wait for lines appended to the stream file, like tail -f");
+		System.out.println("  --min-support=PERCENT      relative minimum support of the window in streaming mode");
+		System.out.println("  --output=FILE              write the patterns of the latest window to FILE in streaming mode");
+		System.out.println("  --parallel                 mine conditional FP-trees in parallel");
+		System.out.println("  --threads=N                number of threads for parallel mining");
+		System.out.println("  --parallel-threshold=N     mine FP-trees with fewer nodes sequentially");
+		System.out.println("  --quiet                    do not display frequent patterns in screen");
+		System.out.println("  --count-only               only count frequent patterns, no output file");
+		System.out.println("  --path-summary=closed|maximal");
+		System.out.println("                             only generate closed or maximal patterns of long single paths");
+		System.out.println("  --path-summary-length=N    single paths with more nodes are summarized (default 20)");
+		System.out.println("  --fp-array=auto|on|off     count item pairs while building FP-trees (default auto)");
+		System.out.println("  --store-memory=MB          spill encoded transactions beyond this size to disk");
+		System.out.println("  --spill-dir=DIR            directory of spilled transactions (default temp directory)");
+		System.out.println("  --read-threads=N           number of threads reading input file (default all cores)");
+		System.out.println("  --out-of-core              mine projected databases of frequent items on disk, one at a time");
+		System.out.println("  --partition-memory=MB      memory for projected databases in out-of-core mode (default 64)");
+		System.out.println("  --workers=N                parallel FP-growth with N local worker processes, one group of items each at a time");
+		System.out.println("  --groups=G                 number of groups of frequent items of worker processes (default N)");
+		System.out.println("  --worker-heap=MB           maximum heap of each worker process (default JVM default)");
+		System.out.println("  --rules=FILE               generate association rules from the frequent patterns into FILE");
+		System.out.println("  --min-confidence=PERCENT   minimum confidence of rules (default 50)");
+		System.out.println("  --min-lift=X               minimum lift of rules (default 0)");
+		System.out.println("  --min-conviction=X         minimum conviction of rules (default 0)");
+		System.out.println("  --save-tree=FILE           save the base FP-tree and its items to a binary snapshot FILE");
+		System.out.println("  --load-tree=FILE           mine the FP-tree of a snapshot FILE instead of reading an input file,");
+		System.out.println("                             with --incremental insert only transactions appended since it was saved");
+		System.out.println("  --max-length=N             mine only patterns with at most N items");
+		System.out.println("  --require=I1,I2,...        mine only patterns containing all of these items");
+		System.out.println("  --exclude=I1,I2,...        mine only patterns containing none of these items");
+	}
+}
@@ -0,0 +1,181 @@
+/**
+ * Class for choosing the mining engine of a run from cheap statistics of the database,
+ * taken after the counting scan of DataIO.readFile():
+ * average transaction length, number of frequent items, their density,
+ * and how well an FP-tree compresses a sample of the transactions.
+ * Dense data whose FP-tree compresses poorly is mined by Eclat on bitsets,
+ * data whose FP-tree hardly shares any prefix by LCM on transaction arrays,
+ * data whose FP-tree would not fit in the heap is mined out of core from projected databases,
+ * and other data, e.g. sparse baskets, by FP-growth.
+ * The thresholds come from runs of the three engines on sparse and dense databases of 20k to 300k transactions:
+ * Eclat was 2 to 4 times faster than the others on dense data whose FP-tree compresses poorly
+ * but 20 times slower or more on sparse data, LCM was 1.4 to 1.9 times faster than FP-growth
+ * on data with at least 0.5 nodes per item inserted in the FP-tree, and as fast below it.
+ * Only engines supporting the other options of the run are considered.
+ */
+public class MiningPlanner {
+	/**
+	 * number of transactions sampled to estimate the compression of the FP-tree
+	 */
+	private static final int SAMPLE_SIZE = 10000;
+	
+	/**
+	 * data is dense if a transaction has at least this ratio of the frequent items on average,
+	 * and sparse below it
+	 */
+	public static final double DENSE_DENSITY = 0.25;
+	
+	/**
+	 * an FP-tree with at most this ratio of nodes to items inserted compresses well
+	 */
+	private static final double COMPRESSED_RATIO = 0.1;
+	
+	/**
+	 * an FP-tree with at least this ratio of nodes to items inserted hardly shares any prefix
+	 */
+	private static final double UNSHARED_RATIO = 0.5;
+	
+	/**
+	 * bytes of a node of FP-tree: item, count, parent, first child, next sibling, node link, child count
+	 */
+	private static final int NODE_BYTES = 28;
+	
+	/**
+	 * an engine is planned only if its estimated memory is at most this ratio of the free heap
+	 */
+	private static final double HEAP_RATIO = 0.5;
+	
+	/**
+	 * data input
+	 */
+	private final DataIO dataIO;
+	
+	/**
+	 * command line options
+	 */
+	private final MiningOptions options;
+	
+	/**
+	 * engine chosen
+	 */
+	private MiningOptions.Engine engine;
+	
+	/**
+	 * true if FP-growth is run out of core
+	 */
+	private boolean outOfCore;
+	
+	/**
+	 * Constructor.
+	 * @param dataIO  data input, after the input file is read
+	 * @param options  command line options
+	 */
+	public MiningPlanner(DataIO dataIO, MiningOptions options) {
+		this.dataIO = dataIO;
+		this.options = options;
+		engine = MiningOptions.Engine.FPGROWTH;
+		outOfCore = options.isOutOfCore();
+	}
+	
+	/**
+	 * Get engine chosen.
+	 * @return engine
+	 */
+	public MiningOptions.Engine getEngine() {
+		return engine;
+	}
+	
+	/**
+	 * Check if FP-growth is run out of core.
+	 * @return outOfCore
+	 */
+	public boolean isOutOfCore() {
+		return outOfCore;
+	}
+	
+	/**
+	 * Check if engines other than FP-growth on the base FP-tree support the options of the run,
+	 * i.e. all patterns are mined by a fixed minimum support from the transactions of input file, with no constraint,
+	 * and no option given for the FP-trees, such as path summaries or the FP-array.
+	 * @return true if Eclat, LCM and out-of-core mining may be chosen
+	 */
+	private boolean isChoiceAllowed() {
+		return options.getPatternType() == MiningOptions.PatternType.ALL && options.getTopK() == 0
+				&& options.isIncremental() == false && options.getWindow() == 0 && options.getWorkers() == 0
+				&& options.getSaveTree() == null && options.hasConstraints() == false && dataIO.isSnapshot() == false
+				&& options.getPathSummary() == MiningOptions.PathSummary.NONE 
+				&& options.getFPArray() == MiningOptions.FPArray.AUTO;
+	}
+	
+	/**
+	 * Compute statistics of the database, choose the engine, and print the plan.
+	 */
+	public void plan() {
+		System.out.print("Plan >>>\t");
+		if(isChoiceAllowed() == false) {
+			engine = MiningOptions.Engine.FPGROWTH;
+			System.out.println("engine: fpgrowth, the only engine of these options\n");
+			return;
+		}
+		ItemDictionary dictionary = dataIO.getDictionary();
+		int transactionCount = Math.max(1, dataIO.getTransactionCount());
+		int frequentItemCount = dataIO.getFrequentItemCount();
+		//LineTokenizer keeps each item once in a transaction, so supports add up to the occurrences
+		long occurrences = 0;
+		long frequentOccurrences = 0;
+		for(int item = 0; item < dictionary.size(); item++) {
+			occurrences += dictionary.getSupport(item);
+			if(item < frequentItemCount) {
+				frequentOccurrences += dictionary.getSupport(item);
+			}
+		}
+		double averageLength = (double) occurrences / transactionCount;
+		double averageFrequentLength = (double) frequentOccurrences / transactionCount;
+		double density = frequentItemCount == 0 ? 0 : averageFrequentLength / frequentItemCount;
+		//nodes per item inserted in an FP-tree of a sample, an upper bound for the whole database
+		FPTree sample = new FPTree(frequentItemCount);
+		int sampleCount = dataIO.createTreeFromSample(sample, SAMPLE_SIZE);
+		double nodeRatio = sample.getInsertedItemCount() == 0 ? 0
+				: (double) (sample.getNodeCount() - 1) / sample.getInsertedItemCount();
+		//estimated memory of each engine
+		long treeBytes = (long) (frequentOccurrences * nodeRatio) * NODE_BYTES;
+		long bitsetBytes = (long) frequentItemCount * ((transactionCount + 63) / 64) * 8;
+		//items, start, weight and hash slot of each transaction
+		long arrayBytes = frequentOccurrences * 4 + (long) transactionCount * 16;
+		Runtime runtime = Runtime.getRuntime();
+		long freeBytes = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		String reason;
+		if(options.isOutOfCore() == true) {
+			reason = "out of core as asked";
+		} else if(density >= DENSE_DENSITY && nodeRatio > COMPRESSED_RATIO && bitsetBytes <= HEAP_RATIO * freeBytes) {
+			engine = MiningOptions.Engine.ECLAT;
+			reason = "dense data, FP-tree compresses poorly";
+		} else if(nodeRatio >= UNSHARED_RATIO && arrayBytes <= HEAP_RATIO * freeBytes) {
+			engine = MiningOptions.Engine.LCM;
+			reason = "FP-tree hardly shares any prefix";
+		} else if(treeBytes > HEAP_RATIO * freeBytes) {
+			outOfCore = true;
+			reason = "FP-tree would not fit in the heap, mining projected databases out of core";
+		} else if(density < DENSE_DENSITY) {
+			reason = "sparse data, FP-tree shares prefixes";
+		} else {
+			reason = "FP-tree compresses well";
+		}
+		System.out.println("engine: " + engine.name().toLowerCase() + (outOfCore == true ? " (out of core)" : "") + ", " + reason);
+		System.out.println("Average transaction length: " + String.format("%.2f", averageLength)
+				+ ", frequent items: " + frequentItemCount + ", average frequent items per transaction: "
+				+ String.format("%.2f", averageFrequentLength) + ", density: " + String.format("%.3f", density));
+		System.out.println("Sample FP-tree: " + sampleCount + " transactions, "
+				+ String.format("%.3f", nodeRatio) + " nodes per item inserted");
+		if(engine == MiningOptions.Engine.ECLAT) {
+			System.out.println("Item order: ascending support in equivalence classes");
+		} else if(engine == MiningOptions.Engine.LCM) {
+			System.out.println("Item order: descending support in transaction arrays");
+		} else {
+			System.out.println("Item order: descending support in FP-tree");
+		}
+		System.out.println("Estimated memory: FP-tree " + treeBytes / (1024 * 1024) + "MB, bitsets "
+				+ bitsetBytes / (1024 * 1024) + "MB, transaction arrays " + arrayBytes / (1024 * 1024) 
+				+ "MB, free heap " + freeBytes / (1024 * 1024) + "MB\n");
+	}
+}
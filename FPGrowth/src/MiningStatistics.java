@@ -0,0 +1,62 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class for statistics of a mining run.
+ * Counters are updated by all mining threads in parallel mode.
+ */
+public class MiningStatistics {
+	/**
+	 * number of conditional FP-trees created
+	 */
+	private final LongAdder conditionalTrees = new LongAdder();
+	
+	/**
+	 * number of conditional FP-trees whose item counts were read from FP-array
+	 */
+	private final LongAdder countedByArray = new LongAdder();
+	
+	/**
+	 * number of FP-trees which built an FP-array
+	 */
+	private final LongAdder arraysBuilt = new LongAdder();
+	
+	/**
+	 * true if the base FP-tree built an FP-array
+	 */
+	private volatile boolean baseTreeArray;
+	
+	/**
+	 * Record that a conditional FP-tree was created.
+	 * @param isCountedByArray  true if its item counts were read from FP-array,
+	 *                          false if they were counted by scanning prefix paths
+	 */
+	public void addConditionalTree(boolean isCountedByArray) {
+		conditionalTrees.increment();
+		if(isCountedByArray == true) {
+			countedByArray.increment();
+		}
+	}
+	
+	/**
+	 * Record that an FP-tree built an FP-array.
+	 * @param isBaseTree  true if it is the base FP-tree
+	 */
+	public void addArray(boolean isBaseTree) {
+		arraysBuilt.increment();
+		if(isBaseTree == true) {
+			baseTreeArray = true;
+		}
+	}
+	
+	/**
+	 * Print statistics.
+	 */
+	public void print() {
+		long trees = conditionalTrees.sum();
+		long byArray = countedByArray.sum();
+		System.out.println("Conditional FP-trees: " + trees 
+				+ " (item counts from FP-array: " + byArray + ", by scanning prefix paths: " + (trees - byArray) + ")");
+		System.out.println("FP-arrays built: " + arraysBuilt.sum() 
+				+ (baseTreeArray ? " (including base FP-tree)" : " (not for base FP-tree)"));
+	}
+}
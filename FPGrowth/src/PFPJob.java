@@ -0,0 +1,348 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class for a job of parallel FP-growth (PFP) run by local worker processes.
+ * Frequent items are divided into groups, item i in group i % groups, so groups have items of all supports.
+ * Each transaction, with its frequent items sorted by support, is sharded by group:
+ * for each group, the prefix ending at the last item of the group goes to the shard of the group.
+ * The shard of a group then holds the conditional pattern base of each item of the group,
+ * so a worker mines the patterns whose least frequent item is in its group from its shard alone.
+ * Workers are separate JVMs, each with its own heap, reading their shard from a file
+ * and writing their patterns to a file in binary, which are passed to the sink of the job in group order.
+ */
+public class PFPJob {
+	/**
+	 * number of worker processes running at the same time
+	 */
+	private final int workers;
+	
+	/**
+	 * number of groups of items
+	 */
+	private final int groups;
+	
+	/**
+	 * maximum MB of heap of a worker, 0 for the default
+	 */
+	private final int workerHeap;
+	
+	/**
+	 * options passed to each worker
+	 */
+	private final List<String> workerOptions;
+	
+	/**
+	 * directory of shards and pattern files
+	 */
+	private final File directory;
+	
+	/**
+	 * shard file of each group
+	 */
+	private final File[] shardFiles;
+	
+	/**
+	 * stream of each shard file
+	 */
+	private final DataOutputStream[] shards;
+	
+	/**
+	 * last transaction written to each shard
+	 */
+	private final int[] lastTransactions;
+	
+	/**
+	 * number of transactions sharded
+	 */
+	private int transactionCount;
+	
+	/**
+	 * number of items written to all shards
+	 */
+	private long shardedItemCount;
+	
+	/**
+	 * Constructor. Create the shard files.
+	 * @param workers  number of worker processes running at the same time
+	 * @param groups  number of groups of items
+	 * @param minSupport  absolute minimum support
+	 * @param itemCount  number of frequent items
+	 * @param workerHeap  maximum MB of heap of a worker, 0 for the default
+	 * @param workerOptions  options passed to each worker
+	 * @param spillDirectory  directory of job files, null for the default temp directory
+	 * @throws IOException if the files cannot be created
+	 */
+	public PFPJob(int workers, int groups, int minSupport, int itemCount, int workerHeap,
+			List<String> workerOptions, File spillDirectory) throws IOException {
+		this.workers = workers;
+		this.groups = groups;
+		this.workerHeap = workerHeap;
+		this.workerOptions = workerOptions;
+		directory = spillDirectory == null ? Files.createTempDirectory("fpgrowth-pfp").toFile()
+				: Files.createTempDirectory(spillDirectory.toPath(), "fpgrowth-pfp").toFile();
+		directory.deleteOnExit();
+		shardFiles = new File[groups];
+		shards = new DataOutputStream[groups];
+		lastTransactions = new int[groups];
+		for(int group = 0; group < groups; group++) {
+			shardFiles[group] = new File(directory, "shard-" + group);
+			shardFiles[group].deleteOnExit();
+			shards[group] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(shardFiles[group]), 1 << 16));
+			//header of the shard
+			shards[group].writeInt(group);
+			shards[group].writeInt(groups);
+			shards[group].writeInt(minSupport);
+			shards[group].writeInt(itemCount);
+			lastTransactions[group] = -1;
+		}
+		transactionCount = 0;
+		shardedItemCount = 0;
+	}
+	
+	/**
+	 * Get group of an item.
+	 * @param item  item id in database
+	 * @param groups  number of groups
+	 * @return group
+	 */
+	public static int getGroup(int item, int groups) {
+		return item % groups;
+	}
+	
+	/**
+	 * Get file of the patterns mined from a shard.
+	 * @param shardFile
+	 * @return pattern file
+	 */
+	public static File getPatternFile(File shardFile) {
+		return new File(shardFile.getPath() + ".patterns");
+	}
+	
+	/**
+	 * Add a transaction to the shards of the groups of its items.
+	 * @param transaction  frequent items sorted in ascending order
+	 * @param length  number of items
+	 */
+	public void addTransaction(int[] transaction, int length) {
+		try {
+			for(int j = length-1; j >= 0; j--) {
+				int group = getGroup(transaction[j], groups);
+				if(lastTransactions[group] == transactionCount) {
+					//a longer prefix is in the shard
+					continue;
+				}
+				lastTransactions[group] = transactionCount;
+				DataOutputStream shard = shards[group];
+				shard.writeInt(j + 1);
+				for(int i = 0; i <= j; i++) {
+					shard.writeInt(transaction[i]);
+				}
+				shardedItemCount += j + 1;
+			}
+			transactionCount++;
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Run a worker process for each group, and pass the patterns of all groups to a sink.
+	 * @param sink  sink receiving the patterns
+	 * @throws IOException if a job file cannot be written or read
+	 * @throws InterruptedException if interrupted while waiting for workers
+	 * @throws IllegalStateException if a worker fails
+	 */
+	public void run(PatternSink sink) throws IOException, InterruptedException {
+		for(DataOutputStream shard : shards) {
+			shard.close();
+		}
+		System.out.println("PFP >>>\t" + groups + " groups, " + workers + " workers, "
+				+ shardedItemCount + " items in shards of " + transactionCount + " transactions");
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		String classPath = System.getProperty("java.class.path");
+		//start workers, and keep at most workers of them running
+		ArrayDeque<Process> running = new ArrayDeque<Process>();
+		ArrayDeque<Integer> runningGroups = new ArrayDeque<Integer>();
+		int next = 0;
+		while(next < groups || running.isEmpty() == false) {
+			while(next < groups && running.size() < workers) {
+				List<String> command = new ArrayList<String>();
+				command.add(java);
+				if(workerHeap > 0) {
+					command.add("-Xmx" + workerHeap + "m");
+				}
+				command.add("-cp");
+				command.add(classPath);
+				command.add("FPGrowth");
+				command.add("--worker=" + shardFiles[next].getPath());
+				command.addAll(workerOptions);
+				File log = new File(directory, "worker-" + next + ".log");
+				log.deleteOnExit();
+				getPatternFile(shardFiles[next]).deleteOnExit();
+				ProcessBuilder builder = new ProcessBuilder(command);
+				builder.redirectErrorStream(true);
+				builder.redirectOutput(log);
+				running.add(builder.start());
+				runningGroups.add(next);
+				next++;
+			}
+			Process process = running.poll();
+			int group = runningGroups.poll();
+			int exitCode = process.waitFor();
+			if(exitCode != 0) {
+				for(Process p : running) {
+					p.destroy();
+				}
+				String log = new String(Files.readAllBytes(new File(directory, "worker-" + group + ".log").toPath()));
+				throw new IllegalStateException("Worker of group " + group + " failed with exit code " + exitCode + ":\n" + log);
+			}
+		}
+		System.out.println("PFP >>>\tWorkers complete!");
+		//aggregate patterns of all groups
+		for(int group = 0; group < groups; group++) {
+			readPatterns(getPatternFile(shardFiles[group]), sink);
+		}
+	}
+	
+	/**
+	 * Delete the job files.
+	 */
+	public void close() {
+		File[] files = directory.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+	
+	/**
+	 * Read the header of a shard: group, number of groups, absolute minimum support and number of frequent items.
+	 * @param in  stream of the shard file
+	 * @return header
+	 * @throws IOException
+	 */
+	public static int[] readHeader(DataInputStream in) throws IOException {
+		int[] header = new int[4];
+		for(int i = 0; i < header.length; i++) {
+			header[i] = in.readInt();
+		}
+		return header;
+	}
+	
+	/**
+	 * Read the next transaction of a shard.
+	 * @param in  stream of the shard file, after the header
+	 * @param transaction  buffer of at least as many items as frequent items
+	 * @return number of items, or -1 at the end of the shard
+	 * @throws IOException
+	 */
+	public static int readTransaction(DataInputStream in, int[] transaction) throws IOException {
+		int length;
+		try {
+			length = in.readInt();
+		} catch(EOFException e) {
+			return -1;
+		}
+		for(int i = 0; i < length; i++) {
+			transaction[i] = in.readInt();
+		}
+		return length;
+	}
+	
+	/**
+	 * Open a shard file.
+	 * @param shardFile
+	 * @return stream of the shard file
+	 * @throws IOException
+	 */
+	public static DataInputStream openShard(File shardFile) throws IOException {
+		return new DataInputStream(new BufferedInputStream(new FileInputStream(shardFile), 1 << 16));
+	}
+	
+	/**
+	 * Pass the patterns of a pattern file to a sink.
+	 * @param file  pattern file written by PatternWriter
+	 * @param sink
+	 * @throws IOException
+	 */
+	private static void readPatterns(File file, PatternSink sink) throws IOException {
+		DataInputStream in = openShard(file);
+		try {
+			int[] items = new int[16];
+			while(true) {
+				int length;
+				try {
+					length = in.readInt();
+				} catch(EOFException e) {
+					break;
+				}
+				if(length > items.length) {
+					items = new int[Math.max(length, items.length * 2)];
+				}
+				for(int i = 0; i < length; i++) {
+					items[i] = in.readInt();
+				}
+				sink.accept(items, length, in.readInt());
+			}
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Class for a pattern sink of a worker, which writes patterns to a pattern file in binary:
+	 * the number of items, the item ids and the support.
+	 */
+	public static class PatternWriter implements PatternSink {
+		/**
+		 * stream of the pattern file
+		 */
+		private final DataOutputStream out;
+		
+		/**
+		 * Constructor.
+		 * @param file  pattern file
+		 * @throws IOException if the file cannot be opened
+		 */
+		public PatternWriter(File file) throws IOException {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		}
+		
+		@Override
+		public synchronized void accept(int[] items, int length, int support) {
+			try {
+				out.writeInt(length);
+				for(int i = 0; i < length; i++) {
+					out.writeInt(items[i]);
+				}
+				out.writeInt(support);
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		@Override
+		public void close() {
+			try {
+				out.close();
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
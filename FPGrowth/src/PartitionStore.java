@@ -0,0 +1,400 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Class for the projected databases of frequent items, written to disk for out-of-core mining.
+ * Each partition is a list of transactions of item ids, each one as its length followed by its items.
+ * Transactions added to a partition are buffered in memory,
+ * and when all buffers take more memory than the budget, they are appended to one temp file together,
+ * each buffer as a segment of its partition.
+ * A partition is read by its segments in the temp file, then by its buffer.
+ */
+public class PartitionStore {
+	/**
+	 * buffers of more ints than this are released after they are spilled
+	 */
+	private static final int KEPT_BUFFER_SIZE = 1 << 10;
+	
+	/**
+	 * buffer of each partition
+	 */
+	private final int[][] buffers;
+	
+	/**
+	 * number of ints in the buffer of each partition
+	 */
+	private final int[] bufferSizes;
+	
+	/**
+	 * number of ints in all buffers
+	 */
+	private long bufferedCount;
+	
+	/**
+	 * maximum number of ints in all buffers
+	 */
+	private final long maxBufferedCount;
+	
+	/**
+	 * position in temp file of each segment of each partition, null if the partition has no segment
+	 */
+	private final long[][] segmentPositions;
+	
+	/**
+	 * number of ints of each segment of each partition
+	 */
+	private final int[][] segmentSizes;
+	
+	/**
+	 * number of segments of each partition
+	 */
+	private final int[] segmentCounts;
+	
+	/**
+	 * directory of temp file, null for the default temp directory
+	 */
+	private final File spillDirectory;
+	
+	/**
+	 * temp file of segments, null if nothing is spilled
+	 */
+	private File spillFile;
+	
+	/**
+	 * channel of temp file
+	 */
+	private FileChannel spillChannel;
+	
+	/**
+	 * number of bytes in temp file
+	 */
+	private long spilledBytes;
+	
+	/**
+	 * Constructor.
+	 * @param partitionCount  number of partitions
+	 * @param memoryBudget  maximum bytes of buffers in memory
+	 * @param spillDirectory  directory of temp file, null for the default temp directory
+	 */
+	public PartitionStore(int partitionCount, long memoryBudget, File spillDirectory) {
+		buffers = new int[partitionCount][];
+		bufferSizes = new int[partitionCount];
+		bufferedCount = 0;
+		maxBufferedCount = Math.max(KEPT_BUFFER_SIZE, memoryBudget / 4);
+		segmentPositions = new long[partitionCount][];
+		segmentSizes = new int[partitionCount][];
+		segmentCounts = new int[partitionCount];
+		this.spillDirectory = spillDirectory;
+		spillFile = null;
+		spilledBytes = 0;
+	}
+	
+	/**
+	 * Get number of bytes spilled to temp file.
+	 * @return number of bytes
+	 */
+	public long getSpilledBytes() {
+		return spilledBytes;
+	}
+	
+	/**
+	 * Add one transaction to a partition.
+	 * @param partition
+	 * @param items  item ids of the transaction
+	 * @param start  index of first item in items
+	 * @param length  number of items
+	 */
+	public void add(int partition, int[] items, int start, int length) {
+		int[] buffer = buffers[partition];
+		int size = bufferSizes[partition];
+		if(buffer == null) {
+			buffer = new int[Math.max(16, length + 1)];
+			buffers[partition] = buffer;
+		} else if(size + length + 1 > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length + 1));
+			buffers[partition] = buffer;
+		}
+		buffer[size] = length;
+		System.arraycopy(items, start, buffer, size + 1, length);
+		bufferSizes[partition] = size + length + 1;
+		bufferedCount += length + 1;
+		if(bufferedCount > maxBufferedCount) {
+			spill();
+		}
+	}
+	
+	/**
+	 * Append the buffers of all partitions to temp file.
+	 */
+	private void spill() {
+		try {
+			if(spillFile == null) {
+				spillFile = File.createTempFile("fpgrowth", ".partitions", spillDirectory);
+				spillFile.deleteOnExit();
+				spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+			}
+			for(int partition = 0; partition < buffers.length; partition++) {
+				int size = bufferSizes[partition];
+				if(size == 0) {
+					continue;
+				}
+				ByteBuffer bytes = ByteBuffer.allocate(4 * size).order(ByteOrder.nativeOrder());
+				bytes.asIntBuffer().put(buffers[partition], 0, size);
+				addSegment(partition, spilledBytes, size);
+				while(bytes.hasRemaining()) {
+					spilledBytes += spillChannel.write(bytes, spilledBytes);
+				}
+				bufferSizes[partition] = 0;
+				if(buffers[partition].length > KEPT_BUFFER_SIZE) {
+					buffers[partition] = null;
+				}
+			}
+			bufferedCount = 0;
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Add a segment to the list of segments of a partition.
+	 * @param partition
+	 * @param position  position in temp file
+	 * @param size  number of ints
+	 */
+	private void addSegment(int partition, long position, int size) {
+		int count = segmentCounts[partition];
+		if(count == 0 && segmentPositions[partition] == null) {
+			segmentPositions[partition] = new long[4];
+			segmentSizes[partition] = new int[4];
+		} else if(count == segmentPositions[partition].length) {
+			segmentPositions[partition] = Arrays.copyOf(segmentPositions[partition], count * 2);
+			segmentSizes[partition] = Arrays.copyOf(segmentSizes[partition], count * 2);
+		}
+		segmentPositions[partition][count] = position;
+		segmentSizes[partition][count] = size;
+		segmentCounts[partition] = count + 1;
+	}
+	
+	/**
+	 * Take all transactions of a partition out of the store.
+	 * No transaction may be added to the partition afterwards.
+	 * @param partition
+	 * @return the partition, to be read as many times as needed
+	 */
+	public Partition take(int partition) {
+		Partition taken = new Partition(segmentPositions[partition], segmentSizes[partition], segmentCounts[partition],
+				buffers[partition], bufferSizes[partition]);
+		bufferedCount -= bufferSizes[partition];
+		buffers[partition] = null;
+		bufferSizes[partition] = 0;
+		segmentPositions[partition] = null;
+		segmentSizes[partition] = null;
+		segmentCounts[partition] = 0;
+		return taken;
+	}
+	
+	/**
+	 * Delete the temp file.
+	 */
+	public void close() {
+		if(spillFile != null) {
+			try {
+				spillChannel.close();
+			} catch(IOException e) {
+				e.printStackTrace();
+			}
+			spillFile.delete();
+			spillFile = null;
+		}
+	}
+	
+	/**
+	 * Class for the transactions of a partition taken out of the store.
+	 */
+	public class Partition {
+		/**
+		 * position in temp file of each segment
+		 */
+		private final long[] positions;
+		
+		/**
+		 * number of ints of each segment
+		 */
+		private final int[] sizes;
+		
+		/**
+		 * number of segments
+		 */
+		private final int segmentCount;
+		
+		/**
+		 * transactions not spilled
+		 */
+		private final int[] buffer;
+		
+		/**
+		 * number of ints in buffer
+		 */
+		private final int bufferSize;
+		
+		/**
+		 * Constructor.
+		 * @param positions
+		 * @param sizes
+		 * @param segmentCount
+		 * @param buffer
+		 * @param bufferSize
+		 */
+		private Partition(long[] positions, int[] sizes, int segmentCount, int[] buffer, int bufferSize) {
+			this.positions = positions;
+			this.sizes = sizes;
+			this.segmentCount = segmentCount;
+			this.buffer = buffer;
+			this.bufferSize = bufferSize;
+		}
+		
+		/**
+		 * Open a reader of all transactions of the partition.
+		 * @return reader
+		 */
+		public Reader openReader() {
+			return new Reader(this);
+		}
+	}
+	
+	/**
+	 * Class for reading the transactions of a partition one by one,
+	 * a segment at a time.
+	 * The items of the current transaction are in the segment array, from getStart().
+	 */
+	public class Reader {
+		/**
+		 * partition being read
+		 */
+		private final Partition partition;
+		
+		/**
+		 * index of next segment, segmentCount for the buffer
+		 */
+		private int nextSegment;
+		
+		/**
+		 * ints of current segment
+		 */
+		private int[] segment;
+		
+		/**
+		 * number of ints in current segment
+		 */
+		private int segmentSize;
+		
+		/**
+		 * index of the length of next transaction in current segment
+		 */
+		private int position;
+		
+		/**
+		 * index of first item of current transaction
+		 */
+		private int start;
+		
+		/**
+		 * number of items of current transaction
+		 */
+		private int length;
+		
+		/**
+		 * Constructor.
+		 * @param partition
+		 */
+		private Reader(Partition partition) {
+			this.partition = partition;
+			nextSegment = 0;
+			segment = null;
+			segmentSize = 0;
+			position = 0;
+		}
+		
+		/**
+		 * Move to next transaction.
+		 * @return true if there is a next transaction, false at the end of the partition
+		 */
+		public boolean next() {
+			while(position == segmentSize) {
+				if(nextSegment > partition.segmentCount) {
+					return false;
+				}
+				if(nextSegment == partition.segmentCount) {
+					segment = partition.buffer;
+					segmentSize = partition.bufferSize;
+				} else {
+					segmentSize = partition.sizes[nextSegment];
+					segment = read(partition.positions[nextSegment], segmentSize, segment);
+				}
+				nextSegment++;
+				position = 0;
+			}
+			length = segment[position];
+			start = position + 1;
+			position = start + length;
+			return true;
+		}
+		
+		/**
+		 * Read a segment from temp file.
+		 * @param offset  position in temp file
+		 * @param size  number of ints
+		 * @param array  array to be reused if large enough, or null
+		 * @return array of the ints
+		 */
+		private int[] read(long offset, int size, int[] array) {
+			if(array == null || array.length < size || array == partition.buffer) {
+				array = new int[size];
+			}
+			try {
+				ByteBuffer bytes = ByteBuffer.allocate(4 * size).order(ByteOrder.nativeOrder());
+				while(bytes.hasRemaining()) {
+					int n = spillChannel.read(bytes, offset + bytes.position());
+					if(n < 0) {
+						throw new IOException("Unexpected end of partition file");
+					}
+				}
+				bytes.flip();
+				bytes.asIntBuffer().get(array, 0, size);
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return array;
+		}
+		
+		/**
+		 * Get the array holding items of current transaction, from getStart().
+		 * @return array reused by next segment
+		 */
+		public int[] getItems() {
+			return segment;
+		}
+		
+		/**
+		 * Get index of first item of current transaction in getItems().
+		 * @return index
+		 */
+		public int getStart() {
+			return start;
+		}
+		
+		/**
+		 * Get number of items of current transaction.
+		 * @return number of items
+		 */
+		public int getLength() {
+			return length;
+		}
+	}
+}
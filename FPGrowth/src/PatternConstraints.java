@@ -0,0 +1,178 @@
+import java.util.Arrays;
+
+/**
+ * Class for the constraints on the patterns mined by FP-growth: a maximum length,
+ * items every pattern must contain, and items no pattern may contain.
+ * They are pushed into mining instead of filtering output:
+ * excluded items are never inserted into the base FP-tree,
+ * no conditional FP-tree is created for a pattern of the maximum length,
+ * and as items are added to a suffix in descending order of item id,
+ * an item below the largest required item missing from the suffix is never explored,
+ * nor a conditional FP-tree lacking a missing required item.
+ */
+public class PatternConstraints {
+	/**
+	 * no constraint, every pattern is accepted
+	 */
+	public static final PatternConstraints NONE = new PatternConstraints(Integer.MAX_VALUE, new int[0], null);
+	
+	/**
+	 * maximum number of items of a pattern
+	 */
+	private final int maxLength;
+	
+	/**
+	 * item ids of the required items, in descending order,
+	 * Integer.MAX_VALUE for an item not in database
+	 */
+	private final int[] requiredItems;
+	
+	/**
+	 * true for each excluded item id, null if no item is excluded
+	 */
+	private final boolean[] excludedItems;
+	
+	/**
+	 * Constructor.
+	 * @param maxLength  maximum number of items of a pattern
+	 * @param requiredItems  item ids of the required items, in descending order
+	 * @param excludedItems  true for each excluded item id, null if none
+	 */
+	private PatternConstraints(int maxLength, int[] requiredItems, boolean[] excludedItems) {
+		this.maxLength = maxLength;
+		this.requiredItems = requiredItems;
+		this.excludedItems = excludedItems;
+	}
+	
+	/**
+	 * Create the constraints of the options, after input file is read.
+	 * @param options  command line options
+	 * @param dictionary  item dictionary of database
+	 * @return constraints, which accept every pattern if options give none
+	 */
+	public static PatternConstraints create(MiningOptions options, ItemDictionary dictionary) {
+		int maxLength = options.getMaxLength() > 0 ? options.getMaxLength() : Integer.MAX_VALUE;
+		int[] requiredItems = new int[0];
+		if(options.getRequiredItems() != null) {
+			requiredItems = new int[options.getRequiredItems().length];
+			for(int i = 0; i < requiredItems.length; i++) {
+				int code = dictionary.getCode(options.getRequiredItems()[i]);
+				//no pattern has an item not in database
+				requiredItems[i] = code < 0 ? Integer.MAX_VALUE : dictionary.getItem(code);
+			}
+			//descending order, without duplicates
+			Arrays.sort(requiredItems);
+			int[] descending = new int[requiredItems.length];
+			int length = 0;
+			for(int i = requiredItems.length-1; i >= 0; i--) {
+				if(length == 0 || descending[length-1] != requiredItems[i]) {
+					descending[length++] = requiredItems[i];
+				}
+			}
+			requiredItems = Arrays.copyOf(descending, length);
+		}
+		boolean[] excludedItems = null;
+		if(options.getExcludedItems() != null) {
+			excludedItems = new boolean[dictionary.size()];
+			for(String name : options.getExcludedItems()) {
+				int code = dictionary.getCode(name);
+				if(code >= 0) {
+					excludedItems[dictionary.getItem(code)] = true;
+				}
+			}
+		}
+		return new PatternConstraints(maxLength, requiredItems, excludedItems);
+	}
+	
+	/**
+	 * Get maximum number of items of a pattern.
+	 * @return maxLength, Integer.MAX_VALUE if not limited
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+	
+	/**
+	 * Check if an item is excluded from all patterns.
+	 * @param itemId  item id in database
+	 * @return true if the item is excluded
+	 */
+	public boolean isExcluded(int itemId) {
+		return excludedItems != null && excludedItems[itemId] == true;
+	}
+	
+	/**
+	 * Get the largest required item not in a pattern.
+	 * Only items below the last item of the pattern can be added to it,
+	 * so no pattern with the missing item is grown from an item below it.
+	 * @param pattern  item ids in descending order
+	 * @param length  number of items
+	 * @return item id of the missing item, -1 if the pattern has all required items
+	 */
+	public int getMissingItem(int[] pattern, int length) {
+		int i = 0;
+		for(int requiredItem : requiredItems) {
+			while(i < length && pattern[i] > requiredItem) {
+				i++;
+			}
+			if(i == length || pattern[i] != requiredItem) {
+				return requiredItem;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Check if the patterns grown from a suffix in an FP-tree can have all required items,
+	 * i.e. each required item missing from the suffix is frequent in the tree.
+	 * @param tree  FP-tree of the suffix
+	 * @param suffix  item ids in descending order
+	 * @param minSupport  absolute minimum support
+	 * @return false if no pattern of the tree satisfies the constraints
+	 */
+	public boolean canComplete(FPTree tree, int[] suffix, int minSupport) {
+		int i = 0;
+		for(int requiredItem : requiredItems) {
+			while(i < suffix.length && suffix[i] > requiredItem) {
+				i++;
+			}
+			if(i < suffix.length && suffix[i] == requiredItem) {
+				continue;
+			}
+			if(requiredItem == Integer.MAX_VALUE) {
+				return false;
+			}
+			int item = tree.getItemById(requiredItem);
+			if(item < 0 || tree.getSupportByItem(item) < minSupport) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Print the constraints.
+	 * @param dictionary  item dictionary of database
+	 */
+	public void print(ItemDictionary dictionary) {
+		StringBuilder text = new StringBuilder("Constraints >>>\t");
+		if(maxLength < Integer.MAX_VALUE) {
+			text.append("max length ").append(maxLength).append("; ");
+		}
+		if(requiredItems.length > 0) {
+			text.append("required");
+			for(int item : requiredItems) {
+				text.append(' ').append(item == Integer.MAX_VALUE ? "(not in database)" : dictionary.getName(item));
+			}
+			text.append("; ");
+		}
+		if(excludedItems != null) {
+			int count = 0;
+			for(boolean isExcluded : excludedItems) {
+				count += isExcluded == true ? 1 : 0;
+			}
+			text.append(count).append(" items excluded; ");
+		}
+		System.out.println(text.substring(0, text.length() - 2) + "\n");
+	}
+}
@@ -0,0 +1,21 @@
+/**
+ * Interface for consumers of frequent patterns.
+ * Patterns are passed as item ids in an array which the miner reuses,
+ * so a sink must copy the items if it keeps them.
+ * In parallel mode, patterns are passed by all mining threads at the same time.
+ */
+public interface PatternSink {
+	/**
+	 * Receive a frequent pattern.
+	 * @param items  item ids of the pattern, in descending order of item id,
+	 *               i.e. the most frequent item is the last one
+	 * @param length  number of items in the pattern
+	 * @param support  support of the pattern
+	 */
+	public void accept(int[] items, int length, int support);
+	
+	/**
+	 * Flush and release resources after all patterns have been passed.
+	 */
+	public void close();
+}
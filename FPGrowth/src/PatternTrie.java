@@ -0,0 +1,148 @@
+/**
+ * Class for a pattern sink which keeps all patterns in a trie of item ids,
+ * to look up the support of any frequent itemset without parsing output.
+ * Items of a pattern are stored in ascending order of item id, i.e. the most frequent item first,
+ * so patterns sharing frequent items share their prefix in the trie.
+ * The trie is a struct of arrays like FPTree: node i has its parent, item and support,
+ * and the children of all nodes are found in one ChildIndex by (parent, item).
+ * A node whose pattern has not been received yet, as subsets may come after their supersets, has support 0.
+ */
+public class PatternTrie implements PatternSink {
+	/**
+	 * root node, the empty itemset
+	 */
+	public static final int ROOT = 0;
+	
+	/**
+	 * parent of each node
+	 */
+	private final ChunkedIntArray parents;
+	
+	/**
+	 * item id of each node
+	 */
+	private final ChunkedIntArray items;
+	
+	/**
+	 * support of the pattern of each node, 0 if not received
+	 */
+	private final ChunkedIntArray supports;
+	
+	/**
+	 * child of each (parent, item)
+	 */
+	private final ChildIndex children;
+	
+	/**
+	 * number of nodes, including root
+	 */
+	private int nodeCount;
+	
+	/**
+	 * number of patterns received
+	 */
+	private long patternCount;
+	
+	/**
+	 * Constructor.
+	 * @param transactionCount  number of transactions, the support of the empty itemset
+	 */
+	public PatternTrie(int transactionCount) {
+		parents = new ChunkedIntArray(1024);
+		items = new ChunkedIntArray(1024);
+		supports = new ChunkedIntArray(1024);
+		children = new ChildIndex();
+		parents.set(ROOT, FPTree.NULL);
+		items.set(ROOT, FPTree.NULL);
+		supports.set(ROOT, transactionCount);
+		nodeCount = 1;
+		patternCount = 0;
+	}
+	
+	@Override
+	public synchronized void accept(int[] patternItems, int length, int support) {
+		int node = ROOT;
+		//items come in descending order of item id
+		for(int i = length-1; i >= 0; i--) {
+			int child = children.get(node, patternItems[i]);
+			if(child == FPTree.NULL) {
+				child = nodeCount++;
+				parents.ensureCapacity(nodeCount);
+				items.ensureCapacity(nodeCount);
+				supports.ensureCapacity(nodeCount);
+				parents.set(child, node);
+				items.set(child, patternItems[i]);
+				supports.set(child, 0);
+				children.put(node, patternItems[i], child);
+			}
+			node = child;
+		}
+		supports.set(node, support);
+		patternCount++;
+	}
+	
+	@Override
+	public void close() {
+	}
+	
+	/**
+	 * Get number of nodes, including root.
+	 * @return number of nodes
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+	
+	/**
+	 * Get number of patterns received.
+	 * @return number of patterns
+	 */
+	public long getPatternCount() {
+		return patternCount;
+	}
+	
+	/**
+	 * Get parent of a node.
+	 * @param node
+	 * @return parent, FPTree.NULL for root
+	 */
+	public int getParent(int node) {
+		return parents.get(node);
+	}
+	
+	/**
+	 * Get item id of a node.
+	 * @param node
+	 * @return item id
+	 */
+	public int getItem(int node) {
+		return items.get(node);
+	}
+	
+	/**
+	 * Get support of the pattern of a node.
+	 * @param node
+	 * @return support, 0 if the pattern has not been received
+	 */
+	public int getSupport(int node) {
+		return supports.get(node);
+	}
+	
+	/**
+	 * Get support of an itemset.
+	 * Must not be called while patterns are being received.
+	 * @param itemset  item ids in ascending order
+	 * @param length  number of items
+	 * @return support, 0 if the itemset is not a pattern received
+	 */
+	public int getSupport(int[] itemset, int length) {
+		int node = ROOT;
+		for(int i = 0; i < length; i++) {
+			node = children.get(node, itemset[i]);
+			if(node == FPTree.NULL) {
+				return 0;
+			}
+		}
+		return supports.get(node);
+	}
+}
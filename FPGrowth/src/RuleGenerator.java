@@ -0,0 +1,451 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class for generating association rules X => Y from the frequent patterns kept in a PatternTrie.
+ * Rules of each pattern are generated by ap-genrules:
+ * consequents grow one item at a time from the consequents of confident rules only,
+ * as moving an item from the antecedent to the consequent never raises the confidence.
+ * Lift and conviction are not anti-monotone in the consequent, so they only filter the rules written.
+ * Patterns are split into ranges of trie nodes, mined by fork-join tasks in parallel mode.
+ * Rules are written as text, e.g. "I1 I5 => I2 : 2, confidence 1.0000, lift 1.5000, conviction inf".
+ */
+public class RuleGenerator {
+	/**
+	 * ranges of fewer trie nodes are not split into tasks
+	 */
+	private static final int TASK_NODES = 4096;
+	
+	/**
+	 * a task writes its rules when its buffer has more chars than this
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * trie of all frequent patterns
+	 */
+	private final PatternTrie trie;
+	
+	/**
+	 * number of transactions
+	 */
+	private final int transactionCount;
+	
+	/**
+	 * item dictionary to decode item ids into item names
+	 */
+	private final ItemDictionary dictionary;
+	
+	/**
+	 * minimum confidence (%) of rules, in range [0-100]
+	 */
+	private final double minConfidence;
+	
+	/**
+	 * minimum lift of rules
+	 */
+	private final double minLift;
+	
+	/**
+	 * minimum conviction of rules
+	 */
+	private final double minConviction;
+	
+	/**
+	 * writer of the rule file
+	 */
+	private Writer writer;
+	
+	/**
+	 * number of rules written
+	 */
+	private final AtomicLong ruleCount = new AtomicLong();
+	
+	/**
+	 * Constructor.
+	 * @param trie  trie of all frequent patterns
+	 * @param transactionCount  number of transactions
+	 * @param dictionary  item dictionary
+	 * @param minConfidence  minimum confidence (%), in range [0-100]
+	 * @param minLift  minimum lift
+	 * @param minConviction  minimum conviction
+	 */
+	public RuleGenerator(PatternTrie trie, int transactionCount, ItemDictionary dictionary,
+			double minConfidence, double minLift, double minConviction) {
+		this.trie = trie;
+		this.transactionCount = transactionCount;
+		this.dictionary = dictionary;
+		this.minConfidence = minConfidence;
+		this.minLift = minLift;
+		this.minConviction = minConviction;
+	}
+	
+	/**
+	 * Get number of rules written.
+	 * @return number of rules
+	 */
+	public long getRuleCount() {
+		return ruleCount.get();
+	}
+	
+	/**
+	 * Generate the rules of all patterns and write them to a file.
+	 * @param fileName  rule file name
+	 * @param threads  number of threads, 1 to generate rules in this thread
+	 * @throws IOException if the file cannot be written
+	 */
+	public void generate(String fileName, int threads) throws IOException {
+		writer = new OutputStreamWriter(new FileOutputStream(fileName));
+		try {
+			RuleTask task = new RuleTask(1, trie.getNodeCount());
+			if(threads > 1) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				pool.invoke(task);
+				pool.shutdown();
+			} else {
+				task.compute();
+			}
+		} catch(UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Write rules from the buffer of a task.
+	 * @param buffer
+	 */
+	private synchronized void write(StringBuilder buffer) {
+		try {
+			writer.append(buffer);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buffer.setLength(0);
+	}
+	
+	/**
+	 * Class for a fork-join task which generates the rules of the patterns of a range of trie nodes.
+	 */
+	private class RuleTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * first node of the range
+		 */
+		private final int from;
+		
+		/**
+		 * node after the last node of the range
+		 */
+		private final int to;
+		
+		/**
+		 * items of the pattern, in ascending order of item id
+		 */
+		private int[] itemset;
+		
+		/**
+		 * items of the antecedent of a rule
+		 */
+		private int[] antecedent;
+		
+		/**
+		 * items of the consequent of a rule
+		 */
+		private int[] consequent;
+		
+		/**
+		 * consequents of confident rules of the current size, as positions in itemset, m positions each,
+		 * in lexicographic order
+		 */
+		private int[] level;
+		
+		/**
+		 * consequents of the next size
+		 */
+		private int[] nextLevel;
+		
+		/**
+		 * positions of a subset of a candidate consequent
+		 */
+		private int[] subset;
+		
+		/**
+		 * rules not yet written
+		 */
+		private StringBuilder buffer;
+		
+		/**
+		 * Constructor.
+		 * @param from  first node of the range
+		 * @param to  node after the last node of the range
+		 */
+		public RuleTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from > TASK_NODES) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RuleTask(from, middle), new RuleTask(middle, to));
+				return;
+			}
+			itemset = new int[16];
+			antecedent = new int[16];
+			consequent = new int[16];
+			level = new int[64];
+			nextLevel = new int[64];
+			subset = new int[16];
+			buffer = new StringBuilder();
+			for(int node = from; node < to; node++) {
+				//the pattern of node is read from node up to root
+				int length = 0;
+				for(int n = node; n != PatternTrie.ROOT; n = trie.getParent(n)) {
+					length++;
+				}
+				if(length < 2) {
+					continue;
+				}
+				if(length > itemset.length) {
+					itemset = new int[length * 2];
+					antecedent = new int[length * 2];
+					consequent = new int[length * 2];
+				}
+				int i = length;
+				for(int n = node; n != PatternTrie.ROOT; n = trie.getParent(n)) {
+					itemset[--i] = trie.getItem(n);
+				}
+				generateRules(length, trie.getSupport(node));
+				if(buffer.length() > BUFFER_SIZE) {
+					write(buffer);
+				}
+			}
+			if(buffer.length() > 0) {
+				write(buffer);
+			}
+		}
+		
+		/**
+		 * Generate the rules of one pattern by ap-genrules.
+		 * @param length  number of items of the pattern
+		 * @param support  support of the pattern
+		 */
+		private void generateRules(int length, int support) {
+			//consequents of one item
+			int count = 0;
+			for(int i = 0; i < length; i++) {
+				level = ensureLength(level, count + 1);
+				level[count] = i;
+				if(checkRule(level, count, 1, length, support) == true) {
+					count++;
+				}
+			}
+			//consequents of m+1 items are joined from two consequents of m items with the same first m-1 items
+			for(int m = 1; m + 1 < length && count > 1; m++) {
+				int nextCount = 0;
+				for(int a = 0; a < count; a++) {
+					for(int b = a + 1; b < count; b++) {
+						if(hasSamePrefix(level, a, b, m) == false) {
+							break;
+						}
+						nextLevel = ensureLength(nextLevel, (nextCount + 1) * (m + 1));
+						int start = nextCount * (m + 1);
+						System.arraycopy(level, a * m, nextLevel, start, m);
+						nextLevel[start + m] = level[b * m + m - 1];
+						if(hasConfidentSubsets(nextLevel, start, m, count) == false) {
+							continue;
+						}
+						if(checkRule(nextLevel, nextCount, m + 1, length, support) == true) {
+							nextCount++;
+						}
+					}
+				}
+				int[] temp = level;
+				level = nextLevel;
+				nextLevel = temp;
+				count = nextCount;
+			}
+		}
+		
+		/**
+		 * Check if two consequents of a level have the same first m-1 positions.
+		 * @param consequents  consequents of m positions each
+		 * @param a  index of first consequent
+		 * @param b  index of second consequent
+		 * @param m  number of positions of a consequent
+		 * @return true if they have the same prefix
+		 */
+		private boolean hasSamePrefix(int[] consequents, int a, int b, int m) {
+			for(int i = 0; i < m - 1; i++) {
+				if(consequents[a * m + i] != consequents[b * m + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		/**
+		 * Check if every subset of m positions of a candidate, i.e. the candidate without one position,
+		 * is a consequent of a confident rule.
+		 * The subsets without the last two positions are the two joined consequents.
+		 * @param candidates  array of the candidate
+		 * @param start  index of the candidate
+		 * @param m  number of positions of a subset
+		 * @param count  number of consequents of m positions in level
+		 * @return true if all subsets are consequents of confident rules
+		 */
+		private boolean hasConfidentSubsets(int[] candidates, int start, int m, int count) {
+			subset = ensureLength(subset, m);
+			for(int skip = 0; skip < m - 1; skip++) {
+				int k = 0;
+				for(int i = 0; i <= m; i++) {
+					if(i != skip) {
+						subset[k++] = candidates[start + i];
+					}
+				}
+				if(findConsequent(m, count) == false) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		/**
+		 * Binary search the consequent of subset in level.
+		 * @param m  number of positions
+		 * @param count  number of consequents in level
+		 * @return true if found
+		 */
+		private boolean findConsequent(int m, int count) {
+			int low = 0;
+			int high = count - 1;
+			while(low <= high) {
+				int middle = (low + high) >>> 1;
+				int compare = 0;
+				for(int i = 0; i < m && compare == 0; i++) {
+					compare = Integer.compare(level[middle * m + i], subset[i]);
+				}
+				if(compare == 0) {
+					return true;
+				} else if(compare < 0) {
+					low = middle + 1;
+				} else {
+					high = middle - 1;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * Compute the measures of a rule, and write it if it passes all filters.
+		 * @param consequents  array of the consequent
+		 * @param index  index of the consequent in array
+		 * @param m  number of positions of the consequent
+		 * @param length  number of items of the pattern
+		 * @param support  support of the pattern
+		 * @return true if the rule is confident, so its consequent may grow
+		 */
+		private boolean checkRule(int[] consequents, int index, int m, int length, int support) {
+			int start = index * m;
+			int antecedentLength = 0;
+			int consequentLength = 0;
+			for(int i = 0; i < length; i++) {
+				if(consequentLength < m && consequents[start + consequentLength] == i) {
+					consequent[consequentLength++] = itemset[i];
+				} else {
+					antecedent[antecedentLength++] = itemset[i];
+				}
+			}
+			int antecedentSupport = trie.getSupport(antecedent, antecedentLength);
+			//thresholds are compared with the supports cross-multiplied, not with the ratios,
+			//so a rule exactly on a threshold is not dropped by rounding
+			if(support * 100L < minConfidence * antecedentSupport) {
+				return false;
+			}
+			int consequentSupport = trie.getSupport(consequent, consequentLength);
+			//lift = support * N / (antecedent * consequent)
+			boolean isLiftValid = support * (long) transactionCount >= minLift * ((long) antecedentSupport * consequentSupport);
+			//conviction = (N - consequent) * antecedent / (N * (antecedent - support)), infinite if always confident
+			boolean isConvictionValid = support == antecedentSupport 
+					|| (long) (transactionCount - consequentSupport) * antecedentSupport 
+					>= minConviction * ((long) transactionCount * (antecedentSupport - support));
+			if(isLiftValid == true && isConvictionValid == true) {
+				double confidence = (double) support / antecedentSupport;
+				double consequentRatio = (double) consequentSupport / transactionCount;
+				double lift = confidence / consequentRatio;
+				double conviction = confidence == 1 ? Double.POSITIVE_INFINITY : (1 - consequentRatio) / (1 - confidence);
+				appendRule(antecedentLength, consequentLength, support, confidence, lift, conviction);
+				ruleCount.incrementAndGet();
+			}
+			return true;
+		}
+		
+		/**
+		 * Append a rule to buffer.
+		 * @param antecedentLength
+		 * @param consequentLength
+		 * @param support
+		 * @param confidence
+		 * @param lift
+		 * @param conviction
+		 */
+		private void appendRule(int antecedentLength, int consequentLength, int support,
+				double confidence, double lift, double conviction) {
+			for(int i = 0; i < antecedentLength; i++) {
+				buffer.append(dictionary.getName(antecedent[i])).append(' ');
+			}
+			buffer.append("=>");
+			for(int i = 0; i < consequentLength; i++) {
+				buffer.append(' ').append(dictionary.getName(consequent[i]));
+			}
+			buffer.append(" : ").append(support);
+			buffer.append(", confidence ");
+			appendDecimal(confidence);
+			buffer.append(", lift ");
+			appendDecimal(lift);
+			buffer.append(", conviction ");
+			appendDecimal(conviction);
+			buffer.append('\n');
+		}
+		
+		/**
+		 * Append a non-negative number with 4 decimal places to buffer, without String.format().
+		 * @param x
+		 */
+		private void appendDecimal(double x) {
+			if(Double.isInfinite(x) == true) {
+				buffer.append("inf");
+				return;
+			}
+			long scaled = Math.round(x * 10000);
+			long fraction = scaled % 10000;
+			buffer.append(scaled / 10000).append('.');
+			for(long digit = 1000; digit > fraction && digit > 1; digit /= 10) {
+				buffer.append('0');
+			}
+			buffer.append(fraction);
+		}
+		
+		/**
+		 * Get an array of at least the given length, with the values of the given array.
+		 * @param array
+		 * @param length
+		 * @return the array, or a larger copy
+		 */
+		private int[] ensureLength(int[] array, int length) {
+			return array.length >= length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));
+		}
+	}
+}
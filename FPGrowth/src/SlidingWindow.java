@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+/**
+ * Class for an FP-tree over the latest transactions of a stream.
+ * Items have canonical ids, the codes of the item dictionary, so the tree never needs to be rebuilt;
+ * a new transaction is inserted, and when the window is full,
+ * the oldest transaction is removed from the tree, which reuses the nodes no longer needed.
+ * The transactions in the window are kept in a ring of arrays reused by later transactions,
+ * so memory is bounded by the window size, apart from the dictionary of distinct items.
+ */
+public class SlidingWindow {
+	/**
+	 * maximum number of transactions in the window
+	 */
+	private final int capacity;
+	
+	/**
+	 * FP-tree of the transactions in the window
+	 */
+	private final FPTree tree;
+	
+	/**
+	 * item ids of each transaction in the window, sorted in ascending order, indexed as a ring
+	 */
+	private final int[][] transactions;
+	
+	/**
+	 * number of items of each transaction in the window
+	 */
+	private final int[] lengths;
+	
+	/**
+	 * index of the oldest transaction in the ring
+	 */
+	private int oldest;
+	
+	/**
+	 * number of transactions in the window
+	 */
+	private int size;
+	
+	/**
+	 * number of transactions added since the stream started
+	 */
+	private long addedCount;
+	
+	/**
+	 * Constructor.
+	 * @param capacity  maximum number of transactions in the window
+	 */
+	public SlidingWindow(int capacity) {
+		this.capacity = capacity;
+		tree = new FPTree(0);
+		tree.enableRemoval();
+		transactions = new int[capacity][];
+		lengths = new int[capacity];
+		oldest = 0;
+		size = 0;
+		addedCount = 0;
+	}
+	
+	/**
+	 * Get FP-tree of the transactions in the window.
+	 * Its header list is not sorted until createHeaderList() is called.
+	 * @return FP-tree
+	 */
+	public FPTree getTree() {
+		return tree;
+	}
+	
+	/**
+	 * Get number of transactions in the window.
+	 * @return number of transactions
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Get number of transactions added since the stream started.
+	 * @return number of transactions
+	 */
+	public long getAddedCount() {
+		return addedCount;
+	}
+	
+	/**
+	 * Add a transaction to the window, and remove the oldest one if the window is full.
+	 * @param codes  item codes of the transaction, i.e. item ids in canonical order
+	 * @param length  number of items
+	 * @param itemCount  number of items in dictionary
+	 */
+	public void add(int[] codes, int length, int itemCount) {
+		tree.addItems(itemCount);
+		int index;
+		if(size == capacity) {
+			//the oldest transaction expires, its array is reused
+			index = oldest;
+			tree.removePath(transactions[index], lengths[index], 1);
+			oldest = (oldest + 1) % capacity;
+		} else {
+			index = (oldest + size) % capacity;
+			size++;
+		}
+		int[] transaction = transactions[index];
+		if(transaction == null || transaction.length < length) {
+			transaction = new int[Math.max(length, 4)];
+			transactions[index] = transaction;
+		}
+		System.arraycopy(codes, 0, transaction, 0, length);
+		Arrays.sort(transaction, 0, length);
+		lengths[index] = length;
+		tree.addTransaction(transaction, length);
+		addedCount++;
+	}
+}
@@ -0,0 +1,31 @@
+/**
+ * Class for a pattern sink which passes each pattern to several sinks.
+ */
+public class TeeSink implements PatternSink {
+	/**
+	 * sinks receiving the patterns
+	 */
+	private final PatternSink[] sinks;
+	
+	/**
+	 * Constructor.
+	 * @param sinks  sinks receiving the patterns
+	 */
+	public TeeSink(PatternSink... sinks) {
+		this.sinks = sinks;
+	}
+	
+	@Override
+	public void accept(int[] items, int length, int support) {
+		for(PatternSink sink : sinks) {
+			sink.accept(items, length, support);
+		}
+	}
+	
+	@Override
+	public void close() {
+		for(PatternSink sink : sinks) {
+			sink.close();
+		}
+	}
+}
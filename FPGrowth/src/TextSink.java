@@ -0,0 +1,155 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Class for a pattern sink which writes patterns as text,
+ * one pattern per line, e.g. "I2 I1 I5 : 2".
+ * Item names are copied into a char buffer which is written out when it is full,
+ * so patterns are streamed to the file while mining and no String is built per pattern.
+ */
+public class TextSink implements PatternSink {
+	/**
+	 * size of the char buffer
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * writer of the file or stream
+	 */
+	private final Writer writer;
+	
+	/**
+	 * true if the writer is closed by method close(), false if it is only flushed
+	 */
+	private final boolean closeWriter;
+	
+	/**
+	 * item dictionary to decode item ids into item names
+	 */
+	private final ItemDictionary dictionary;
+	
+	/**
+	 * buffer of chars to be written
+	 */
+	private final char[] buffer = new char[BUFFER_SIZE];
+	
+	/**
+	 * number of chars in buffer
+	 */
+	private int position;
+	
+	/**
+	 * Constructor of a sink writing to a file.
+	 * @param fileName  output file name
+	 * @param dictionary  item dictionary
+	 * @throws IOException if the file cannot be opened
+	 */
+	public TextSink(String fileName, ItemDictionary dictionary) throws IOException {
+		this(new OutputStreamWriter(new FileOutputStream(fileName)), true, dictionary);
+	}
+	
+	/**
+	 * Constructor of a sink writing to a stream, e.g. System.out.
+	 * The stream is flushed but not closed by method close().
+	 * @param stream  output stream
+	 * @param dictionary  item dictionary
+	 */
+	public TextSink(OutputStream stream, ItemDictionary dictionary) {
+		this(new OutputStreamWriter(stream), false, dictionary);
+	}
+	
+	/**
+	 * Constructor.
+	 * @param writer
+	 * @param closeWriter  true if the writer is closed by method close()
+	 * @param dictionary  item dictionary
+	 */
+	private TextSink(Writer writer, boolean closeWriter, ItemDictionary dictionary) {
+		this.writer = writer;
+		this.closeWriter = closeWriter;
+		this.dictionary = dictionary;
+		position = 0;
+	}
+	
+	@Override
+	public synchronized void accept(int[] items, int length, int support) {
+		//write the most frequent item first
+		for(int i = length-1; i >= 0; i--) {
+			append(dictionary.getName(items[i]));
+			append(' ');
+		}
+		append(':');
+		append(' ');
+		append(support);
+		append('\n');
+	}
+	
+	/**
+	 * Append a char to buffer.
+	 * @param c
+	 */
+	private void append(char c) {
+		if(position == BUFFER_SIZE) {
+			flushBuffer();
+		}
+		buffer[position++] = c;
+	}
+	
+	/**
+	 * Append a string to buffer.
+	 * @param s
+	 */
+	private void append(String s) {
+		int start = 0;
+		while(start < s.length()) {
+			if(position == BUFFER_SIZE) {
+				flushBuffer();
+			}
+			int end = Math.min(s.length(), start + BUFFER_SIZE - position);
+			s.getChars(start, end, buffer, position);
+			position += end - start;
+			start = end;
+		}
+	}
+	
+	/**
+	 * Append decimal digits of a non-negative int to buffer.
+	 * @param n
+	 */
+	private void append(int n) {
+		if(n >= 10) {
+			append(n / 10);
+		}
+		append((char) ('0' + n % 10));
+	}
+	
+	/**
+	 * Write buffer to the writer.
+	 */
+	private void flushBuffer() {
+		try {
+			writer.write(buffer, 0, position);
+			position = 0;
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	@Override
+	public synchronized void close() {
+		flushBuffer();
+		try {
+			if(closeWriter == true) {
+				writer.close();
+			} else {
+				writer.flush();
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
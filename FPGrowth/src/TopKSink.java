@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Class for a pattern sink which keeps the K patterns with the highest support.
+ * Patterns with the same support as the K-th one are kept too,
+ * so the result is all patterns whose support is at least the K-th highest support.
+ * Once K patterns are kept, the threshold is raised to the lowest support among them,
+ * and the miner uses the threshold as its minimum support,
+ * so conditional FP-trees with lower supports are pruned while mining.
+ */
+public class TopKSink implements PatternSink {
+	/**
+	 * a kept pattern
+	 */
+	private static class Entry {
+		/**
+		 * item ids, in descending order of item id
+		 */
+		final int[] items;
+		
+		/**
+		 * support of the pattern
+		 */
+		final int support;
+		
+		/**
+		 * Constructor.
+		 * @param items
+		 * @param support
+		 */
+		Entry(int[] items, int support) {
+			this.items = items;
+			this.support = support;
+		}
+	}
+	
+	/**
+	 * order of patterns: descending support, then ascending length, then item ids
+	 */
+	private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			if(e1.support != e2.support) {
+				return e2.support - e1.support;
+			}
+			if(e1.items.length != e2.items.length) {
+				return e1.items.length - e2.items.length;
+			}
+			for(int i = e1.items.length-1; i >= 0; i--) {
+				if(e1.items[i] != e2.items[i]) {
+					return e1.items[i] - e2.items[i];
+				}
+			}
+			return 0;
+		}
+	};
+	
+	/**
+	 * number of patterns to be kept
+	 */
+	private final int k;
+	
+	/**
+	 * patterns with fewer items are not kept
+	 */
+	private final int minLength;
+	
+	/**
+	 * K patterns with the highest support found so far, the lowest support on top
+	 */
+	private final PriorityQueue<Entry> heap;
+	
+	/**
+	 * patterns not in heap whose support equals the lowest support in heap
+	 */
+	private final List<Entry> ties;
+	
+	/**
+	 * patterns with lower support are not kept
+	 */
+	private volatile int threshold;
+	
+	/**
+	 * Constructor.
+	 * @param k  number of patterns to be kept
+	 * @param minLength  patterns with fewer items are not kept
+	 * @param initialThreshold  a support no higher than the K-th highest support
+	 */
+	public TopKSink(int k, int minLength, int initialThreshold) {
+		this.k = k;
+		this.minLength = minLength;
+		heap = new PriorityQueue<Entry>(k, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry e1, Entry e2) {
+				return Integer.compare(e1.support, e2.support);
+			}
+		});
+		ties = new ArrayList<Entry>();
+		threshold = Math.max(1, initialThreshold);
+	}
+	
+	/**
+	 * Get the current threshold, the K-th highest support found so far.
+	 * It never decreases while mining.
+	 * @return threshold
+	 */
+	public int getThreshold() {
+		return threshold;
+	}
+	
+	@Override
+	public synchronized void accept(int[] items, int length, int support) {
+		if(length < minLength || support < threshold) {
+			return;
+		}
+		Entry entry = new Entry(Arrays.copyOf(items, length), support);
+		if(heap.size() == k && support == heap.peek().support) {
+			ties.add(entry);
+			return;
+		}
+		heap.add(entry);
+		if(heap.size() > k) {
+			Entry removed = heap.poll();
+			if(removed.support == heap.peek().support) {
+				ties.add(removed);
+			} else {
+				//patterns with the old lowest support are no longer among the top K
+				ties.clear();
+			}
+		}
+		if(heap.size() == k) {
+			threshold = heap.peek().support;
+		}
+	}
+	
+	/**
+	 * Get number of patterns kept.
+	 * @return number of patterns
+	 */
+	public synchronized int size() {
+		return heap.size() + ties.size();
+	}
+	
+	/**
+	 * Pass the kept patterns to another sink, in descending order of support.
+	 * @param sink  sink receiving the patterns
+	 */
+	public synchronized void emit(PatternSink sink) {
+		List<Entry> entries = new ArrayList<Entry>(heap);
+		entries.addAll(ties);
+		Collections.sort(entries, ORDER);
+		for(Entry entry : entries) {
+			sink.accept(entry.items, entry.items.length, entry.support);
+		}
+	}
+	
+	@Override
+	public void close() {
+		//patterns are kept until emitted
+	}
+}
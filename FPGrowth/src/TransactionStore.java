@@ -0,0 +1,387 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class for the encoded transactions of a database.
+ * Transactions are stored as item codes of the item dictionary,
+ * each one as its length followed by its codes, in a stream of int pages.
+ * When the pages take more memory than the budget, the oldest pages are spilled to a temp file.
+ * The database file is parsed once into this store,
+ * and counting, tree construction and later runs all read the store.
+ */
+public class TransactionStore {
+	/**
+	 * number of ints in a page
+	 */
+	private static final int PAGE_SIZE = 1 << 20;
+	
+	/**
+	 * minimum bytes of pages a store keeps in memory, the current page and one more
+	 */
+	public static final long MIN_MEMORY = 2 * 4L * PAGE_SIZE;
+	
+	/**
+	 * pages in memory, after the spilled pages
+	 */
+	private final List<int[]> pages;
+	
+	/**
+	 * page being written
+	 */
+	private int[] currentPage;
+	
+	/**
+	 * number of ints in current page
+	 */
+	private int position;
+	
+	/**
+	 * maximum number of pages in memory, including current page
+	 */
+	private final long maxPages;
+	
+	/**
+	 * directory of temp file, null for the default temp directory
+	 */
+	private final File spillDirectory;
+	
+	/**
+	 * temp file of spilled pages, null if no page is spilled
+	 */
+	private File spillFile;
+	
+	/**
+	 * channel of temp file
+	 */
+	private FileChannel spillChannel;
+	
+	/**
+	 * number of pages in temp file
+	 */
+	private int spilledPages;
+	
+	/**
+	 * number of transactions
+	 */
+	private int transactionCount;
+	
+	/**
+	 * number of items in all transactions
+	 */
+	private long itemCount;
+	
+	/**
+	 * Constructor.
+	 * @param memoryBudget  maximum bytes of pages in memory, Long.MAX_VALUE for no limit
+	 * @param spillDirectory  directory of temp file, null for the default temp directory
+	 */
+	public TransactionStore(long memoryBudget, File spillDirectory) {
+		pages = new ArrayList<int[]>();
+		currentPage = new int[PAGE_SIZE];
+		position = 0;
+		maxPages = Math.max(MIN_MEMORY, memoryBudget) / (4L * PAGE_SIZE);
+		this.spillDirectory = spillDirectory;
+		spillFile = null;
+		spilledPages = 0;
+		transactionCount = 0;
+		itemCount = 0;
+	}
+	
+	/**
+	 * Constructor of a store without memory limit.
+	 */
+	public TransactionStore() {
+		this(Long.MAX_VALUE, null);
+	}
+	
+	/**
+	 * Get number of transactions.
+	 * @return number of transactions
+	 */
+	public int getTransactionCount() {
+		return transactionCount;
+	}
+	
+	/**
+	 * Get number of items in all transactions.
+	 * @return number of items
+	 */
+	public long getItemCount() {
+		return itemCount;
+	}
+	
+	/**
+	 * Get number of ints written, the position where the next transaction starts.
+	 * @return number of ints
+	 */
+	public long getSize() {
+		return (long) PAGE_SIZE * (spilledPages + pages.size()) + position;
+	}
+	
+	/**
+	 * Get number of pages spilled to temp file.
+	 * @return number of spilled pages
+	 */
+	public int getSpilledPages() {
+		return spilledPages;
+	}
+	
+	/**
+	 * Add one transaction.
+	 * @param codes  item codes of the transaction
+	 * @param length  number of items
+	 */
+	public void add(int[] codes, int length) {
+		write(length);
+		int start = 0;
+		while(start < length) {
+			int n = Math.min(length - start, PAGE_SIZE - position);
+			System.arraycopy(codes, start, currentPage, position, n);
+			position += n;
+			start += n;
+			if(position == PAGE_SIZE) {
+				nextPage();
+			}
+		}
+		transactionCount++;
+		itemCount += length;
+	}
+	
+	/**
+	 * Write one int.
+	 * @param value
+	 */
+	private void write(int value) {
+		currentPage[position++] = value;
+		if(position == PAGE_SIZE) {
+			nextPage();
+		}
+	}
+	
+	/**
+	 * Keep the full current page and start a new one,
+	 * spilling the oldest page if there are too many pages in memory.
+	 */
+	private void nextPage() {
+		pages.add(currentPage);
+		if(pages.size() + 1 > maxPages) {
+			spill(pages.remove(0));
+		}
+		currentPage = new int[PAGE_SIZE];
+		position = 0;
+	}
+	
+	/**
+	 * Write a page to the end of temp file.
+	 * @param page
+	 */
+	private void spill(int[] page) {
+		try {
+			if(spillFile == null) {
+				spillFile = File.createTempFile("fpgrowth", ".store", spillDirectory);
+				spillFile.deleteOnExit();
+				spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+			}
+			ByteBuffer bytes = ByteBuffer.allocate(4 * PAGE_SIZE).order(ByteOrder.nativeOrder());
+			bytes.asIntBuffer().put(page);
+			long offset = 4L * PAGE_SIZE * spilledPages;
+			while(bytes.hasRemaining()) {
+				offset += spillChannel.write(bytes, offset);
+			}
+			spilledPages++;
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Delete the temp file.
+	 */
+	public void close() {
+		if(spillFile != null) {
+			try {
+				spillChannel.close();
+			} catch(IOException e) {
+				e.printStackTrace();
+			}
+			spillFile.delete();
+			spillFile = null;
+		}
+	}
+	
+	/**
+	 * Open a reader of all transactions, in the order they were added.
+	 * @return reader
+	 */
+	public Reader openReader() {
+		return new Reader(0, 0);
+	}
+	
+	/**
+	 * Open a reader of the transactions added after a given point.
+	 * @param start  number of ints written at that point, by getSize()
+	 * @param firstTransaction  number of transactions at that point
+	 * @return reader
+	 */
+	public Reader openReader(long start, int firstTransaction) {
+		return new Reader(start, firstTransaction);
+	}
+	
+	/**
+	 * Class for reading transactions one by one.
+	 * The items of the current transaction are in a buffer reused by the next one.
+	 */
+	public class Reader {
+		/**
+		 * index of page being read, spilled pages first
+		 */
+		private int pageIndex;
+		
+		/**
+		 * page being read
+		 */
+		private int[] page;
+		
+		/**
+		 * number of ints of page
+		 */
+		private int pageLength;
+		
+		/**
+		 * position in page being read
+		 */
+		private int pagePosition;
+		
+		/**
+		 * buffer of a page read from temp file
+		 */
+		private ByteBuffer bytes;
+		
+		/**
+		 * item codes of current transaction
+		 */
+		private int[] codes;
+		
+		/**
+		 * number of items of current transaction
+		 */
+		private int length;
+		
+		/**
+		 * number of transactions before the next one to be read
+		 */
+		private int readCount;
+		
+		/**
+		 * Constructor.
+		 * @param start  position of first transaction to be read
+		 * @param firstTransaction  number of transactions before it
+		 */
+		private Reader(long start, int firstTransaction) {
+			pageIndex = (int) (start / PAGE_SIZE) - 1;
+			page = null;
+			pageLength = 0;
+			pagePosition = 0;
+			codes = new int[16];
+			length = 0;
+			readCount = firstTransaction;
+			if(start % PAGE_SIZE != 0) {
+				nextPage();
+				pagePosition = (int) (start % PAGE_SIZE);
+			}
+		}
+		
+		/**
+		 * Move to next page.
+		 */
+		private void nextPage() {
+			pageIndex++;
+			pagePosition = 0;
+			if(pageIndex < spilledPages) {
+				//read a spilled page
+				try {
+					if(bytes == null) {
+						bytes = ByteBuffer.allocate(4 * PAGE_SIZE).order(ByteOrder.nativeOrder());
+						page = new int[PAGE_SIZE];
+					}
+					bytes.clear();
+					long offset = 4L * PAGE_SIZE * pageIndex;
+					while(bytes.hasRemaining()) {
+						offset += spillChannel.read(bytes, offset);
+					}
+					bytes.flip();
+					bytes.asIntBuffer().get(page);
+					pageLength = PAGE_SIZE;
+				} catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			} else if(pageIndex - spilledPages < pages.size()) {
+				page = pages.get(pageIndex - spilledPages);
+				pageLength = PAGE_SIZE;
+			} else {
+				page = currentPage;
+				pageLength = position;
+			}
+		}
+		
+		/**
+		 * Read one int.
+		 * @return the int
+		 */
+		private int read() {
+			if(pagePosition == pageLength) {
+				nextPage();
+			}
+			return page[pagePosition++];
+		}
+		
+		/**
+		 * Read next transaction.
+		 * @return true if a transaction is read, false if there are no more transactions
+		 */
+		public boolean next() {
+			if(readCount == transactionCount) {
+				return false;
+			}
+			length = read();
+			if(length > codes.length) {
+				codes = new int[Math.max(length, codes.length * 2)];
+			}
+			int start = 0;
+			while(start < length) {
+				if(pagePosition == pageLength) {
+					nextPage();
+				}
+				int n = Math.min(length - start, pageLength - pagePosition);
+				System.arraycopy(page, pagePosition, codes, start, n);
+				pagePosition += n;
+				start += n;
+			}
+			readCount++;
+			return true;
+		}
+		
+		/**
+		 * Get item codes of current transaction.
+		 * @return buffer of item codes, valid until next transaction is read
+		 */
+		public int[] getCodes() {
+			return codes;
+		}
+		
+		/**
+		 * Get number of items of current transaction.
+		 * @return number of items
+		 */
+		public int getLength() {
+			return length;
+		}
+	}
+}
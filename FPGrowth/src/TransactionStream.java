@@ -0,0 +1,225 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Class for reading transactions one at a time from a stream, e.g. stdin or a file being appended to.
+ * Bytes are read in blocks and split at line breaks,
+ * and each line is tokenized into item codes of the item dictionary by LineTokenizer.
+ * The delimiter is found in the first non-empty line, as in TransactionTokenizer.
+ * When following a file, the end of the file is waited on until more lines are appended,
+ * and a line is not returned until its line break arrives.
+ */
+public class TransactionStream {
+	/**
+	 * bytes read at a time
+	 */
+	private static final int BLOCK_SIZE = 1 << 16;
+	
+	/**
+	 * milliseconds to wait at the end of a followed file before reading again
+	 */
+	private static final long POLL_INTERVAL = 100;
+	
+	/**
+	 * input stream
+	 */
+	private final InputStream in;
+	
+	/**
+	 * true if the end of stream is waited on instead of ending the stream
+	 */
+	private final boolean follow;
+	
+	/**
+	 * dictionary counting each item
+	 */
+	private final ItemDictionary dictionary;
+	
+	/**
+	 * tokenizer of lines, null until the first non-empty line is read
+	 */
+	private LineTokenizer tokenizer;
+	
+	/**
+	 * bytes read but not yet tokenized, from position to filled
+	 */
+	private byte[] block;
+	
+	/**
+	 * index of first byte not yet tokenized
+	 */
+	private int position;
+	
+	/**
+	 * index after last byte read
+	 */
+	private int filled;
+	
+	/**
+	 * true if the end of stream is reached
+	 */
+	private boolean isEnd;
+	
+	/**
+	 * number of items of the current transaction
+	 */
+	private int length;
+	
+	/**
+	 * time in nanoseconds when the current transaction was read
+	 */
+	private long arrivalTime;
+	
+	/**
+	 * Constructor.
+	 * @param in  input stream
+	 * @param follow  true to wait for more bytes at the end of stream
+	 * @param dictionary  dictionary counting each item
+	 */
+	public TransactionStream(InputStream in, boolean follow, ItemDictionary dictionary) {
+		this.in = in;
+		this.follow = follow;
+		this.dictionary = dictionary;
+		tokenizer = null;
+		block = new byte[BLOCK_SIZE];
+		position = 0;
+		filled = 0;
+		isEnd = false;
+		length = 0;
+		arrivalTime = 0;
+	}
+	
+	/**
+	 * Open a stream of stdin or of a file.
+	 * @param fileName  file name, or "-" for stdin
+	 * @param follow  true to wait for lines appended to the file
+	 * @param dictionary  dictionary counting each item
+	 * @return the stream
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static TransactionStream open(String fileName, boolean follow, ItemDictionary dictionary) throws IOException {
+		if("-".equals(fileName)) {
+			return new TransactionStream(System.in, false, dictionary);
+		}
+		return new TransactionStream(new FileInputStream(fileName), follow, dictionary);
+	}
+	
+	/**
+	 * Read the next transaction, waiting for it if needed.
+	 * Empty lines are skipped.
+	 * @return true if a transaction is read, false at the end of stream
+	 * @throws IOException if the stream cannot be read
+	 */
+	public boolean next() throws IOException {
+		while(true) {
+			//tokenize the next complete line in block
+			for(int i = position; i < filled; i++) {
+				if(block[i] == '\n' || block[i] == '\r') {
+					int from = position;
+					position = i + 1;
+					if(tokenize(from, i) == true) {
+						return true;
+					}
+				}
+			}
+			if(isEnd == true) {
+				//the last line may have no line break
+				int from = position;
+				position = filled;
+				return tokenize(from, filled);
+			}
+			fill();
+		}
+	}
+	
+	/**
+	 * Read more bytes after the bytes not yet tokenized.
+	 * @throws IOException
+	 */
+	private void fill() throws IOException {
+		//move the unfinished line to the beginning of block
+		filled -= position;
+		System.arraycopy(block, position, block, 0, filled);
+		position = 0;
+		if(filled == block.length) {
+			//a line longer than the block
+			block = Arrays.copyOf(block, block.length * 2);
+		}
+		while(true) {
+			int n = in.read(block, filled, block.length - filled);
+			if(n > 0) {
+				filled += n;
+				return;
+			}
+			if(n < 0 && follow == false) {
+				isEnd = true;
+				return;
+			}
+			try {
+				Thread.sleep(POLL_INTERVAL);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				isEnd = true;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Tokenize one line of block.
+	 * @param from  index of first byte of the line
+	 * @param to  index after last byte of the line
+	 * @return true if the line is a transaction, false if it is empty
+	 */
+	private boolean tokenize(int from, int to) {
+		if(from == to) {
+			return false;
+		}
+		if(tokenizer == null) {
+			tokenizer = new LineTokenizer(dictionary, LineTokenizer.findDelimiter(Arrays.copyOfRange(block, from, to), to - from));
+		}
+		length = tokenizer.tokenize(block, from, to);
+		arrivalTime = System.nanoTime();
+		return true;
+	}
+	
+	/**
+	 * Get item codes of the current transaction.
+	 * The array is reused by the next transaction.
+	 * @return item codes
+	 */
+	public int[] getCodes() {
+		return tokenizer.getCodes();
+	}
+	
+	/**
+	 * Get number of items of the current transaction.
+	 * @return number of items
+	 */
+	public int getLength() {
+		return length;
+	}
+	
+	/**
+	 * Get time when the current transaction was read.
+	 * @return time in nanoseconds, as by System.nanoTime()
+	 */
+	public long getArrivalTime() {
+		return arrivalTime;
+	}
+	
+	/**
+	 * Close the stream, unless it is stdin.
+	 */
+	public void close() {
+		if(in != System.in) {
+			try {
+				in.close();
+			} catch(IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
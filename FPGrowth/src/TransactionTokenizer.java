@@ -0,0 +1,377 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class for reading transactions from the input file without creating a String per line or item.
+ * The file is split into chunks at line breaks, each chunk is memory-mapped
+ * and its bytes are scanned for delimiters and line breaks directly.
+ * Chunks are tokenized in parallel, each into its own item dictionary and transaction store,
+ * which are merged into the database dictionary and store in file order.
+ * The stores of chunks in flight share the memory budget of the database store,
+ * so fewer chunks are tokenized at a time under a small budget.
+ * Lines are split by LineTokenizer, the same way as String.split(delimiter).
+ */
+public class TransactionTokenizer {
+	/**
+	 * maximum bytes of a chunk
+	 */
+	private static final long MAX_CHUNK_SIZE = 64L << 20;
+	
+	/**
+	 * minimum bytes of a chunk
+	 */
+	private static final long MIN_CHUNK_SIZE = 1L << 20;
+	
+	/**
+	 * bytes copied from a mapped chunk at a time
+	 */
+	private static final int BLOCK_SIZE = 1 << 16;
+	
+	/**
+	 * input file
+	 */
+	private final File file;
+	
+	/**
+	 * number of threads tokenizing chunks
+	 */
+	private final int threads;
+	
+	/**
+	 * maximum bytes of the stores of all chunks in memory
+	 */
+	private final long storeMemory;
+	
+	/**
+	 * directory of spilled chunk stores, null for the default temp directory
+	 */
+	private final File spillDirectory;
+	
+	/**
+	 * delimiter byte as an unsigned value, -1 if each line is a single item
+	 */
+	private int delimiter;
+	
+	/**
+	 * position after the last byte read
+	 */
+	private long end;
+	
+	/**
+	 * Constructor.
+	 * @param file  input file
+	 * @param threads  number of threads tokenizing chunks
+	 * @param storeMemory  maximum bytes of the stores of all chunks in memory, Long.MAX_VALUE for no limit
+	 * @param spillDirectory  directory of spilled chunk stores, null for the default temp directory
+	 */
+	public TransactionTokenizer(File file, int threads, long storeMemory, File spillDirectory) {
+		this.file = file;
+		this.threads = threads;
+		this.storeMemory = storeMemory;
+		this.spillDirectory = spillDirectory;
+		delimiter = -1;
+		end = 0;
+	}
+	
+	/**
+	 * Get the delimiter found in first transaction.
+	 * @return delimiter, or null if first transaction has a single item
+	 */
+	public String getDelimiter() {
+		return delimiter < 0 ? null : String.valueOf((char) delimiter);
+	}
+	
+	/**
+	 * Get position after the last byte read, where transactions appended later start.
+	 * @return position in input file
+	 */
+	public long getEnd() {
+		return end;
+	}
+	
+	/**
+	 * Read all transactions of input file.
+	 * @param dictionary  dictionary counting each item
+	 * @param store  store of transactions encoded by item codes of dictionary
+	 * @return number of transactions
+	 * @throws IOException if input file cannot be read
+	 */
+	public int read(ItemDictionary dictionary, TransactionStore store) throws IOException {
+		return read(dictionary, store, 0);
+	}
+	
+	/**
+	 * Read the transactions of input file from a given position,
+	 * e.g. the transactions appended after the file was read.
+	 * @param dictionary  dictionary counting each item
+	 * @param store  store of transactions encoded by item codes of dictionary
+	 * @param start  position of first transaction to be read, at the beginning of a line
+	 * @return number of transactions read
+	 * @throws IOException if input file cannot be read
+	 */
+	public int read(ItemDictionary dictionary, TransactionStore store, long start) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			FileChannel channel = raf.getChannel();
+			delimiter = findDelimiter(channel);
+			long[] bounds = split(channel, start);
+			end = bounds[bounds.length-1];
+			//tokenize chunks in parallel, merge them in file order,
+			//and keep only a few chunks in flight to bound memory
+			int maxChunks = (int) Math.max(1, Math.min(threads * 2L, storeMemory / TransactionStore.MIN_MEMORY));
+			long chunkMemory = storeMemory / maxChunks;
+			ArrayDeque<Future<Chunk>> futures = new ArrayDeque<Future<Chunk>>();
+			int next = 0;
+			int transactionCount = 0;
+			while(next < bounds.length - 1 || futures.isEmpty() == false) {
+				while(next < bounds.length - 1 && futures.size() < maxChunks) {
+					futures.add(executor.submit(new Chunk(channel, bounds[next], bounds[next+1], chunkMemory)));
+					next++;
+				}
+				Chunk chunk = futures.poll().get();
+				transactionCount += chunk.mergeInto(dictionary, store);
+			}
+			return transactionCount;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+			raf.close();
+		}
+	}
+	
+	/**
+	 * Check if a byte ends a line.
+	 * @param b
+	 * @return true if b is a line feed or a carriage return
+	 */
+	private static boolean isLineBreak(byte b) {
+		return b == '\n' || b == '\r';
+	}
+	
+	/**
+	 * Find the delimiter in first non-empty line of input file,
+	 * the first of ',', ';' and ' ' occurring after the first character.
+	 * @param channel  channel of input file
+	 * @return delimiter byte, or -1 if the line has none of them
+	 * @throws IOException
+	 */
+	private static int findDelimiter(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+		byte[] line = new byte[BLOCK_SIZE];
+		int length = 0;
+		long position = 0;
+		boolean found = false;
+		while(found == false) {
+			buffer.clear();
+			int n = channel.read(buffer, position);
+			if(n < 0) {
+				break;
+			}
+			position += n;
+			for(int i = 0; i < n; i++) {
+				byte b = buffer.get(i);
+				if(isLineBreak(b) == true) {
+					if(length > 0) {
+						found = true;
+						break;
+					}
+					continue;
+				}
+				if(length == line.length) {
+					line = Arrays.copyOf(line, length * 2);
+				}
+				line[length++] = b;
+			}
+		}
+		return LineTokenizer.findDelimiter(line, length);
+	}
+	
+	/**
+	 * Split input file into chunks starting at the beginning of a line.
+	 * @param channel  channel of input file
+	 * @param start  position of first chunk
+	 * @return bounds of chunks, chunk i is from bounds[i] to bounds[i+1]
+	 * @throws IOException
+	 */
+	private long[] split(FileChannel channel, long start) throws IOException {
+		long size = channel.size();
+		long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, (size - start) / (threads * 4L) + 1));
+		List<Long> bounds = new ArrayList<Long>();
+		bounds.add(start);
+		ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+		while(size - start > chunkSize) {
+			//move the bound forward to the next line break
+			long position = start + chunkSize;
+			long bound = size;
+			while(position < size) {
+				buffer.clear();
+				int n = channel.read(buffer, position);
+				int i = 0;
+				while(i < n && isLineBreak(buffer.get(i)) == false) {
+					i++;
+				}
+				if(i < n) {
+					bound = position + i + 1;
+					break;
+				}
+				position += n;
+			}
+			if(bound >= size) {
+				break;
+			}
+			bounds.add(bound);
+			start = bound;
+		}
+		bounds.add(size);
+		long[] result = new long[bounds.size()];
+		for(int i = 0; i < result.length; i++) {
+			result[i] = bounds.get(i);
+		}
+		return result;
+	}
+	
+	/**
+	 * Class for a chunk of input file, tokenized by a worker thread.
+	 */
+	private class Chunk implements Callable<Chunk> {
+		/**
+		 * channel of input file
+		 */
+		private final FileChannel channel;
+		
+		/**
+		 * position of first byte
+		 */
+		private final long start;
+		
+		/**
+		 * position after last byte
+		 */
+		private final long end;
+		
+		/**
+		 * dictionary of items in this chunk
+		 */
+		private final ItemDictionary dictionary;
+		
+		/**
+		 * transactions of this chunk, encoded by item codes of chunk dictionary
+		 */
+		private final TransactionStore store;
+		
+		/**
+		 * tokenizer of lines into item codes of chunk dictionary
+		 */
+		private final LineTokenizer tokenizer;
+		
+		/**
+		 * Constructor.
+		 * @param channel  channel of input file
+		 * @param start  position of first byte
+		 * @param end  position after last byte
+		 * @param storeMemory  maximum bytes of chunk store in memory
+		 */
+		public Chunk(FileChannel channel, long start, long end, long storeMemory) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			dictionary = new ItemDictionary();
+			store = new TransactionStore(storeMemory, spillDirectory);
+			tokenizer = new LineTokenizer(dictionary, delimiter);
+		}
+		
+		@Override
+		public Chunk call() throws IOException {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			byte[] block = new byte[BLOCK_SIZE];
+			//bytes of a line not finished in previous block are kept at the beginning of block
+			int filled = 0;
+			while(true) {
+				int n = Math.min(block.length - filled, mapped.remaining());
+				mapped.get(block, filled, n);
+				filled += n;
+				boolean isLast = mapped.hasRemaining() == false;
+				int lineStart = 0;
+				for(int i = 0; i < filled; i++) {
+					if(isLineBreak(block[i]) == true) {
+						tokenize(block, lineStart, i);
+						lineStart = i + 1;
+					}
+				}
+				if(isLast == true) {
+					//the last line may have no line break
+					tokenize(block, lineStart, filled);
+					break;
+				}
+				filled -= lineStart;
+				System.arraycopy(block, lineStart, block, 0, filled);
+				if(filled == block.length) {
+					//a line longer than the block
+					block = Arrays.copyOf(block, block.length * 2);
+				}
+			}
+			return this;
+		}
+		
+		/**
+		 * Tokenize one line and add it to the chunk store.
+		 * Empty lines are skipped.
+		 * @param bytes
+		 * @param from  index of first byte of the line
+		 * @param to  index after last byte of the line
+		 */
+		private void tokenize(byte[] bytes, int from, int to) {
+			int length = tokenizer.tokenize(bytes, from, to);
+			if(length >= 0) {
+				store.add(tokenizer.getCodes(), length);
+			}
+		}
+		
+		/**
+		 * Merge items and transactions of this chunk into the database.
+		 * @param database  dictionary of database
+		 * @param databaseStore  transaction store of database
+		 * @return number of transactions in this chunk
+		 */
+		public int mergeInto(ItemDictionary database, TransactionStore databaseStore) {
+			int[] codeMap = database.merge(dictionary);
+			TransactionStore.Reader reader = store.openReader();
+			int[] transaction = new int[16];
+			while(reader.next() == true) {
+				int[] chunkCodes = reader.getCodes();
+				int length = reader.getLength();
+				if(length > transaction.length) {
+					transaction = new int[length];
+				}
+				for(int i = 0; i < length; i++) {
+					transaction[i] = codeMap[chunkCodes[i]];
+				}
+				databaseStore.add(transaction, length);
+			}
+			//delete the temp file of chunk store
+			store.close();
+			return store.getTransactionCount();
+		}
+	}
+}
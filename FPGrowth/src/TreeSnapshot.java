@@ -0,0 +1,467 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class for a binary snapshot of a base FP-tree, with the item dictionary of its items,
+ * so the tree can be mined again without reading input file.
+ * The tree of incremental mode is saved in canonical order with the position in input file it covers,
+ * so a later run inserts only the transactions appended since then.
+ * The file is a sequence of little-endian ints:
+ * a header, the name bytes and support of each item of the tree in item id order,
+ * then the header table and the node arrays of the tree, and its FP-array if built.
+ * Arrays are written from and read into the chunks of the tree in bulk,
+ * and the file is read through memory-mapped windows, so no value is parsed one by one.
+ */
+public class TreeSnapshot {
+	/**
+	 * first int of a snapshot file, "FPTS"
+	 */
+	private static final int MAGIC = 0x53545046;
+	
+	/**
+	 * version of the file format
+	 */
+	private static final int VERSION = 2;
+	
+	/**
+	 * the FP-tree
+	 */
+	private final FPTree tree;
+	
+	/**
+	 * dictionary of the items of the tree, item id = code
+	 */
+	private final ItemDictionary dictionary;
+	
+	/**
+	 * number of transactions of the database of the tree
+	 */
+	private final int transactionCount;
+	
+	/**
+	 * absolute minimum support the tree was built with
+	 */
+	private final int minSupport;
+	
+	/**
+	 * position in input file after the last transaction of a tree in canonical order,
+	 * -1 if the items of the tree are ranked by support
+	 */
+	private final long fileEnd;
+	
+	/**
+	 * Constructor.
+	 * @param tree
+	 * @param dictionary
+	 * @param transactionCount
+	 * @param minSupport
+	 * @param fileEnd
+	 */
+	private TreeSnapshot(FPTree tree, ItemDictionary dictionary, int transactionCount, int minSupport, long fileEnd) {
+		this.tree = tree;
+		this.dictionary = dictionary;
+		this.transactionCount = transactionCount;
+		this.minSupport = minSupport;
+		this.fileEnd = fileEnd;
+	}
+	
+	/**
+	 * Get the FP-tree, with header list created.
+	 * @return tree
+	 */
+	public FPTree getTree() {
+		return tree;
+	}
+	
+	/**
+	 * Get dictionary of the items of the tree.
+	 * Its codes are the item ids of the tree, which are ranked in descending order of support,
+	 * or in canonical order if the tree was saved in incremental mode.
+	 * @return dictionary
+	 */
+	public ItemDictionary getDictionary() {
+		return dictionary;
+	}
+	
+	/**
+	 * Get number of transactions of the database of the tree.
+	 * @return transactionCount
+	 */
+	public int getTransactionCount() {
+		return transactionCount;
+	}
+	
+	/**
+	 * Get absolute minimum support the tree was built with.
+	 * @return minSupport
+	 */
+	public int getMinSupport() {
+		return minSupport;
+	}
+	
+	/**
+	 * Get position in input file after the last transaction of a tree in canonical order.
+	 * @return fileEnd, -1 if the items of the tree are ranked by support
+	 */
+	public long getFileEnd() {
+		return fileEnd;
+	}
+	
+	/**
+	 * Check if the tree was saved in incremental mode, with its items in canonical order.
+	 * @return true if transactions appended to input file can be inserted into the tree
+	 */
+	public boolean isCanonical() {
+		return fileEnd >= 0;
+	}
+	
+	/**
+	 * Save a base FP-tree whose items are the first items of the dictionary.
+	 * @param fileName  snapshot file name
+	 * @param tree  the base FP-tree
+	 * @param dictionary  item dictionary ranked by support, or in canonical order
+	 * @param transactionCount  number of transactions of the database
+	 * @param minSupport  absolute minimum support the tree was built with, 0 in canonical order
+	 * @param fileEnd  position in input file after the last transaction of a tree in canonical order,
+	 * -1 if the items are ranked by support
+	 * @return number of bytes written
+	 * @throws IOException if the file cannot be written
+	 */
+	public static long save(String fileName, FPTree tree, ItemDictionary dictionary, int transactionCount, int minSupport, 
+			long fileEnd) throws IOException {
+		Writer out = new Writer(new File(fileName));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(transactionCount);
+			out.writeInt(minSupport);
+			out.writeLong(fileEnd);
+			int itemCount = tree.getItemCount();
+			out.writeInt(itemCount);
+			for(int item = 0; item < itemCount; item++) {
+				out.writeInt(dictionary.getSupport(item));
+				out.writeBytes(dictionary.getBytes(item));
+			}
+			tree.save(out);
+		} finally {
+			out.close();
+		}
+		return out.getPosition();
+	}
+	
+	/**
+	 * Load a snapshot.
+	 * @param fileName  snapshot file name
+	 * @return the snapshot
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	public static TreeSnapshot load(String fileName) throws IOException {
+		Reader in = new Reader(new File(fileName));
+		try {
+			if(in.readInt() != MAGIC) {
+				throw new IOException("Not an FP-tree snapshot: " + fileName);
+			}
+			int version = in.readInt();
+			if(version != VERSION) {
+				throw new IOException("Unsupported version " + version + " of FP-tree snapshot: " + fileName);
+			}
+			int transactionCount = in.readInt();
+			int minSupport = in.readInt();
+			long fileEnd = in.readLong();
+			int itemCount = in.readInt();
+			ItemDictionary dictionary = new ItemDictionary();
+			for(int item = 0; item < itemCount; item++) {
+				int support = in.readInt();
+				dictionary.add(in.readBytes(), support);
+			}
+			//items were added in item id order
+			dictionary.rankByCode();
+			FPTree tree = FPTree.load(in);
+			return new TreeSnapshot(tree, dictionary, transactionCount, minSupport, fileEnd);
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Class for writing ints to a snapshot file through a buffer.
+	 */
+	public static class Writer {
+		/**
+		 * channel of the file
+		 */
+		private final FileChannel channel;
+		
+		/**
+		 * buffer of bytes to be written
+		 */
+		private final ByteBuffer bytes;
+		
+		/**
+		 * int view of bytes
+		 */
+		private final IntBuffer ints;
+		
+		/**
+		 * number of bytes written to the file
+		 */
+		private long position;
+		
+		/**
+		 * Constructor.
+		 * @param file  snapshot file, truncated if it exists
+		 * @throws IOException if the file cannot be opened
+		 */
+		private Writer(File file) throws IOException {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			raf.setLength(0);
+			channel = raf.getChannel();
+			bytes = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			ints = bytes.asIntBuffer();
+			position = 0;
+		}
+		
+		/**
+		 * Get number of bytes written, after the writer is closed.
+		 * @return number of bytes
+		 */
+		private long getPosition() {
+			return position;
+		}
+		
+		/**
+		 * Write one int.
+		 * @param value
+		 * @throws IOException
+		 */
+		public void writeInt(int value) throws IOException {
+			if(ints.hasRemaining() == false) {
+				flush();
+			}
+			ints.put(value);
+		}
+		
+		/**
+		 * Write one long as two ints, low int first.
+		 * @param value
+		 * @throws IOException
+		 */
+		public void writeLong(long value) throws IOException {
+			writeInt((int) value);
+			writeInt((int) (value >>> 32));
+		}
+		
+		/**
+		 * Write the length of an array of bytes, then its bytes padded to a multiple of 4.
+		 * @param array
+		 * @throws IOException
+		 */
+		public void writeBytes(byte[] array) throws IOException {
+			writeInt(array.length);
+			for(int i = 0; i < array.length; i += 4) {
+				int value = 0;
+				for(int j = Math.min(i + 4, array.length) - 1; j >= i; j--) {
+					value = (value << 8) | (array[j] & 0xFF);
+				}
+				writeInt(value);
+			}
+		}
+		
+		/**
+		 * Write the first n values of an array.
+		 * @param array
+		 * @param n
+		 * @throws IOException
+		 */
+		public void writeInts(int[] array, int n) throws IOException {
+			for(int from = 0; from < n; ) {
+				if(ints.hasRemaining() == false) {
+					flush();
+				}
+				int length = Math.min(n - from, ints.remaining());
+				ints.put(array, from, length);
+				from += length;
+			}
+		}
+		
+		/**
+		 * Write the first n values of a chunked array.
+		 * @param array
+		 * @param n
+		 * @throws IOException
+		 */
+		public void writeInts(ChunkedIntArray array, int n) throws IOException {
+			for(int from = 0; from < n; ) {
+				if(ints.hasRemaining() == false) {
+					flush();
+				}
+				int length = Math.min(n - from, ints.remaining());
+				array.get(from, ints, length);
+				from += length;
+			}
+		}
+		
+		/**
+		 * Write the ints in buffer to the file.
+		 * @throws IOException
+		 */
+		private void flush() throws IOException {
+			bytes.position(0);
+			bytes.limit(4 * ints.position());
+			while(bytes.hasRemaining()) {
+				position += channel.write(bytes, position);
+			}
+			bytes.clear();
+			ints.clear();
+		}
+		
+		/**
+		 * Flush the buffer and close the file.
+		 * @throws IOException
+		 */
+		private void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+	
+	/**
+	 * Class for reading ints from a snapshot file through memory-mapped windows.
+	 */
+	public static class Reader {
+		/**
+		 * maximum number of bytes of a window
+		 */
+		private static final long WINDOW_SIZE = 1L << 26;
+		
+		/**
+		 * channel of the file
+		 */
+		private final FileChannel channel;
+		
+		/**
+		 * ints of the current window
+		 */
+		private IntBuffer ints;
+		
+		/**
+		 * position in file of the next window
+		 */
+		private long position;
+		
+		/**
+		 * Constructor.
+		 * @param file  snapshot file
+		 * @throws IOException if the file cannot be opened
+		 */
+		private Reader(File file) throws IOException {
+			channel = new RandomAccessFile(file, "r").getChannel();
+			ints = IntBuffer.allocate(0);
+			position = 0;
+		}
+		
+		/**
+		 * Map the next window of the file.
+		 * @throws IOException if the end of file is reached
+		 */
+		private void map() throws IOException {
+			long size = Math.min(WINDOW_SIZE, channel.size() - position) & ~3L;
+			if(size <= 0) {
+				throw new IOException("Unexpected end of FP-tree snapshot");
+			}
+			ints = channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			position += size;
+		}
+		
+		/**
+		 * Read one int.
+		 * @return the int
+		 * @throws IOException
+		 */
+		public int readInt() throws IOException {
+			if(ints.hasRemaining() == false) {
+				map();
+			}
+			return ints.get();
+		}
+		
+		/**
+		 * Read one long written as two ints.
+		 * @return the long
+		 * @throws IOException
+		 */
+		public long readLong() throws IOException {
+			long low = readInt() & 0xFFFFFFFFL;
+			return low | ((long) readInt() << 32);
+		}
+		
+		/**
+		 * Read an array of bytes written by Writer.writeBytes().
+		 * @return the bytes
+		 * @throws IOException
+		 */
+		public byte[] readBytes() throws IOException {
+			byte[] array = new byte[readInt()];
+			for(int i = 0; i < array.length; i += 4) {
+				int value = readInt();
+				for(int j = i; j < i + 4 && j < array.length; j++) {
+					array[j] = (byte) value;
+					value >>>= 8;
+				}
+			}
+			return array;
+		}
+		
+		/**
+		 * Read an array of n ints.
+		 * @param n
+		 * @return the array
+		 * @throws IOException
+		 */
+		public int[] readInts(int n) throws IOException {
+			int[] array = new int[n];
+			for(int from = 0; from < n; ) {
+				if(ints.hasRemaining() == false) {
+					map();
+				}
+				int length = Math.min(n - from, ints.remaining());
+				ints.get(array, from, length);
+				from += length;
+			}
+			return array;
+		}
+		
+		/**
+		 * Read n ints into the first n values of a chunked array.
+		 * @param array
+		 * @param n
+		 * @throws IOException
+		 */
+		public void readInts(ChunkedIntArray array, int n) throws IOException {
+			for(int from = 0; from < n; ) {
+				if(ints.hasRemaining() == false) {
+					map();
+				}
+				int length = Math.min(n - from, ints.remaining());
+				array.set(from, ints, length);
+				from += length;
+			}
+		}
+		
+		/**
+		 * Close the file.
+		 * @throws IOException
+		 */
+		private void close() throws IOException {
+			channel.close();
+		}
+	}
+}
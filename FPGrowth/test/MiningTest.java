@@ -0,0 +1,636 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Tests of mining frequent patterns in each mode, against patterns counted by brute force.
+ * Each test writes its database to a temporary file and runs FPGrowth on it in a new JVM,
+ * answering its questions on stdin the way a user does.
+ *
+ * Usage: java MiningTest
+ * Exit status is 1 if a check fails.
+ */
+public class MiningTest {
+	
+	/**
+	 * options of each way to mine all frequent patterns, all checked against brute force
+	 */
+	private static final String[][] MODES = {
+		{},
+		{"--parallel", "--threads=4", "--parallel-threshold=1"},
+		{"--incremental"},
+		{"--out-of-core", "--partition-memory=1"},
+		{"--workers=2"},
+		{"--engine=eclat"},
+		{"--engine=lcm"},
+	};
+	
+	/**
+	 * number of checks failed
+	 */
+	private static int failures = 0;
+	
+	/**
+	 * Check a condition, and report it if it fails.
+	 * @param condition  true if the check passes
+	 * @param message  what is checked
+	 */
+	private static void check(boolean condition, String message) {
+		if(condition == false) {
+			failures++;
+			System.err.println("FAILED: " + message);
+		}
+	}
+	
+	/**
+	 * Write transactions to a temporary file.
+	 * @param lines  one transaction per line
+	 * @return the file, deleted on exit
+	 * @throws IOException
+	 */
+	private static File write(String[] lines) throws IOException {
+		File file = File.createTempFile("mining", ".txt");
+		file.deleteOnExit();
+		Writer writer = new FileWriter(file);
+		try {
+			for(String line : lines) {
+				writer.write(line + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+	
+	/**
+	 * Create a temporary output file name.
+	 * @return the file, deleted on exit
+	 * @throws IOException
+	 */
+	private static File output() throws IOException {
+		File file = File.createTempFile("patterns", ".txt");
+		file.deleteOnExit();
+		return file;
+	}
+	
+	/**
+	 * Run FPGrowth in a new JVM.
+	 * @param input  answers to the questions of FPGrowth, one per line
+	 * @param options  command line options, and options of the JVM starting with -X
+	 * @return what FPGrowth printed
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static String execute(String input, String... options) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		for(String option : options) {
+			if(option.startsWith("-X") == true) {
+				command.add(option);
+			}
+		}
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add("FPGrowth");
+		command.add("--quiet");
+		for(String option : options) {
+			if(option.startsWith("-X") == false) {
+				command.add(option);
+			}
+		}
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
+		Process process = builder.start();
+		OutputStream in = process.getOutputStream();
+		in.write(input.getBytes(Charset.defaultCharset()));
+		in.close();
+		InputStream out = process.getInputStream();
+		StringBuilder console = new StringBuilder();
+		byte[] buffer = new byte[8192];
+		for(int n = out.read(buffer); n >= 0; n = out.read(buffer)) {
+			console.append(new String(buffer, 0, n, Charset.defaultCharset()));
+		}
+		process.waitFor();
+		return console.toString();
+	}
+	
+	/**
+	 * Mine an input file once.
+	 * @param file  input file
+	 * @param minSupRatio  minimum support threshold (%)
+	 * @param output  output file, null with --count-only
+	 * @param options  command line options
+	 * @return what FPGrowth printed
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static String mine(File file, float minSupRatio, File output, String... options) throws IOException, InterruptedException {
+		return execute(file.getPath() + "\n" + minSupRatio + "\n" + (output == null ? "" : output.getPath() + "\n") + "n\n", options);
+	}
+	
+	/**
+	 * Read the patterns of an output file as sorted text, "item item : support" per pattern with items sorted.
+	 * @param file  output file
+	 * @return patterns as text, sorted
+	 * @throws IOException
+	 */
+	private static List<String> read(File file) throws IOException {
+		List<String> patterns = new ArrayList<String>();
+		for(String line : Files.readAllLines(file.toPath(), Charset.defaultCharset())) {
+			int colon = line.lastIndexOf(" : ");
+			if(colon < 0) {
+				continue;
+			}
+			String[] names = line.substring(0, colon).split(" ");
+			Arrays.sort(names);
+			patterns.add(String.join(" ", names) + line.substring(colon));
+		}
+		Collections.sort(patterns);
+		return patterns;
+	}
+	
+	/**
+	 * Get absolute minimum support, the way DataIO does.
+	 * @param minSupRatio  minimum support threshold (%)
+	 * @param transactionCount  number of transactions
+	 * @return absolute minimum support
+	 */
+	private static int getMinSupport(float minSupRatio, int transactionCount) {
+		return (int) Math.ceil(minSupRatio * transactionCount / 100);
+	}
+	
+	/**
+	 * Count the support of every itemset of the transactions by brute force.
+	 * A transaction is a set, so an item repeated in a line is counted once.
+	 * @param lines  one transaction per line, items separated by spaces
+	 * @return support of each itemset, whose items are sorted and separated by spaces
+	 */
+	private static Map<String, Integer> countAll(String[] lines) {
+		Map<String, Integer> transactions = new HashMap<String, Integer>();
+		for(String line : lines) {
+			String key = String.join(" ", new TreeSet<String>(Arrays.asList(line.split(" "))));
+			transactions.put(key, transactions.containsKey(key) ? transactions.get(key) + 1 : 1);
+		}
+		Map<String, Integer> supports = new HashMap<String, Integer>();
+		for(Map.Entry<String, Integer> transaction : transactions.entrySet()) {
+			String[] items = transaction.getKey().split(" ");
+			for(int subset = 1; subset < 1 << items.length; subset++) {
+				StringBuilder key = new StringBuilder();
+				for(int i = 0; i < items.length; i++) {
+					if((subset >> i & 1) == 1) {
+						key.append(key.length() == 0 ? "" : " ").append(items[i]);
+					}
+				}
+				Integer support = supports.get(key.toString());
+				supports.put(key.toString(), (support == null ? 0 : support) + transaction.getValue());
+			}
+		}
+		return supports;
+	}
+	
+	/**
+	 * Get the frequent itemsets by brute force.
+	 * @param lines  one transaction per line
+	 * @param minSupport  absolute minimum support
+	 * @return support of each frequent itemset
+	 */
+	private static Map<String, Integer> countFrequent(String[] lines, int minSupport) {
+		Map<String, Integer> frequent = new HashMap<String, Integer>();
+		for(Map.Entry<String, Integer> itemset : countAll(lines).entrySet()) {
+			if(itemset.getValue() >= minSupport) {
+				frequent.put(itemset.getKey(), itemset.getValue());
+			}
+		}
+		return frequent;
+	}
+	
+	/**
+	 * Convert itemsets with their supports into sorted text, "item item : support" per itemset.
+	 * @param itemsets  support of each itemset
+	 * @return itemsets as text, sorted
+	 */
+	private static List<String> toText(Map<String, Integer> itemsets) {
+		List<String> patterns = new ArrayList<String>();
+		for(Map.Entry<String, Integer> itemset : itemsets.entrySet()) {
+			patterns.add(itemset.getKey() + " : " + itemset.getValue());
+		}
+		Collections.sort(patterns);
+		return patterns;
+	}
+	
+	/**
+	 * Generate random transactions, each of which draws items with a skewed distribution,
+	 * an item drawn more than once is kept once.
+	 * @param transactionCount  number of transactions
+	 * @param itemCount  number of distinct items
+	 * @param maxDraws  maximum number of items drawn for a transaction, at least 2
+	 * @param skew  1 for items drawn uniformly, more for small items drawn more often
+	 * @return one transaction per line
+	 */
+	private static String[] generate(int transactionCount, int itemCount, int maxDraws, double skew) {
+		Random random = new Random(588);
+		String[] lines = new String[transactionCount];
+		for(int t = 0; t < transactionCount; t++) {
+			int draws = 2 + random.nextInt(maxDraws - 1);
+			Set<String> items = new TreeSet<String>();
+			for(int i = 0; i < draws; i++) {
+				items.add("i" + (int) (itemCount * Math.pow(random.nextDouble(), skew)));
+			}
+			lines[t] = String.join(" ", items);
+		}
+		return lines;
+	}
+	
+	/**
+	 * Every way to mine all patterns finds the frequent itemsets counted by brute force,
+	 * whether the patterns are written to output file or only counted.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testAllPatterns() throws IOException, InterruptedException {
+		String[] lines = generate(300, 15, 8, 2);
+		File file = write(lines);
+		List<String> expected = toText(countFrequent(lines, getMinSupport(5, lines.length)));
+		for(String[] mode : MODES) {
+			File output = output();
+			mine(file, 5, output, mode);
+			check(read(output).equals(expected), "patterns of " + Arrays.toString(mode));
+			String console = mine(file, 5, null, concat(mode, "--count-only"));
+			check(console.contains("The total number of frequent patterns: " + expected.size() + "\n"),
+					"number of patterns of " + Arrays.toString(mode) + " --count-only");
+		}
+	}
+	
+	/**
+	 * Append options to an array of options.
+	 * @param options
+	 * @param more
+	 * @return all options
+	 */
+	private static String[] concat(String[] options, String... more) {
+		String[] all = Arrays.copyOf(options, options.length + more.length);
+		System.arraycopy(more, 0, all, options.length, more.length);
+		return all;
+	}
+	
+	/**
+	 * The encoded transactions are kept for the next minimum support of the session,
+	 * and spilled to disk beyond the store memory.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testTransactionStore() throws IOException, InterruptedException {
+		String[] lines = generate(300, 15, 8, 2);
+		File file = write(lines);
+		File output = output();
+		String console = execute(file.getPath() + "\n10\n" + output.getPath() + "\ny\n5\nn\n");
+		check(console.contains("Cached!"), "transactions are read once in a session");
+		check(read(output).equals(toText(countFrequent(lines, getMinSupport(5, lines.length)))),
+				"patterns at the second minimum support of a session");
+		//more than the 2 pages of 4MB a store keeps in memory at least
+		String[] many = new String[600000];
+		for(int t = 0; t < many.length; t++) {
+			many[t] = lines[t % lines.length];
+		}
+		file = write(many);
+		console = mine(file, 5, output, "--store-memory=1");
+		check(console.contains("spilled to disk"), "transactions beyond store memory are spilled: " + console);
+		check(read(output).equals(toText(countFrequent(many, getMinSupport(5, many.length)))),
+				"patterns of spilled transactions");
+	}
+	
+	/**
+	 * An item repeated in a transaction is counted once, in every way to mine all patterns.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testRepeatedItem() throws IOException, InterruptedException {
+		File file = write(new String[] {"a a b", "a b", "a c c", "b"});
+		List<String> expected = Arrays.asList("a : 3", "a b : 2", "b : 3");
+		for(String[] mode : MODES) {
+			File output = output();
+			mine(file, 50, output, mode);
+			check(read(output).equals(expected), "patterns with a repeated item of " + Arrays.toString(mode) + ": " + read(output));
+		}
+	}
+	
+	/**
+	 * Keep the closed itemsets, which have no superset of the same support.
+	 * @param itemsets  support of each frequent itemset
+	 * @return the closed itemsets
+	 */
+	private static Map<String, Integer> closed(Map<String, Integer> itemsets) {
+		Map<String, Integer> closed = new HashMap<String, Integer>();
+		for(Map.Entry<String, Integer> itemset : itemsets.entrySet()) {
+			if(hasSuperset(itemsets, itemset.getKey(), itemset.getValue()) == false) {
+				closed.put(itemset.getKey(), itemset.getValue());
+			}
+		}
+		return closed;
+	}
+	
+	/**
+	 * Keep the maximal itemsets, which have no frequent superset.
+	 * @param itemsets  support of each frequent itemset
+	 * @return the maximal itemsets
+	 */
+	private static Map<String, Integer> maximal(Map<String, Integer> itemsets) {
+		Map<String, Integer> maximal = new HashMap<String, Integer>();
+		for(Map.Entry<String, Integer> itemset : itemsets.entrySet()) {
+			if(hasSuperset(itemsets, itemset.getKey(), 0) == false) {
+				maximal.put(itemset.getKey(), itemset.getValue());
+			}
+		}
+		return maximal;
+	}
+	
+	/**
+	 * Check if an itemset has a proper superset with at least a given support.
+	 * @param itemsets  support of each frequent itemset
+	 * @param key  items of the itemset
+	 * @param minSupport  minimum support of the superset
+	 * @return true if such a superset is frequent
+	 */
+	private static boolean hasSuperset(Map<String, Integer> itemsets, String key, int minSupport) {
+		Set<String> items = new HashSet<String>(Arrays.asList(key.split(" ")));
+		for(Map.Entry<String, Integer> other : itemsets.entrySet()) {
+			List<String> otherItems = Arrays.asList(other.getKey().split(" "));
+			if(otherItems.size() > items.size() && other.getValue() >= minSupport && otherItems.containsAll(items)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Closed patterns are the frequent itemsets without a superset of the same support.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testClosedPatterns() throws IOException, InterruptedException {
+		String[] lines = generate(300, 15, 8, 2);
+		File file = write(lines);
+		List<String> expected = toText(closed(countFrequent(lines, getMinSupport(3, lines.length))));
+		for(String[] mode : new String[][] {{}, {"--parallel", "--threads=4", "--parallel-threshold=1"}}) {
+			File output = output();
+			mine(file, 3, output, concat(mode, "--patterns=closed"));
+			check(read(output).equals(expected), "closed patterns of " + Arrays.toString(mode));
+		}
+	}
+	
+	/**
+	 * Maximal patterns are the frequent itemsets without a frequent superset.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testMaximalPatterns() throws IOException, InterruptedException {
+		String[] lines = generate(300, 15, 8, 2);
+		File file = write(lines);
+		List<String> expected = toText(maximal(countFrequent(lines, getMinSupport(3, lines.length))));
+		for(String[] mode : new String[][] {{}, {"--parallel", "--threads=4", "--parallel-threshold=1"}}) {
+			File output = output();
+			mine(file, 3, output, concat(mode, "--patterns=maximal"));
+			check(read(output).equals(expected), "maximal patterns of " + Arrays.toString(mode));
+		}
+	}
+	
+	/**
+	 * Top-K patterns are all itemsets with at least the K-th highest support,
+	 * including the itemsets tied with the K-th one.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testTopK() throws IOException, InterruptedException {
+		String[] lines = generate(300, 15, 8, 2);
+		File file = write(lines);
+		Map<String, Integer> all = countAll(lines);
+		List<Integer> supports = new ArrayList<Integer>(all.values());
+		Collections.sort(supports, Collections.reverseOrder());
+		for(int k : new int[] {1, 7, 50}) {
+			//the K-th support is tied with the next one in this database
+			int kthSupport = supports.get(k - 1);
+			File output = output();
+			execute(file.getPath() + "\n" + output.getPath() + "\nn\n", "--top-k=" + k);
+			List<String> expected = toText(countFrequent(lines, kthSupport));
+			check(read(output).equals(expected), "top-" + k + " patterns, " + expected.size() + " with ties");
+		}
+		check(supports.get(6).equals(supports.get(7)) && supports.get(49).equals(supports.get(50)), "top-K supports are tied");
+	}
+	
+	/**
+	 * A sliding window mines the itemsets of its latest transactions.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testSlidingWindow() throws IOException, InterruptedException {
+		String[] lines = generate(300, 15, 8, 2);
+		File file = write(lines);
+		File output = output();
+		String console = execute("", "--window=100", "--slide=40", "--stream=" + file.getPath(), "--min-support=5",
+				"--output=" + output.getPath());
+		//the last window is emitted with the transactions left after the last slide
+		check(console.contains("transactions 201-300"), "the last window has the latest transactions");
+		String[] window = Arrays.copyOfRange(lines, 200, 300);
+		check(read(output).equals(toText(countFrequent(window, getMinSupport(5, window.length)))), "patterns of the last window");
+	}
+	
+	/**
+	 * Each minimum support of a sweep is mined from the base FP-tree built at the lowest one.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testSweep() throws IOException, InterruptedException {
+		String[] lines = generate(300, 15, 8, 2);
+		File file = write(lines);
+		File output = output();
+		String console = execute(file.getPath() + "\n" + output.getPath() + "\n", "--sweep=10,5,20");
+		check(console.contains("Reused!"), "the base FP-tree is reused in a sweep");
+		String path = output.getPath();
+		for(String label : new String[] {"10", "5", "20"}) {
+			File sweepOutput = new File(path.substring(0, path.lastIndexOf('.')) + "-" + label + ".txt");
+			sweepOutput.deleteOnExit();
+			check(read(sweepOutput).equals(toText(countFrequent(lines, getMinSupport(Float.parseFloat(label), lines.length)))),
+					"patterns of the sweep at " + label + "%");
+		}
+	}
+	
+	/**
+	 * A rule exactly on the minimum confidence, lift and conviction is kept.
+	 * a => b has confidence 3/5 = 60%, lift 3 * 15 / (5 * 3) = 3 and conviction (15 - 3) * 5 / (15 * (5 - 3)) = 2,
+	 * which are not exact as ratios of doubles.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testRuleThreshold() throws IOException, InterruptedException {
+		String[] lines = new String[15];
+		for(int t = 0; t < lines.length; t++) {
+			lines[t] = t < 3 ? "a b" : t < 5 ? "a c" : "c d";
+		}
+		File file = write(lines);
+		File rules = output();
+		mine(file, 20, output(), "--rules=" + rules.getPath(), "--min-confidence=60", "--min-lift=3", "--min-conviction=2");
+		List<String> text = Files.readAllLines(rules.toPath(), Charset.defaultCharset());
+		check(text.size() == 2 && (text.get(0).startsWith("a => b") || text.get(1).startsWith("a => b")),
+				"rules on the thresholds are kept: " + text);
+	}
+	
+	/**
+	 * A snapshot of the base FP-tree is mined at its minimum support or above without reading input file,
+	 * and a snapshot of incremental mode is updated with the transactions appended since it was saved.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testSnapshot() throws IOException, InterruptedException {
+		String[] lines = generate(300, 15, 8, 2);
+		File file = write(lines);
+		File snapshot = output();
+		File output = output();
+		mine(file, 5, output, "--save-tree=" + snapshot.getPath());
+		String console = execute("10\n" + output.getPath() + "\nn\n", "--load-tree=" + snapshot.getPath());
+		check(read(output).equals(toText(countFrequent(lines, getMinSupport(10, lines.length)))), "patterns of a snapshot");
+		console = execute("2\n" + output.getPath() + "\nn\n", "--load-tree=" + snapshot.getPath());
+		check(console.contains("Min_Sup: 5.0% of 300 transactions = 15"), "minimum support is raised to the snapshot's: " + console);
+		check(read(output).equals(toText(countFrequent(lines, getMinSupport(5, lines.length)))),
+				"patterns of a snapshot below its minimum support");
+		String[] first = Arrays.copyOf(lines, 200);
+		file = write(first);
+		mine(file, 5, output, "--incremental", "--save-tree=" + snapshot.getPath());
+		Writer writer = new FileWriter(file, true);
+		try {
+			for(int t = 200; t < lines.length; t++) {
+				writer.write(lines[t] + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+		console = mine(file, 5, output, "--incremental", "--load-tree=" + snapshot.getPath());
+		check(console.contains("Appended 100 transactions!"), "only appended transactions are read");
+		check(read(output).equals(toText(countFrequent(lines, getMinSupport(5, lines.length)))),
+				"patterns of an incremental snapshot and appended transactions");
+	}
+	
+	/**
+	 * At 0% minimum support, no way to mine outputs a pattern of items which never occur together.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testZeroMinSupport() throws IOException, InterruptedException {
+		File file = write(new String[] {"a b", "c", "a"});
+		List<String> expected = Arrays.asList("a : 2", "a b : 1", "b : 1", "c : 1");
+		for(String[] mode : MODES) {
+			File output = output();
+			mine(file, 0, output, mode);
+			check(read(output).equals(expected), "patterns at 0% minimum support of " + Arrays.toString(mode) + ": " + read(output));
+		}
+	}
+	
+	/**
+	 * MiningPlanner keeps FP-growth for sparse data and chooses Eclat for dense data,
+	 * and never chooses an engine without an option given for FP-growth.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testPlannerChoice() throws IOException, InterruptedException {
+		//few items per transaction, the frequent ones shared by many transactions
+		File file = write(generate(20000, 1000, 8, 10));
+		String console = mine(file, 0.1f, null, "--engine=auto", "--count-only");
+		check(console.contains("engine: fpgrowth"), "planner chooses FP-growth for sparse data");
+		//about half of the items in each transaction
+		file = write(generate(5000, 30, 40, 1));
+		console = mine(file, 10, null, "--engine=auto", "--count-only");
+		check(console.contains("engine: eclat"), "planner chooses Eclat for dense data");
+		for(String option : new String[] {"--path-summary=closed", "--fp-array=on", "--max-length=3", "--require=i1", "--exclude=i1"}) {
+			console = mine(file, 10, null, "--engine=auto", "--count-only", option);
+			check(console.contains("engine: fpgrowth"), "planner keeps FP-growth with " + option);
+		}
+	}
+	
+	/**
+	 * Constraints keep the frequent itemsets of at most the maximum length,
+	 * with all required items and no excluded item.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testConstraints() throws IOException, InterruptedException {
+		String[] lines = generate(300, 15, 8, 2);
+		File file = write(lines);
+		Map<String, Integer> frequent = countFrequent(lines, getMinSupport(3, lines.length));
+		Map<String, Integer> expected = new HashMap<String, Integer>();
+		for(Map.Entry<String, Integer> itemset : frequent.entrySet()) {
+			List<String> items = Arrays.asList(itemset.getKey().split(" "));
+			if(items.size() <= 3 && items.contains("i2") && items.contains("i5") && items.contains("i0") == false) {
+				expected.put(itemset.getKey(), itemset.getValue());
+			}
+		}
+		for(String[] mode : new String[][] {{}, {"--parallel", "--threads=4", "--parallel-threshold=1"}}) {
+			File output = output();
+			mine(file, 3, output, concat(mode, "--max-length=3", "--require=i5,i2", "--exclude=i0"));
+			check(read(output).equals(toText(expected)), "patterns with constraints of " + Arrays.toString(mode));
+		}
+	}
+	
+	/**
+	 * A deep FP-tree is mined without overflowing the stack of a thread, sequentially and in parallel.
+	 * Every item of 3000-item transactions is required, so the tree is mined 3000 levels deep,
+	 * and at parallel threshold 1 every level is forked, in a JVM with a small stack.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void testDeepTree() throws IOException, InterruptedException {
+		StringBuilder items = new StringBuilder();
+		StringBuilder required = new StringBuilder();
+		for(int i = 0; i < 3000; i++) {
+			items.append(i == 0 ? "" : " ").append('a').append(i);
+			required.append(i == 0 ? "" : ",").append('a').append(i);
+		}
+		File file = write(new String[] {items.toString(), items + " b", items + " c"});
+		for(String[] mode : new String[][] {{}, {"--parallel", "--threads=4", "--parallel-threshold=1"}}) {
+			String console = mine(file, 50, output(), concat(mode, "-Xss512k", "--fp-array=off", "--require=" + required));
+			check(console.contains("StackOverflowError") == false && console.contains("The total number of frequent patterns: 1\n"),
+					"mining of a deep FP-tree of " + Arrays.toString(mode) + ": " + console);
+		}
+	}
+	
+	/**
+	 * Run all tests.
+	 * @param args  not used
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		testAllPatterns();
+		testTransactionStore();
+		testRepeatedItem();
+		testClosedPatterns();
+		testMaximalPatterns();
+		testTopK();
+		testSlidingWindow();
+		testSweep();
+		testRuleThreshold();
+		testSnapshot();
+		testZeroMinSupport();
+		testPlannerChoice();
+		testConstraints();
+		testDeepTree();
+		if(failures > 0) {
+			System.err.println(failures + " checks failed");
+			System.exit(1);
+		}
+		System.out.println("All checks passed");
+	}
+}